@@ -22,6 +22,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheWeigher;
+import org.apache.ibatis.cache.DefaultCacheWeigher;
+import org.apache.ibatis.cache.JavaCacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 
@@ -53,16 +57,48 @@ public @interface CacheNamespace {
    */
   int size() default 1024;
 
+  /**
+   * Returns the maximum estimated size in bytes of the cached entries.
+   * <p>
+   * When set, the default {@link #eviction()} is replaced by {@link org.apache.ibatis.cache.decorators.WeightedCache}.
+   * Any other eviction class must support it, otherwise the mapper fails to load.
+   *
+   * @return 缓存容器的字节数上限。0 代表不限制
+   * @since 3.5.3
+   */
+  long maxBytes() default 0;
+
+  /**
+   * @return 估算缓存项字节数的 CacheWeigher 实现类
+   * @since 3.5.3
+   */
+  Class<? extends CacheWeigher> weigher() default DefaultCacheWeigher.class;
+
   /**
    * @return 是否序列化。{@link org.apache.ibatis.cache.decorators.SerializedCache}
    */
   boolean readWrite() default true;
 
+  /**
+   * @return 序列化的 CacheSerializer 实现类
+   * @since 3.5.3
+   */
+  Class<? extends CacheSerializer> serializer() default JavaCacheSerializer.class;
+
   /**
    * @return 是否阻塞。{@link org.apache.ibatis.cache.decorators.BlockingCache}
    */
   boolean blocking() default false;
 
+  /**
+   * Returns whether each entry expires on its own after {@link #flushInterval()}, hot entries being reloaded in the
+   * background before they expire, instead of flushing the whole cache.
+   *
+   * @return 是否提前刷新。{@link org.apache.ibatis.cache.decorators.RefreshAheadCache}
+   * @since 3.5.3
+   */
+  boolean refreshAhead() default false;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
@@ -33,4 +33,13 @@ public @interface Many {
 
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * Returns the columns of the nested select result holding the values of the {@code column} of this result, used to
+   * attach the rows of a {@link FetchType#BATCH} fetch to their parents. Defaults to the {@code column} names.
+   *
+   * @return the foreign columns
+   * @since 3.5.3
+   */
+  String foreignColumn() default "";
+
 }
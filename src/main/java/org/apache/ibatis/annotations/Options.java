@@ -63,4 +63,32 @@ public @interface Options {
   String keyColumn() default "";
 
   String resultSets() default "";
+
+  /**
+   * Returns the comma separated cache tags of this statement, e.g. {@code "user:#{id}"}.
+   * A write statement declaring tags evicts only the cached entries having one of them instead of flushing the cache.
+   *
+   * @return the cache tags
+   * @since 3.5.3
+   */
+  String cacheTags() default "";
+
+  /**
+   * Returns the maximum number of elements of a collection parameter passed to one execution of this statement,
+   * e.g. the rows of a multi-row insert. A larger collection is split into chunks executed one after another.
+   *
+   * @return the chunk size, 0 to execute the whole collection at once
+   * @since 3.5.3
+   */
+  int chunkSize() default 0;
+
+  /**
+   * Returns whether the rows of this select are mapped in parallel, as {@code parallelResultMappingEnabled} does for
+   * every statement.
+   *
+   * @return {@code true} to map the rows in parallel; {@code false} to use the {@code parallelResultMappingEnabled}
+   *         setting
+   * @since 3.5.3
+   */
+  boolean parallelResultMapping() default false;
 }
@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Mapper接口中定义的方法对应的Mapper方法，通过它来执行SQL
@@ -97,6 +98,9 @@ public class MapperMethod {
 			} else if (method.returnsCursor()) {
         // 执行查询，返回 Cursor
 				result = executeForCursor(sqlSession, args);
+			} else if (method.returnsStream()) {
+        // 执行查询，返回 Stream
+				result = executeForStream(sqlSession, args);
 			} else { // 执行查询，返回单个对象
 				// 获取参数名称与入参的映射
 				Object param = method.convertArgsToSqlCommandParam(args);
@@ -212,6 +216,18 @@ public class MapperMethod {
 		return result;
 	}
 
+	private <T> Stream<T> executeForStream(SqlSession sqlSession, Object[] args) {
+		Stream<T> result;
+		Object param = method.convertArgsToSqlCommandParam(args);
+		if (method.hasRowBounds()) {
+			RowBounds rowBounds = method.extractRowBounds(args);
+			result = sqlSession.selectStream(command.getName(), param, rowBounds);
+		} else {
+			result = sqlSession.selectStream(command.getName(), param);
+		}
+		return result;
+	}
+
 	private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
 		Object collection = config.getObjectFactory().create(method.getReturnType());
 		MetaObject metaObject = config.newMetaObject(collection);
@@ -350,6 +366,10 @@ public class MapperMethod {
      * 返回类型是否为 Cursor
      */
     private final boolean returnsCursor;
+    /**
+     * 返回类型是否为 Stream
+     */
+    private final boolean returnsStream;
     /**
      * 返回类型是否为 Optional
      */
@@ -392,6 +412,8 @@ public class MapperMethod {
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       // 返回类型是否为游标类型
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      // 返回类型是否为 Stream 类型
+      this.returnsStream = Stream.class.equals(this.returnType);
       // 返回结果是否则 Optional 类型
       this.returnsOptional = Optional.class.equals(this.returnType);
       // 解析方法上面的 @MapKey 注解
@@ -458,6 +480,16 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * return whether return type is {@code java.util.stream.Stream}.
+     *
+     * @return return {@code true}, if return type is {@code java.util.stream.Stream}
+     * @since 3.5.3
+     */
+    public boolean returnsStream() {
+      return returnsStream;
+    }
+
     /**
      * return whether return type is {@code java.util.Optional}.
      *
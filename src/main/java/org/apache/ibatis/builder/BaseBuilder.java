@@ -76,6 +76,11 @@ public abstract class BaseBuilder {
 		return value == null ? defaultValue : Integer.valueOf(value);
 	}
 
+	protected Long longValueOf(String value, Long defaultValue) {
+    // String -> Long
+		return value == null ? defaultValue : Long.valueOf(value);
+	}
+
 	protected Set<String> stringSetValueOf(String value, String defaultValue) {
     // String -> Set<String>
 		value = value == null ? defaultValue : value;
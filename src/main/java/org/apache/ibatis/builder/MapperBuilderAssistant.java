@@ -28,7 +28,13 @@ import java.util.StringTokenizer;
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheWeigher;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -147,19 +153,68 @@ public class MapperBuilderAssistant extends BaseBuilder {
 
 	public Cache useNewCache(Class<? extends Cache> typeClass, Class<? extends Cache> evictionClass, Long flushInterval,
 			Integer size, boolean readWrite, boolean blocking, Properties props) {
+		return useNewCache(typeClass, evictionClass, flushInterval, size, null, null, null, readWrite, blocking, false,
+				props);
+	}
+
+	public Cache useNewCache(Class<? extends Cache> typeClass, Class<? extends Cache> evictionClass, Long flushInterval,
+			Integer size, Long maxBytes, Class<? extends CacheWeigher> weigher, Class<? extends CacheSerializer> serializer,
+			boolean readWrite, boolean blocking, boolean refreshAhead, Properties props) {
 		// <1> 创建 Cache 对象
-    // 缓存实例默认为 PerpetualCache 类型，Cache 装饰器默认为 LruCache
-		Cache cache = new CacheBuilder(currentNamespace).implementation(valueOrDefault(typeClass, PerpetualCache.class))
-				.addDecorator(valueOrDefault(evictionClass, LruCache.class))
-				.clearInterval(flushInterval).size(size).readWrite(readWrite).blocking(blocking).properties(props)
-				.build();
+		// 缓存实例默认为 PerpetualCache 类型，Cache 装饰器默认为 LruCache，设置了 maxBytes 时见 resolveEvictionClass
+		typeClass = valueOrDefault(typeClass, PerpetualCache.class);
+		evictionClass = resolveEvictionClass(typeClass, evictionClass, maxBytes);
+		CacheStats stats = new CacheStats(currentNamespace);
+		Cache cache = new CacheBuilder(currentNamespace).implementation(typeClass)
+				.addDecorator(evictionClass)
+				.clearInterval(flushInterval).size(size).maxBytes(maxBytes).weigher(weigher).serializer(serializer)
+				.readWrite(readWrite).blocking(blocking).refreshAhead(refreshAhead).stats(stats).properties(props).build();
 		// <2> 添加到 configuration 的 caches 中
 		configuration.addCache(cache);
+		configuration.addCacheStats(stats);
 		// <3> 赋值给 currentCache
 		currentCache = cache;
 		return cache;
 	}
 
+	/**
+	 * 获得负责淘汰的 Cache 装饰器
+	 *
+	 * 设置了 maxBytes 时，LruCache（@CacheNamespace 的默认值）无法按字节数淘汰，所以替换为 WeightedCache；
+	 * 其它不支持 maxBytes 的装饰器直接报错，避免配置被悄悄忽略
+	 */
+	private Class<? extends Cache> resolveEvictionClass(Class<? extends Cache> typeClass,
+			Class<? extends Cache> evictionClass, Long maxBytes) {
+		// ConcurrentCache 和 OffHeapCache 自己负责淘汰，不会被装饰，见 CacheBuilder#build
+		if (ConcurrentCache.class.equals(typeClass) || OffHeapCache.class.equals(typeClass)) {
+			if (maxBytes != null
+					&& !MetaClass.forClass(typeClass, configuration.getReflectorFactory()).hasSetter("maxBytes")) {
+				throw new BuilderException("Cache '" + currentNamespace + "' sets maxBytes but its type '"
+						+ typeClass.getName() + "' does not support it.");
+			}
+			// 只允许未设置时的默认值：LRU ，设置了 maxBytes 时 XML 的默认值为 WEIGHTED
+			if (evictionClass != null && !LruCache.class.equals(evictionClass)
+					&& !(maxBytes != null && WeightedCache.class.equals(evictionClass))) {
+				throw new BuilderException("Cache '" + currentNamespace + "' sets the eviction class '"
+						+ evictionClass.getName() + "' but its type '" + typeClass.getName() + "' evicts by itself.");
+			}
+			return LruCache.class;
+		}
+		if (maxBytes == null) {
+			return valueOrDefault(evictionClass, LruCache.class);
+		}
+		if (evictionClass == null || LruCache.class.equals(evictionClass)) {
+			return WeightedCache.class;
+		}
+		// 自定义的 Cache 类不会被装饰，见 CacheBuilder#build
+		if (PerpetualCache.class.equals(typeClass)
+				&& !MetaClass.forClass(evictionClass, configuration.getReflectorFactory()).hasSetter("maxBytes")) {
+			throw new BuilderException("Cache '" + currentNamespace + "' sets maxBytes but its eviction class '"
+					+ evictionClass.getName() + "' does not support it.");
+		}
+		return evictionClass;
+	}
+
 	public ParameterMap addParameterMap(String id, Class<?> parameterClass, List<ParameterMapping> parameterMappings) {
 		id = applyCurrentNamespace(id, false);
 		ParameterMap parameterMap = new ParameterMap.Builder(configuration, id, parameterClass, parameterMappings)
@@ -241,6 +296,20 @@ public class MapperBuilderAssistant extends BaseBuilder {
 			Class<?> parameterType, String resultMap, Class<?> resultType, ResultSetType resultSetType,
 			boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty,
 			String keyColumn, String databaseId, LanguageDriver lang, String resultSets) {
+		return addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterMap,
+				parameterType, resultMap, resultType, resultSetType, flushCache, useCache, resultOrdered, keyGenerator,
+				keyProperty, keyColumn, databaseId, lang, resultSets, null, null, null);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public MappedStatement addMappedStatement(String id, SqlSource sqlSource, StatementType statementType,
+			SqlCommandType sqlCommandType, Integer fetchSize, Integer timeout, String parameterMap,
+			Class<?> parameterType, String resultMap, Class<?> resultType, ResultSetType resultSetType,
+			boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator, String keyProperty,
+			String keyColumn, String databaseId, LanguageDriver lang, String resultSets, String cacheTags,
+			Integer chunkSize, Boolean parallelResultMapping) {
 
 		// <1> 如果的指向的 Cache 未解析，抛出异常
 		if (unresolvedCacheRef) {
@@ -259,7 +328,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
 						.lang(lang).resultOrdered(resultOrdered).resultSets(resultSets)
 						.resultMaps(getStatementResultMaps(resultMap, resultType, id)).resultSetType(resultSetType)
 						.flushCacheRequired(valueOrDefault(flushCache, !isSelect))
-						.useCache(valueOrDefault(useCache, isSelect)).cache(currentCache);
+						.useCache(valueOrDefault(useCache, isSelect)).cache(currentCache).cacheTags(cacheTags)
+						.chunkSize(chunkSize)
+						.parallelResultMapping(valueOrDefault(parallelResultMapping, configuration.isParallelResultMappingEnabled()));
 
 		// <4> 生成 ParameterMap 对象
 		ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
@@ -269,6 +340,10 @@ public class MapperBuilderAssistant extends BaseBuilder {
 
 		// <5> 创建 MappedStatement 对象
 		MappedStatement statement = statementBuilder.build();
+		// 声明了缓存标签，则为该缓存创建标签索引
+		if (statement.getCacheTags() != null && currentCache != null) {
+			configuration.addCacheTagIndex(currentCache.getId());
+		}
 		// <6> 添加到 configuration 中
 		configuration.addMappedStatement(statement);
 		return statement;
@@ -325,6 +400,17 @@ public class MapperBuilderAssistant extends BaseBuilder {
 			JdbcType jdbcType, String nestedSelect, String nestedResultMap, String notNullColumn, String columnPrefix,
 			Class<? extends TypeHandler<?>> typeHandler, List<ResultFlag> flags, String resultSet, String foreignColumn,
 			boolean lazy) {
+		return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap,
+				notNullColumn, columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, false);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public ResultMapping buildResultMapping(Class<?> resultType, String property, String column, Class<?> javaType,
+			JdbcType jdbcType, String nestedSelect, String nestedResultMap, String notNullColumn, String columnPrefix,
+			Class<? extends TypeHandler<?>> typeHandler, List<ResultFlag> flags, String resultSet, String foreignColumn,
+			boolean lazy, boolean batch) {
 		// <1> 解析对应的 Java Type
 		Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
 		// 解析对应的 TypeHandler ，一般不会设置
@@ -343,7 +429,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
 				.nestedResultMapId(applyCurrentNamespace(nestedResultMap, true)).resultSet(resultSet)
 				.typeHandler(typeHandlerInstance).flags(flags == null ? new ArrayList<>() : flags)
 				.composites(composites).notNullColumns(parseMultipleColumnNames(notNullColumn))
-				.columnPrefix(columnPrefix).foreignColumn(foreignColumn).lazy(lazy).build();
+				.columnPrefix(columnPrefix).foreignColumn(foreignColumn).lazy(lazy).batch(batch).build();
 	}
 
 	private Set<String> parseMultipleColumnNames(String columnName) {
@@ -16,6 +16,7 @@
 package org.apache.ibatis.builder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,7 @@ import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 
@@ -35,6 +37,11 @@ public class SqlSourceBuilder extends BaseBuilder {
 
 	private static final String PARAMETER_PROPERTIES = "javaType,jdbcType,mode,numericScale,resultMap,typeHandler,jdbcTypeName";
 
+	/**
+	 * 最近一次解析生成的 ParameterMapping 是否可以被 SQL 、参数类型和附加参数的类型都相同的调用复用
+	 */
+	private boolean reusable;
+
 	public SqlSourceBuilder(Configuration configuration) {
 		super(configuration);
 	}
@@ -60,10 +67,22 @@ public class SqlSourceBuilder extends BaseBuilder {
 		 * 并生成对应的 ParameterMapping 对象保存在 ParameterMappingTokenHandler 中
 		 */
 		String sql = parser.parse(originalSql);
+		reusable = handler.reusable;
 		// <4> 创建 StaticSqlSource 对象
 		return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
 	}
 
+	/**
+	 * Returns whether the result of the last {@link #parse} can be reused for any call with the same SQL, the same
+	 * parameter type and additional parameters of the same classes. It cannot when the type of a property was read
+	 * from the contents of an additional parameter, for example from a map element or a collection item.
+	 *
+	 * @since 3.5.3
+	 */
+	public boolean isReusable() {
+		return reusable;
+	}
+
 	private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
 
 		/**
@@ -78,10 +97,19 @@ public class SqlSourceBuilder extends BaseBuilder {
 		 * additionalParameters 参数的对应的 MetaObject 对象
 		 */
 		private MetaObject metaParameters;
+		/**
+		 * 附加参数集合
+		 */
+		private final Map<String, Object> additionalParameters;
+		/**
+		 * 生成的 ParameterMapping 是否只取决于参数的类型，而不是附加参数的内容
+		 */
+		private boolean reusable = true;
 
 		public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
 			super(configuration);
 			this.parameterType = parameterType;
+			this.additionalParameters = additionalParameters;
 			// 创建 additionalParameters 参数的对应的 MetaObject 对象
 			this.metaParameters = configuration.newMetaObject(additionalParameters);
 		}
@@ -98,6 +126,24 @@ public class SqlSourceBuilder extends BaseBuilder {
 			return "?";
 		}
 
+		/**
+		 * 附加参数的子属性的类型是否可以通过附加参数的类得到，例如 Map 中元素的类型只能通过元素的值得到
+		 */
+		private boolean isDeterminedByClass(String property, boolean additionalProperty, Class<?> propertyType) {
+			PropertyTokenizer prop = new PropertyTokenizer(property);
+			// 不是子属性，或者不是附加参数的子属性时，只取决于附加参数的名字和类型、参数类型
+			if (!prop.hasNext() || !additionalParameters.containsKey(prop.getIndexedName())) {
+				return true;
+			}
+			Object value = additionalParameters.get(prop.getIndexedName());
+			if (!additionalProperty || value == null || value instanceof Map || value instanceof Collection
+					|| value.getClass().isArray()) {
+				return false;
+			}
+			MetaClass metaClass = MetaClass.forClass(value.getClass(), configuration.getReflectorFactory());
+			return metaClass.hasGetter(prop.getChildren()) && metaClass.getGetterType(prop.getChildren()) == propertyType;
+		}
+
     /**
      * 根据内容构建一个 ParameterMapping 对象
      *
@@ -111,7 +157,8 @@ public class SqlSourceBuilder extends BaseBuilder {
 			// <2> 获得属性的名字和类型
 			String property = propertiesMap.get("property"); // 名字
 			Class<?> propertyType; // 类型
-			if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
+			boolean additionalProperty = metaParameters.hasGetter(property);
+			if (additionalProperty) { // issue #448 get type from additional params
 				propertyType = metaParameters.getGetterType(property);
 			} else if (typeHandlerRegistry.hasTypeHandler(parameterType)) { // 有对应的类型处理器，例如java.lang.string
 				propertyType = parameterType;
@@ -128,6 +175,9 @@ public class SqlSourceBuilder extends BaseBuilder {
 					propertyType = Object.class;
 				}
 			}
+			if (reusable && property != null && !isDeterminedByClass(property, additionalProperty, propertyType)) {
+				reusable = false;
+			}
 			// <3> 创建 ParameterMapping.Builder 构建者对象
 			ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, propertyType);
 			// <3.1> 初始化 ParameterMapping.Builder 对象的属性
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -210,11 +211,14 @@ public class MapperAnnotationBuilder {
 			Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
 			// 多久清空缓存，0表示不清空
 			Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+			// 缓存字节数上限，0表示不限制
+			Long maxBytes = cacheDomain.maxBytes() == 0 ? null : cacheDomain.maxBytes();
 			// 获取缓存配置
 			Properties props = convertToProperties(cacheDomain.properties());
 			// 创建一个缓存
-			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size,
-					cacheDomain.readWrite(), cacheDomain.blocking(), props);
+			assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, maxBytes,
+					cacheDomain.weigher(), cacheDomain.serializer(), cacheDomain.readWrite(), cacheDomain.blocking(),
+					cacheDomain.refreshAhead(), props);
 		}
 	}
 
@@ -395,7 +399,13 @@ public class MapperAnnotationBuilder {
 					// DatabaseID
 					null, languageDriver,
 					// ResultSets
-					options != null ? nullOrEmpty(options.resultSets()) : null);
+					options != null ? nullOrEmpty(options.resultSets()) : null,
+					// CacheTags
+					options != null ? nullOrEmpty(options.cacheTags()) : null,
+					// ChunkSize
+					options != null && options.chunkSize() > 0 ? options.chunkSize() : null,
+					// ParallelResultMapping
+					options != null && options.parallelResultMapping() ? Boolean.TRUE : null);
 		}
 	}
 
@@ -443,7 +453,7 @@ public class MapperAnnotationBuilder {
 		} else if (resolvedReturnType instanceof ParameterizedType) {
 			ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
 			Class<?> rawType = (Class<?>) parameterizedType.getRawType();
-			if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+			if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType) || Stream.class.isAssignableFrom(rawType)) {
 				Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
 				if (actualTypeArguments != null && actualTypeArguments.length == 1) {
 					Type returnTypeParameter = actualTypeArguments[0];
@@ -571,7 +581,7 @@ public class MapperAnnotationBuilder {
 					nullOrEmpty(result.column()), result.javaType() == void.class ? null : result.javaType(),
 					result.jdbcType() == JdbcType.UNDEFINED ? null : result.jdbcType(),
 					hasNestedSelect(result) ? nestedSelectId(result) : null, null, null, null, typeHandler, flags, null,
-					null, isLazy(result));
+					foreignColumn(result), isLazy(result), isBatch(result));
 			resultMappings.add(resultMapping);
 		}
 	}
@@ -590,13 +600,33 @@ public class MapperAnnotationBuilder {
 	private boolean isLazy(Result result) {
 		boolean isLazy = configuration.isLazyLoadingEnabled();
 		if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType()) {
-			isLazy = result.one().fetchType() == FetchType.LAZY;
+			isLazy = isLazy(result.one().fetchType());
 		} else if (result.many().select().length() > 0 && FetchType.DEFAULT != result.many().fetchType()) {
-			isLazy = result.many().fetchType() == FetchType.LAZY;
+			isLazy = isLazy(result.many().fetchType());
 		}
 		return isLazy;
 	}
 
+	private boolean isLazy(FetchType fetchType) {
+		return fetchType == FetchType.LAZY || fetchType == FetchType.LAZY_BATCH;
+	}
+
+	private boolean isBatch(Result result) {
+		if (result.one().select().length() > 0) {
+			return isBatch(result.one().fetchType());
+		}
+		return result.many().select().length() > 0 && isBatch(result.many().fetchType());
+	}
+
+	private boolean isBatch(FetchType fetchType) {
+		return fetchType == FetchType.BATCH || fetchType == FetchType.LAZY_BATCH;
+	}
+
+	private String foreignColumn(Result result) {
+		return isBatch(result) ? nullOrEmpty(
+				result.one().select().length() > 0 ? result.one().foreignColumn() : result.many().foreignColumn()) : null;
+	}
+
 	private boolean hasNestedSelect(Result result) {
 		if (result.one().select().length() > 0 && result.many().select().length() > 0) {
 			throw new BuilderException("Cannot use both @One and @Many annotations in the same @Result");
@@ -25,6 +25,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -315,6 +316,20 @@ public class XMLConfigBuilder extends BaseBuilder {
 		configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
 		configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
 		configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+		configuration.setBatchFetchSize(integerValueOf(props.getProperty("batchFetchSize"), 100));
+		configuration.setPipelinedCursorEnabled(booleanValueOf(props.getProperty("pipelinedCursorEnabled"), false));
+		configuration.setPipelinedCursorMaxThreads(integerValueOf(props.getProperty("pipelinedCursorMaxThreads"), Runtime.getRuntime().availableProcessors()));
+		configuration.setParallelResultMappingEnabled(booleanValueOf(props.getProperty("parallelResultMappingEnabled"), false));
+		configuration.setParallelResultMappingChunkSize(integerValueOf(props.getProperty("parallelResultMappingChunkSize"), 1000));
+		configuration.setParallelResultMappingMaxThreads(integerValueOf(props.getProperty("parallelResultMappingMaxThreads"), Runtime.getRuntime().availableProcessors()));
+		configuration.setStatementMetricsCollector((StatementMetricsCollector) createInstance(props.getProperty("statementMetricsCollector")));
+		configuration.setSlowStatementThresholdMillis(longValueOf(props.getProperty("slowStatementThresholdMillis"), 0L));
+		configuration.setMaxRowsWarnThreshold(integerValueOf(props.getProperty("maxRowsWarnThreshold"), 0));
+		configuration.setMaxRowsHardLimit(integerValueOf(props.getProperty("maxRowsHardLimit"), 0));
+		configuration.setSqlShapeCacheSize(integerValueOf(props.getProperty("sqlShapeCacheSize"), 64));
+		configuration.setDynamicSqlCompilationEnabled(booleanValueOf(props.getProperty("dynamicSqlCompilationEnabled"), false));
+		configuration.setSimpleExpressionEvaluationEnabled(booleanValueOf(props.getProperty("simpleExpressionEvaluationEnabled"), false));
+		configuration.setMaxParametersPerStatement(integerValueOf(props.getProperty("maxParametersPerStatement"), 0));
 		configuration.setDefaultResultSetType(resolveResultSetType(props.getProperty("defaultResultSetType")));
 		configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
 		configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
@@ -33,6 +33,8 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheWeigher;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -260,18 +262,26 @@ public class XMLMapperBuilder extends BaseBuilder {
 			// <1> 获得负责存储的 Cache 实现类
 			String type = context.getStringAttribute("type", "PERPETUAL");
 			Class<? extends Cache> typeClass = typeAliasRegistry.resolveAlias(type);
-			// <2> 获得负责过期的 Cache 实现类
-			String eviction = context.getStringAttribute("eviction", "LRU");
+			// <2> 获得负责过期的 Cache 实现类，设置了 maxBytes 时默认按字节数淘汰
+			Long maxBytes = context.getLongAttribute("maxBytes");
+			String eviction = context.getStringAttribute("eviction", maxBytes != null ? "WEIGHTED" : "LRU");
 			Class<? extends Cache> evictionClass = typeAliasRegistry.resolveAlias(eviction);
-			// <3> 获得 flushInterval、size、readWrite、blocking 属性
+			// <3> 获得 flushInterval、size、weigher、serializer、readWrite、blocking、refreshAhead 属性
 			Long flushInterval = context.getLongAttribute("flushInterval");
 			Integer size = context.getIntAttribute("size");
+			String weigher = context.getStringAttribute("weigher");
+			Class<? extends CacheWeigher> weigherClass = weigher == null ? null : typeAliasRegistry.resolveAlias(weigher);
+			String serializer = context.getStringAttribute("serializer");
+			Class<? extends CacheSerializer> serializerClass = serializer == null ? null
+					: typeAliasRegistry.resolveAlias(serializer);
 			boolean readWrite = !context.getBooleanAttribute("readOnly", false);
 			boolean blocking = context.getBooleanAttribute("blocking", false);
+			boolean refreshAhead = context.getBooleanAttribute("refreshAhead", false);
 			// <4> 获得 Properties 属性
 			Properties props = context.getChildrenAsProperties();
 			// <5> 创建 Cache 对象
-			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+			builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, maxBytes, weigherClass,
+					serializerClass, readWrite, blocking, refreshAhead, props);
 		}
 	}
 
@@ -478,7 +488,10 @@ public class XMLMapperBuilder extends BaseBuilder {
 		String typeHandler = context.getStringAttribute("typeHandler");
 		String resultSet = context.getStringAttribute("resultSet");
 		String foreignColumn = context.getStringAttribute("foreignColumn");
-		boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+		String fetchType = context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager");
+		boolean lazy = "lazy".equals(fetchType) || "lazyBatch".equals(fetchType);
+		// 批量加载，foreignColumn 为嵌套子查询结果中对应 column 的列
+		boolean batch = "batch".equals(fetchType) || "lazyBatch".equals(fetchType);
 		// javaType 属性
 		Class<?> javaTypeClass = resolveClass(javaType);
 		// typeHandler 属性
@@ -488,7 +501,7 @@ public class XMLMapperBuilder extends BaseBuilder {
 		// 通过上面的属性构建一个 ResultMapping 对象
 		return builderAssistant.buildResultMapping(resultType, property, column, javaTypeClass, jdbcTypeEnum,
 				nestedSelect, nestedResultMap, notNullColumn, columnPrefix, typeHandlerClass, flags, resultSet,
-				foreignColumn, lazy);
+				foreignColumn, lazy, batch);
 	}
 
 	private String processNestedResultMappings(XNode context, List<ResultMapping> resultMappings,
@@ -144,10 +144,17 @@ public class XMLStatementBuilder extends BaseBuilder {
     // 对应的 column 列名，结合 useGeneratedKeys 使用
 		String keyColumn = context.getStringAttribute("keyColumn");
 		String resultSets = context.getStringAttribute("resultSets");
+		// 缓存标签，写语句只失效带有这些标签的缓存
+		String cacheTags = context.getStringAttribute("cacheTags");
+		// 集合参数每批执行的最大元素个数
+		Integer chunkSize = context.getIntAttribute("chunkSize");
+		// 是否并行映射结果行，未设置时使用 parallelResultMappingEnabled
+		Boolean parallelResultMapping = context.getBooleanAttribute("parallelResultMapping");
 
 		builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
 				parameterMap, parameterTypeClass, resultMap, resultTypeClass, resultSetTypeEnum, flushCache, useCache,
-				resultOrdered, keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+				resultOrdered, keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, cacheTags,
+				chunkSize, parallelResultMapping);
 	}
 
 	private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
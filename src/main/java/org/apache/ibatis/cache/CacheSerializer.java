@@ -0,0 +1,47 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * SPI that turns cached values into bytes and back.
+ * <p>
+ * Used by {@link org.apache.ibatis.cache.decorators.SerializedCache} on read/write caches and by caches that store
+ * their entries outside of the heap. Implementations must be thread safe and have a no-argument constructor.
+ *
+ * @see JavaCacheSerializer
+ * @see CompactCacheSerializer
+ */
+public interface CacheSerializer {
+
+	/**
+	 * 序列化
+	 *
+	 * @param value The value to serialize, may be null
+	 * @return The serialized value
+	 * @throws CacheException if the value cannot be serialized
+	 */
+	byte[] serialize(Object value);
+
+	/**
+	 * 反序列化
+	 *
+	 * @param bytes Bytes produced by {@link #serialize(Object)}
+	 * @return A copy of the serialized value
+	 * @throws CacheException if the bytes cannot be deserialized
+	 */
+	Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,192 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Statistics of a second-level cache.
+ * <p>
+ * {@link org.apache.ibatis.mapping.CacheBuilder} shares one instance between the decorators of a cache: the
+ * {@link org.apache.ibatis.cache.decorators.LoggingCache} counts the reads and puts, the eviction decorators and the
+ * self-evicting caches count their evictions through a {@code setStats} property, and the
+ * {@link org.apache.ibatis.executor.CachingExecutor} counts the loads and the commit-time flushes. The statistics of
+ * all the caches are available from {@link org.apache.ibatis.session.Configuration#getCacheStats()} and can be
+ * exposed with JMX by {@link CacheStatsMBeans}.
+ *
+ * @since 3.5.3
+ */
+public class CacheStats implements CacheStatsMXBean {
+
+	private static final LongSupplier UNKNOWN = () -> -1;
+
+	/**
+	 * Cache 的编号
+	 */
+	private final String id;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	/**
+	 * 加载的总耗时，单位：纳秒
+	 */
+	private final LongAdder loadTime = new LongAdder();
+	private final LongAdder commitFlushes = new LongAdder();
+	private final LongAdder commitFlushedEntries = new LongAdder();
+	/**
+	 * 获取缓存项数量的方法
+	 */
+	private volatile LongSupplier entryCount = UNKNOWN;
+	/**
+	 * 获取缓存项估算字节数的方法
+	 */
+	private volatile LongSupplier estimatedBytes = UNKNOWN;
+
+	public CacheStats(String id) {
+		this.id = id;
+	}
+
+	public void recordHit() {
+		hits.increment();
+	}
+
+	public void recordMiss() {
+		misses.increment();
+	}
+
+	public void recordPut() {
+		puts.increment();
+	}
+
+	public void recordEviction() {
+		evictions.increment();
+	}
+
+	/**
+	 * @param nanos the time spent loading the missing entry
+	 */
+	public void recordLoad(long nanos) {
+		loads.increment();
+		loadTime.add(nanos);
+	}
+
+	/**
+	 * @param entries the number of entries added to the cache by the commit
+	 */
+	public void recordCommitFlush(int entries) {
+		commitFlushes.increment();
+		commitFlushedEntries.add(entries);
+	}
+
+	public void setEntryCount(LongSupplier entryCount) {
+		this.entryCount = entryCount;
+	}
+
+	public void setEstimatedBytes(LongSupplier estimatedBytes) {
+		this.estimatedBytes = estimatedBytes;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long hitCount = hits.sum();
+		long requests = hitCount + misses.sum();
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public long getPuts() {
+		return puts.sum();
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public long getLoads() {
+		return loads.sum();
+	}
+
+	@Override
+	public long getTotalLoadTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(loadTime.sum());
+	}
+
+	@Override
+	public double getAverageLoadTimeMillis() {
+		long count = loads.sum();
+		return count == 0 ? 0 : loadTime.sum() / (count * 1000000.0);
+	}
+
+	@Override
+	public long getCommitFlushes() {
+		return commitFlushes.sum();
+	}
+
+	@Override
+	public long getCommitFlushedEntries() {
+		return commitFlushedEntries.sum();
+	}
+
+	@Override
+	public long getEntryCount() {
+		return entryCount.getAsLong();
+	}
+
+	@Override
+	public long getEstimatedBytes() {
+		return estimatedBytes.getAsLong();
+	}
+
+	@Override
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		puts.reset();
+		evictions.reset();
+		loads.reset();
+		loadTime.reset();
+		commitFlushes.reset();
+		commitFlushedEntries.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [id=" + id + ", hits=" + getHits() + ", misses=" + getMisses() + ", puts=" + getPuts()
+				+ ", evictions=" + getEvictions() + ", loads=" + getLoads() + ", commitFlushes=" + getCommitFlushes() + "]";
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Registers the statistics of the second-level caches of a {@link Configuration} as MBeans named
+ * {@code org.apache.ibatis:type=Cache,name="<cache id>"}.
+ * <p>
+ * MyBatis does not register them by itself, e.g. {@code CacheStatsMBeans.register(configuration,
+ * ManagementFactory.getPlatformMBeanServer())} once the mappers are loaded.
+ *
+ * @since 3.5.3
+ */
+public final class CacheStatsMBeans {
+
+	private static final String DOMAIN = "org.apache.ibatis";
+
+	private CacheStatsMBeans() {
+		// Prevent Instantiation
+	}
+
+	/**
+	 * Registers the statistics of every cache, replacing the MBeans already registered with the same cache id.
+	 *
+	 * @param configuration the configuration
+	 * @param server        the MBean server
+	 */
+	public static void register(Configuration configuration, MBeanServer server) {
+		for (CacheStats stats : configuration.getCacheStats()) {
+			try {
+				ObjectName name = objectName(stats.getId());
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+				server.registerMBean(stats, name);
+			} catch (JMException e) {
+				throw new CacheException("Error registering the MBean of cache " + stats.getId() + ". Cause: " + e, e);
+			}
+		}
+	}
+
+	/**
+	 * @param configuration the configuration
+	 * @param server        the MBean server
+	 */
+	public static void unregister(Configuration configuration, MBeanServer server) {
+		for (CacheStats stats : configuration.getCacheStats()) {
+			try {
+				ObjectName name = objectName(stats.getId());
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (JMException e) {
+				throw new CacheException("Error unregistering the MBean of cache " + stats.getId() + ". Cause: " + e, e);
+			}
+		}
+	}
+
+	public static ObjectName objectName(String cacheId) throws JMException {
+		return new ObjectName(DOMAIN + ":type=Cache,name=" + ObjectName.quote(cacheId));
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Management interface of the statistics of a second-level cache.
+ *
+ * @see CacheStats
+ * @see CacheStatsMBeans
+ * @since 3.5.3
+ */
+public interface CacheStatsMXBean {
+
+	String getId();
+
+	long getHits();
+
+	long getMisses();
+
+	/**
+	 * @return the ratio of the reads that were hits, or 0 if the cache was never read
+	 */
+	double getHitRatio();
+
+	long getPuts();
+
+	/**
+	 * @return the number of entries evicted to keep the cache within its bounds or reclaimed by the garbage collector
+	 */
+	long getEvictions();
+
+	/**
+	 * @return the number of times a missing entry was loaded from the database
+	 */
+	long getLoads();
+
+	long getTotalLoadTimeMillis();
+
+	double getAverageLoadTimeMillis();
+
+	/**
+	 * @return the number of transaction commits that added entries to the cache
+	 */
+	long getCommitFlushes();
+
+	/**
+	 * @return the number of entries added to the cache on transaction commits
+	 */
+	long getCommitFlushedEntries();
+
+	/**
+	 * @return the number of entries, or -1 if unknown
+	 */
+	long getEntryCount();
+
+	/**
+	 * @return the estimated size in bytes of the entries, or -1 if the cache is not bounded by bytes
+	 */
+	long getEstimatedBytes();
+
+	void reset();
+
+}
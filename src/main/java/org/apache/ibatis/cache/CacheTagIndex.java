@@ -0,0 +1,119 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of the keys of one second-level cache by tag, used to evict only the entries a write statement affects.
+ * <p>
+ * Keys evicted by the cache itself stay in the index until one of their tags is invalidated. To bound its memory, the
+ * index stops tracking keys once it holds {@code maxSize} of them and reports itself as overflowed; the caller must
+ * then clear the whole cache, which also resets the index.
+ *
+ * @see org.apache.ibatis.mapping.MappedStatement#getCacheTags()
+ */
+public class CacheTagIndex {
+
+	private static final int DEFAULT_MAX_SIZE = 100000;
+
+	/**
+	 * 标签到键的映射
+	 */
+	private final ConcurrentMap<String, Set<Object>> keysByTag = new ConcurrentHashMap<>();
+	/**
+	 * 所有标签下的键的总数
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+	private final int maxSize;
+	/**
+	 * 是否超出上限，此时不再记录，失效时需要清空整个缓存
+	 */
+	private volatile boolean overflowed;
+
+	public CacheTagIndex() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public CacheTagIndex(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public void tag(Object key, Collection<String> tags) {
+		for (String tag : tags) {
+			if (overflowed) {
+				return;
+			}
+			if (keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key)
+					&& size.incrementAndGet() > maxSize) {
+				overflowed = true;
+				keysByTag.clear();
+			}
+		}
+	}
+
+	/**
+	 * @param key  the key
+	 * @param tags the tags
+	 * @return true if the key has, or may have once overflowed, at least one of the tags
+	 */
+	public boolean isTagged(Object key, Collection<String> tags) {
+		if (overflowed) {
+			return true;
+		}
+		for (String tag : tags) {
+			Set<Object> keys = keysByTag.get(tag);
+			if (keys != null && keys.contains(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the tags from the index.
+	 *
+	 * @param tags the tags
+	 * @return the keys that had at least one of the tags
+	 */
+	public Set<Object> removeTagged(Collection<String> tags) {
+		Set<Object> result = new HashSet<>();
+		for (String tag : tags) {
+			Set<Object> keys = keysByTag.remove(tag);
+			if (keys != null) {
+				size.addAndGet(-keys.size());
+				result.addAll(keys);
+			}
+		}
+		return result;
+	}
+
+	public boolean isOverflowed() {
+		return overflowed;
+	}
+
+	public void clear() {
+		keysByTag.clear();
+		size.set(0);
+		overflowed = false;
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * SPI that estimates how many bytes a cache entry uses.
+ * <p>
+ * Used by {@link org.apache.ibatis.cache.decorators.WeightedCache} to keep a namespace within its {@code maxBytes}
+ * budget. Implementations must have a no-argument constructor.
+ *
+ * @see DefaultCacheWeigher
+ */
+public interface CacheWeigher {
+
+	/**
+	 * 估算缓存项占用的字节数
+	 *
+	 * @param key   Can be any object but usually it is a {@link CacheKey}
+	 * @param value The value stored in the cache. It is a {@code byte[]} when the cache is read/write.
+	 * @return The estimated size in bytes, never negative
+	 */
+	long weigh(Object key, Object value);
+
+}
@@ -0,0 +1,501 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * A {@link CacheSerializer} that writes a compact binary form.
+ * <p>
+ * Strings, numbers, dates, enums and the common {@code java.util} collections and maps are written with a one byte
+ * tag. Beans are written as the values of their properties, in a fixed order taken from their {@link Reflector}, after
+ * the class name, which is written once per value. A class is handled as a bean when it has a default constructor
+ * and every non static, non transient field has a getter and a setter, and it does not customize its Java
+ * serialization. Anything else, like the lazy loading proxies, is written with Java serialization and must then be
+ * {@link java.io.Serializable}.
+ * <p>
+ * Shared and circular references between beans and collections are preserved. The access order of a
+ * {@link LinkedHashMap} is not.
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_REFERENCE = 1;
+	private static final byte TAG_STRING = 2;
+	private static final byte TAG_INTEGER = 3;
+	private static final byte TAG_LONG = 4;
+	private static final byte TAG_SHORT = 5;
+	private static final byte TAG_BYTE = 6;
+	private static final byte TAG_DOUBLE = 7;
+	private static final byte TAG_FLOAT = 8;
+	private static final byte TAG_BOOLEAN = 9;
+	private static final byte TAG_CHARACTER = 10;
+	private static final byte TAG_BIG_DECIMAL = 11;
+	private static final byte TAG_BIG_INTEGER = 12;
+	private static final byte TAG_DATE = 13;
+	private static final byte TAG_SQL_DATE = 14;
+	private static final byte TAG_SQL_TIME = 15;
+	private static final byte TAG_SQL_TIMESTAMP = 16;
+	private static final byte TAG_BYTES = 17;
+	private static final byte TAG_ENUM = 18;
+	private static final byte TAG_COLLECTION = 19;
+	private static final byte TAG_MAP = 20;
+	private static final byte TAG_BEAN = 21;
+	private static final byte TAG_JAVA = 22;
+
+	/**
+	 * 按属性写入的集合类型，其它集合使用 Java 序列化
+	 */
+	private static final List<Class<?>> COLLECTION_TYPES = Arrays.asList(ArrayList.class, LinkedList.class,
+			HashSet.class, LinkedHashSet.class, TreeSet.class, HashMap.class, LinkedHashMap.class, TreeMap.class);
+
+	private static final BeanInfo NOT_A_BEAN = new BeanInfo(null, new String[0]);
+
+	private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+	private final JavaCacheSerializer javaSerializer = new JavaCacheSerializer();
+	/**
+	 * 类型对应的属性信息，不能按属性写入的类型对应 NOT_A_BEAN
+	 */
+	private final ConcurrentMap<Class<?>, BeanInfo> beanInfos = new ConcurrentHashMap<>();
+
+	@Override
+	public byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			new Writer(new DataOutputStream(bos)).writeValue(value);
+			return bos.toByteArray();
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error serializing object.  Cause: " + e, e);
+		}
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) {
+		try {
+			return new Reader(new DataInputStream(new ByteArrayInputStream(bytes))).readValue();
+		} catch (CacheException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new CacheException("Error deserializing object.  Cause: " + e, e);
+		}
+	}
+
+	private BeanInfo getBeanInfo(Class<?> type) {
+		return beanInfos.computeIfAbsent(type, this::inspect);
+	}
+
+	private BeanInfo inspect(Class<?> type) {
+		if (type.isArray() || type.isInterface() || type.isEnum() || Modifier.isAbstract(type.getModifiers())
+				|| type.getName().startsWith("java.") || Proxy.isProxyClass(type)
+				|| Externalizable.class.isAssignableFrom(type)) {
+			return NOT_A_BEAN;
+		}
+		Reflector reflector = reflectorFactory.findForClass(type);
+		if (!reflector.hasDefaultConstructor()) {
+			return NOT_A_BEAN;
+		}
+		List<String> properties = new ArrayList<>();
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+			if (customizesSerialization(current)) {
+				return NOT_A_BEAN;
+			}
+			for (Field field : current.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+					continue;
+				}
+				// 每个字段都要能通过属性读写，否则会丢失状态
+				String name = field.getName();
+				if (properties.contains(name) || !reflector.hasGetter(name) || !reflector.hasSetter(name)) {
+					return NOT_A_BEAN;
+				}
+				properties.add(name);
+			}
+		}
+		Collections.sort(properties);
+		return new BeanInfo(reflector, properties.toArray(new String[0]));
+	}
+
+	private static boolean customizesSerialization(Class<?> type) {
+		for (Method method : type.getDeclaredMethods()) {
+			String name = method.getName();
+			if ("writeReplace".equals(name) || "readResolve".equals(name) || "writeObject".equals(name)
+					|| "readObject".equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isPlainCollection(Object value) {
+		if (!COLLECTION_TYPES.contains(value.getClass())) {
+			return false;
+		}
+		if (value instanceof SortedSet) {
+			return ((SortedSet<?>) value).comparator() == null;
+		}
+		if (value instanceof SortedMap) {
+			return ((SortedMap<?, ?>) value).comparator() == null;
+		}
+		return true;
+	}
+
+	private static final class BeanInfo {
+
+		private final String[] properties;
+		private final Invoker[] getters;
+		private final Invoker[] setters;
+		private final Reflector reflector;
+
+		BeanInfo(Reflector reflector, String[] properties) {
+			this.reflector = reflector;
+			this.properties = properties;
+			this.getters = new Invoker[properties.length];
+			this.setters = new Invoker[properties.length];
+			for (int i = 0; i < properties.length; i++) {
+				getters[i] = reflector.getGetInvoker(properties[i]);
+				setters[i] = reflector.getSetInvoker(properties[i]);
+			}
+		}
+
+	}
+
+	private final class Writer {
+
+		private final DataOutputStream out;
+		/**
+		 * 已写入的 Bean 和集合，用于处理共享和循环引用
+		 */
+		private final Map<Object, Integer> handles = new IdentityHashMap<>();
+		/**
+		 * 已写入的类名
+		 */
+		private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+		Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeValue(Object value) throws Exception {
+			if (value == null) {
+				out.writeByte(TAG_NULL);
+				return;
+			}
+			Class<?> type = value.getClass();
+			if (type == String.class) {
+				out.writeByte(TAG_STRING);
+				writeString((String) value);
+			} else if (type == Integer.class) {
+				out.writeByte(TAG_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (type == Long.class) {
+				out.writeByte(TAG_LONG);
+				out.writeLong((Long) value);
+			} else if (type == Short.class) {
+				out.writeByte(TAG_SHORT);
+				out.writeShort((Short) value);
+			} else if (type == Byte.class) {
+				out.writeByte(TAG_BYTE);
+				out.writeByte((Byte) value);
+			} else if (type == Double.class) {
+				out.writeByte(TAG_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (type == Float.class) {
+				out.writeByte(TAG_FLOAT);
+				out.writeFloat((Float) value);
+			} else if (type == Boolean.class) {
+				out.writeByte(TAG_BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (type == Character.class) {
+				out.writeByte(TAG_CHARACTER);
+				out.writeChar((Character) value);
+			} else if (type == BigDecimal.class) {
+				BigDecimal decimal = (BigDecimal) value;
+				out.writeByte(TAG_BIG_DECIMAL);
+				writeVarInt(decimal.scale());
+				writeBytes(decimal.unscaledValue().toByteArray());
+			} else if (type == BigInteger.class) {
+				out.writeByte(TAG_BIG_INTEGER);
+				writeBytes(((BigInteger) value).toByteArray());
+			} else if (type == Date.class) {
+				out.writeByte(TAG_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else if (type == java.sql.Date.class) {
+				out.writeByte(TAG_SQL_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else if (type == java.sql.Time.class) {
+				out.writeByte(TAG_SQL_TIME);
+				out.writeLong(((Date) value).getTime());
+			} else if (type == java.sql.Timestamp.class) {
+				java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+				out.writeByte(TAG_SQL_TIMESTAMP);
+				out.writeLong(timestamp.getTime());
+				out.writeInt(timestamp.getNanos());
+			} else if (type == byte[].class) {
+				out.writeByte(TAG_BYTES);
+				writeBytes((byte[]) value);
+			} else if (value instanceof Enum) {
+				out.writeByte(TAG_ENUM);
+				writeClass(((Enum<?>) value).getDeclaringClass());
+				writeString(((Enum<?>) value).name());
+			} else if (writeReference(value)) {
+				return;
+			} else if (value instanceof Collection && isPlainCollection(value)) {
+				Collection<?> collection = (Collection<?>) value;
+				out.writeByte(TAG_COLLECTION);
+				writeClass(type);
+				writeVarInt(collection.size());
+				for (Object element : collection) {
+					writeValue(element);
+				}
+			} else if (value instanceof Map && isPlainCollection(value)) {
+				Map<?, ?> map = (Map<?, ?>) value;
+				out.writeByte(TAG_MAP);
+				writeClass(type);
+				writeVarInt(map.size());
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					writeValue(entry.getKey());
+					writeValue(entry.getValue());
+				}
+			} else {
+				BeanInfo beanInfo = getBeanInfo(type);
+				if (beanInfo == NOT_A_BEAN) {
+					// 其它类型使用 Java 序列化，也不参与引用的处理
+					handles.remove(value);
+					out.writeByte(TAG_JAVA);
+					writeBytes(javaSerializer.serialize(value));
+					return;
+				}
+				out.writeByte(TAG_BEAN);
+				writeClass(type);
+				for (Invoker getter : beanInfo.getters) {
+					writeValue(getter.invoke(value, null));
+				}
+			}
+		}
+
+		/**
+		 * 已经写入过的对象只写入编号，否则为其分配编号
+		 */
+		private boolean writeReference(Object value) throws IOException {
+			Integer handle = handles.get(value);
+			if (handle != null) {
+				out.writeByte(TAG_REFERENCE);
+				writeVarInt(handle);
+				return true;
+			}
+			handles.put(value, handles.size());
+			return false;
+		}
+
+		private void writeClass(Class<?> type) throws IOException {
+			Integer index = classes.get(type);
+			if (index != null) {
+				writeVarInt(index + 1);
+			} else {
+				classes.put(type, classes.size());
+				writeVarInt(0);
+				writeString(type.getName());
+			}
+		}
+
+		private void writeString(String value) throws IOException {
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void writeBytes(byte[] value) throws IOException {
+			writeVarInt(value.length);
+			out.write(value);
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+
+	}
+
+	private final class Reader {
+
+		private final DataInputStream in;
+		private final List<Object> handles = new ArrayList<>();
+		private final List<Class<?>> classes = new ArrayList<>();
+
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Object readValue() throws Exception {
+			byte tag = in.readByte();
+			switch (tag) {
+				case TAG_NULL:
+					return null;
+				case TAG_REFERENCE:
+					return handles.get(readVarInt());
+				case TAG_STRING:
+					return readString();
+				case TAG_INTEGER:
+					return in.readInt();
+				case TAG_LONG:
+					return in.readLong();
+				case TAG_SHORT:
+					return in.readShort();
+				case TAG_BYTE:
+					return in.readByte();
+				case TAG_DOUBLE:
+					return in.readDouble();
+				case TAG_FLOAT:
+					return in.readFloat();
+				case TAG_BOOLEAN:
+					return in.readBoolean();
+				case TAG_CHARACTER:
+					return in.readChar();
+				case TAG_BIG_DECIMAL:
+					int scale = readVarInt();
+					return new BigDecimal(new BigInteger(readBytes()), scale);
+				case TAG_BIG_INTEGER:
+					return new BigInteger(readBytes());
+				case TAG_DATE:
+					return new Date(in.readLong());
+				case TAG_SQL_DATE:
+					return new java.sql.Date(in.readLong());
+				case TAG_SQL_TIME:
+					return new java.sql.Time(in.readLong());
+				case TAG_SQL_TIMESTAMP:
+					java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+					timestamp.setNanos(in.readInt());
+					return timestamp;
+				case TAG_BYTES:
+					return readBytes();
+				case TAG_ENUM:
+					Class<? extends Enum> enumType = (Class<? extends Enum>) readClass();
+					return Enum.valueOf(enumType, readString());
+				case TAG_COLLECTION: {
+					Collection<Object> collection = (Collection<Object>) newInstance(readClass());
+					handles.add(collection);
+					int size = readVarInt();
+					for (int i = 0; i < size; i++) {
+						collection.add(readValue());
+					}
+					return collection;
+				}
+				case TAG_MAP: {
+					Map<Object, Object> map = (Map<Object, Object>) newInstance(readClass());
+					handles.add(map);
+					int size = readVarInt();
+					for (int i = 0; i < size; i++) {
+						Object key = readValue();
+						map.put(key, readValue());
+					}
+					return map;
+				}
+				case TAG_BEAN: {
+					BeanInfo beanInfo = getBeanInfo(readClass());
+					Object bean = beanInfo.reflector.getDefaultConstructor().newInstance();
+					handles.add(bean);
+					for (Invoker setter : beanInfo.setters) {
+						setter.invoke(bean, new Object[] { readValue() });
+					}
+					return bean;
+				}
+				case TAG_JAVA:
+					return javaSerializer.deserialize(readBytes());
+				default:
+					throw new CacheException("Error deserializing object.  Cause: unknown tag " + tag);
+			}
+		}
+
+		private Object newInstance(Class<?> type) throws Exception {
+			return type.getDeclaredConstructor().newInstance();
+		}
+
+		private Class<?> readClass() throws Exception {
+			int index = readVarInt();
+			if (index > 0) {
+				return classes.get(index - 1);
+			}
+			Class<?> type = Resources.classForName(readString());
+			classes.add(type);
+			return type;
+		}
+
+		private String readString() throws IOException {
+			return new String(readBytes(), StandardCharsets.UTF_8);
+		}
+
+		private byte[] readBytes() throws IOException {
+			byte[] value = new byte[readVarInt()];
+			in.readFully(value);
+			return value;
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = in.readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The default {@link CacheWeigher}.
+ * <p>
+ * On a read/write cache {@link org.apache.ibatis.cache.decorators.SerializedCache} wraps the eviction decorator, so the
+ * values reaching the weigher are the serialized {@code byte[]} and their length is used as is. Otherwise collections
+ * and maps, the usual results of a select, are weighed by their number of elements.
+ */
+public class DefaultCacheWeigher implements CacheWeigher {
+
+	/**
+	 * 每个缓存项的固定开销，包括键和容器中的节点
+	 */
+	protected static final long ENTRY_OVERHEAD = 64;
+	/**
+	 * 集合中每个元素的估算大小
+	 */
+	protected static final long ELEMENT_WEIGHT = 128;
+
+	@Override
+	public long weigh(Object key, Object value) {
+		if (value instanceof byte[]) {
+			return ENTRY_OVERHEAD + ((byte[]) value).length;
+		}
+		if (value instanceof Collection) {
+			return ENTRY_OVERHEAD + ((Collection<?>) value).size() * ELEMENT_WEIGHT;
+		}
+		if (value instanceof Map) {
+			return ENTRY_OVERHEAD + ((Map<?, ?>) value).size() * ELEMENT_WEIGHT;
+		}
+		return ENTRY_OVERHEAD + ELEMENT_WEIGHT;
+	}
+
+}
@@ -15,10 +15,12 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.session.Configuration;
 
 /**
  * @author Clinton Begin
@@ -29,6 +31,22 @@ public class TransactionalCacheManager {
 	 * Cache 和 TransactionalCache 的映射
 	 */
 	private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+	/**
+	 * 用于获取 Cache 的统计信息，可以为 null
+	 */
+	private final Configuration configuration;
+
+	public TransactionalCacheManager() {
+		this(null);
+	}
+
+	/**
+	 * @param configuration the configuration holding the statistics of the caches, may be null
+	 * @since 3.5.3
+	 */
+	public TransactionalCacheManager(Configuration configuration) {
+		this.configuration = configuration;
+	}
 
 	public void clear(Cache cache) {
 		getTransactionalCache(cache).clear();
@@ -44,6 +62,20 @@ public class TransactionalCacheManager {
 		getTransactionalCache(cache).putObject(key, value);
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void putObject(Cache cache, CacheKey key, Object value, CacheTagIndex tagIndex, Collection<String> tags) {
+		getTransactionalCache(cache).putObject(key, value, tagIndex, tags);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public void invalidate(Cache cache, CacheTagIndex tagIndex, Collection<String> tags) {
+		getTransactionalCache(cache).invalidate(tagIndex, tags);
+	}
+
 	public void commit() {
 		for (TransactionalCache txCache : transactionalCaches.values()) {
 			txCache.commit();
@@ -57,7 +89,8 @@ public class TransactionalCacheManager {
 	}
 
 	private TransactionalCache getTransactionalCache(Cache cache) {
-		return transactionalCaches.computeIfAbsent(cache, TransactionalCache::new);
+		return transactionalCaches.computeIfAbsent(cache,
+				c -> new TransactionalCache(c, configuration == null ? null : configuration.getCacheStats(c.getId())));
 	}
 
 }
@@ -16,9 +16,8 @@
 package org.apache.ibatis.cache.decorators;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -30,6 +29,11 @@ import org.apache.ibatis.cache.CacheException;
  * a lock over a cache key when the element is not found in cache. This way,
  * other threads will wait until this element is filled instead of hitting the
  * database.
+ * <p>
+ * The first thread missing a key registers a pending load for it, and the threads missing it meanwhile wait for that
+ * load and get its value directly. The pending load is removed as soon as the value is put, or the load is abandoned
+ * through {@link #removeObject(Object)}, so no state is kept for the keys that are not being loaded. A thread that
+ * waited more than {@code timeout} milliseconds gets a miss and goes to the database itself.
  *
  * @author Eduardo Macarron
  *
@@ -37,7 +41,7 @@ import org.apache.ibatis.cache.CacheException;
 public class BlockingCache implements Cache {
 
 	/**
-     * 阻塞等待超时时间
+     * 阻塞等待超时时间，0 表示一直等待
      */
 	private long timeout;
 	/**
@@ -45,13 +49,13 @@ public class BlockingCache implements Cache {
      */
 	private final Cache delegate;
 	/**
-     * 缓存键与 ReentrantLock 对象的映射
+     * 缓存键与正在进行的加载的映射
      */
-	private final ConcurrentHashMap<Object, ReentrantLock> locks;
+	private final ConcurrentHashMap<Object, PendingLoad> pendingLoads;
 
 	public BlockingCache(Cache delegate) {
 		this.delegate = delegate;
-		this.locks = new ConcurrentHashMap<>();
+		this.pendingLoads = new ConcurrentHashMap<>();
 	}
 
 	@Override
@@ -69,28 +73,45 @@ public class BlockingCache implements Cache {
 		try {
 			delegate.putObject(key, value);
 		} finally {
-			// 释放锁
-			releaseLock(key);
+			// 释放锁，并将值交给等待的线程
+			releaseLock(key, value);
 		}
 	}
 
 	@Override
 	public Object getObject(Object key) {
-		// 获得锁
-		acquireLock(key);
+		// 命中时不加锁
 		Object value = delegate.getObject(key);
 		if (value != null) {
-			// 释放锁
-			releaseLock(key);
+			return value;
+		}
+		PendingLoad load = new PendingLoad();
+		while (true) {
+			PendingLoad current = pendingLoads.putIfAbsent(key, load);
+			if (current == null || current.owner == Thread.currentThread()) {
+				// 获得锁，再次读取，避免错过获得锁之前写入的值
+				value = delegate.getObject(key);
+				if (value != null && current == null) {
+					releaseLock(key, value);
+				}
+				return value;
+			}
+			// 等待其它线程加载，超时则不等待，直接访问数据库
+			if (!current.await(key, timeout)) {
+				return null;
+			}
+			if (current.value != null) {
+				return current.value;
+			}
+			// 其它线程放弃了加载，重新竞争
 		}
-		return value;
 	}
 
 	@Override
 	public Object removeObject(Object key) {
 		// despite of its name, this method is called only to release locks
 		// 释放锁
-		releaseLock(key);
+		releaseLock(key, null);
 		return null;
 	}
 
@@ -99,50 +120,54 @@ public class BlockingCache implements Cache {
 		delegate.clear();
 	}
 
+	private void releaseLock(Object key, Object value) {
+		PendingLoad load = pendingLoads.get(key);
+		// 如果当前线程持有，进行释放
+		if (load != null && load.owner == Thread.currentThread()) {
+			load.value = value;
+			pendingLoads.remove(key, load);
+			load.latch.countDown();
+		}
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
 	/**
-     * 获得 ReentrantLock 对象。如果不存在，进行添加
-     *
-     * @param key 缓存键
-     * @return ReentrantLock 对象
-     */
-	private ReentrantLock getLockForKey(Object key) {
-		return locks.computeIfAbsent(key, k -> new ReentrantLock());
+	 * Sets how long a thread waits for the value another thread is loading before going to the database itself.
+	 * Defaults to 0, waiting without limit.
+	 *
+	 * @param timeout the timeout in milliseconds
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
 	}
 
-	private void acquireLock(Object key) {
-		// 获得 ReentrantLock 对象
-		Lock lock = getLockForKey(key);
-		// 获得锁，直到超时
-		if (timeout > 0) {
+	private static final class PendingLoad {
+
+		/**
+		 * 加载的线程
+		 */
+		private final Thread owner = Thread.currentThread();
+		private final CountDownLatch latch = new CountDownLatch(1);
+		/**
+		 * 加载的值，放弃加载时为 null
+		 */
+		private volatile Object value;
+
+		boolean await(Object key, long timeout) {
 			try {
-				boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-				if (!acquired) {
-					throw new CacheException("Couldn't get a lock in " + timeout + " for the key " + key
-							+ " at the cache " + delegate.getId());
+				if (timeout > 0) {
+					return latch.await(timeout, TimeUnit.MILLISECONDS);
 				}
+				latch.await();
+				return true;
 			} catch (InterruptedException e) {
 				throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
 			}
-		} else {
-			// 释放锁
-			lock.lock();
-		}
-	}
-
-	private void releaseLock(Object key) {
-		// 获得 ReentrantLock 对象
-		ReentrantLock lock = locks.get(key);
-		// 如果当前线程持有，进行释放
-		if (lock.isHeldByCurrentThread()) {
-			lock.unlock();
 		}
-	}
 
-	public long getTimeout() {
-		return timeout;
 	}
 
-	public void setTimeout(long timeout) {
-		this.timeout = timeout;
-	}
 }
@@ -19,6 +19,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * FIFO (first in, first out) cache decorator.
@@ -39,6 +40,10 @@ public class FifoCache implements Cache {
      * 队列上限
      */
 	private int size;
+	/**
+	 * 统计信息，记录淘汰次数
+	 */
+	private CacheStats stats;
 
 	public FifoCache(Cache delegate) {
 		this.delegate = delegate;
@@ -56,6 +61,13 @@ public class FifoCache implements Cache {
 		return delegate.getSize();
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+	}
+
 	public void setSize(int size) {
 		this.size = size;
 	}
@@ -88,6 +100,9 @@ public class FifoCache implements Cache {
 		if (keyList.size() > size) {
 			Object oldestKey = keyList.removeFirst();
 			delegate.removeObject(oldestKey);
+			if (stats != null) {
+				stats.recordEviction();
+			}
 		}
 	}
 
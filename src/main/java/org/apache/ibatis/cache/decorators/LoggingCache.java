@@ -16,6 +16,7 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -40,10 +41,27 @@ public class LoggingCache implements Cache {
      * 统计命中缓存的次数
      */
 	protected int hits = 0;
+	/**
+     * 统计信息
+     */
+	private final CacheStats stats;
 
 	public LoggingCache(Cache delegate) {
+		this(delegate, new CacheStats(delegate.getId()));
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public LoggingCache(Cache delegate, CacheStats stats) {
 		this.delegate = delegate;
 		this.log = LogFactory.getLog(getId());
+		this.stats = stats;
+		stats.setEntryCount(delegate::getSize);
+	}
+
+	public CacheStats getStats() {
+		return stats;
 	}
 
 	@Override
@@ -59,6 +77,10 @@ public class LoggingCache implements Cache {
 	@Override
 	public void putObject(Object key, Object object) {
 		delegate.putObject(key, object);
+		// 值为 null 时只是释放 BlockingCache 的锁，不算写入
+		if (object != null) {
+			stats.recordPut();
+		}
 	}
 
 	@Override
@@ -67,6 +89,9 @@ public class LoggingCache implements Cache {
 		final Object value = delegate.getObject(key);
 		if (value != null) {
 			hits++;
+			stats.recordHit();
+		} else {
+			stats.recordMiss();
 		}
 		if (log.isDebugEnabled()) {
 			log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
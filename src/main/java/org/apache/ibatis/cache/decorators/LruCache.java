@@ -19,6 +19,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * Lru (least recently used) cache decorator.
@@ -39,6 +40,10 @@ public class LruCache implements Cache {
      * 最老的键，即要被淘汰的
      */
 	private Object eldestKey;
+	/**
+	 * 统计信息，记录淘汰次数
+	 */
+	private CacheStats stats;
 
 	public LruCache(Cache delegate) {
 		this.delegate = delegate;
@@ -55,6 +60,13 @@ public class LruCache implements Cache {
 		return delegate.getSize();
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+	}
+
 	public void setSize(final int size) {
 		// LinkedHashMap的一个构造函数，当参数accessOrder为true时，即会按照访问顺序排序，最近访问的放在最前，最早访问的放在后面
 		keyMap = new LinkedHashMap<Object, Object>(size, .75F, true) {
@@ -103,6 +115,9 @@ public class LruCache implements Cache {
 		if (eldestKey != null) {
 			delegate.removeObject(eldestKey);
 			eldestKey = null;
+			if (stats != null) {
+				stats.recordEviction();
+			}
 		}
 	}
 
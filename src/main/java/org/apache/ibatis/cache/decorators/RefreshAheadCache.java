@@ -0,0 +1,240 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Expires each entry on its own after {@code timeToLive} and reloads the entries that are read shortly before they
+ * expire.
+ * <p>
+ * Unlike {@link ScheduledCache}, which drops the whole namespace at once, an entry read after
+ * {@code refreshAheadFactor * timeToLive} is reloaded in the background by the loader registered for its key with
+ * {@link #setLoader(Object, Callable)}, while callers keep getting the current value. Only entries nobody read for a
+ * while ever expire and miss. {@link org.apache.ibatis.executor.CachingExecutor} registers a loader that runs the
+ * select statement again with the SQL and parameter values of the original query.
+ * <p>
+ * An expired entry is cleared from the decorated cache before it is read, so the read is counted as a miss and, when
+ * blocking, only one thread loads it again.
+ * <p>
+ * The age of an entry is only known when it was put through this decorator, so a value found in the decorated cache
+ * without it, e.g. in a file that outlived a restart, is handled as expired.
+ */
+public class RefreshAheadCache implements Cache {
+
+	private static final Log log = LogFactory.getLog(RefreshAheadCache.class);
+
+	private static final Executor DEFAULT_EXECUTOR = newDefaultExecutor();
+
+	/**
+	 * 装饰的 Cache 对象
+	 */
+	private final Cache delegate;
+	/**
+	 * 每个键的写入时间和加载器
+	 */
+	private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<>();
+	/**
+	 * 缓存项的有效时间，单位：毫秒
+	 */
+	private long timeToLive = TimeUnit.HOURS.toMillis(1);
+	/**
+	 * 缓存项的年龄超过有效时间的这个比例后，读取时会在后台刷新
+	 */
+	private double refreshAheadFactor = 0.75;
+	/**
+	 * 执行刷新的线程池
+	 */
+	private Executor executor = DEFAULT_EXECUTOR;
+	/**
+	 * 最后一次清理过期 Entry 的时间，单位：毫秒
+	 */
+	private volatile long lastSweep = System.currentTimeMillis();
+
+	public RefreshAheadCache(Cache delegate) {
+		this.delegate = delegate;
+	}
+
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the fraction of the time to live after which a read triggers a refresh. Defaults to 0.75.
+	 *
+	 * @param refreshAheadFactor a value between 0 and 1
+	 */
+	public void setRefreshAheadFactor(double refreshAheadFactor) {
+		this.refreshAheadFactor = refreshAheadFactor;
+	}
+
+	/**
+	 * Sets the executor running the refreshes. Defaults to a small pool of daemon threads shared by all the caches.
+	 *
+	 * @param executor the executor
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Registers how to reload the value of a key. The loader may return null when the value cannot be reloaded any
+	 * more, in which case it is forgotten.
+	 *
+	 * @param key    the key
+	 * @param loader the loader
+	 */
+	public void setLoader(Object key, Callable<?> loader) {
+		entries.computeIfAbsent(key, k -> new Entry()).loader = loader;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		delegate.putObject(key, value);
+		if (value != null) {
+			Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+			entry.timestamp = System.currentTimeMillis();
+			entry.loaded = true;
+		} else {
+			// 被失效的缓存项，正在进行的刷新不再写入
+			entries.remove(key);
+		}
+		sweepWhenStale();
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		// 先判断是否过期，过期或者年龄未知的值先从 delegate 中清除，
+		// 这样这次读取在 LoggingCache 中按未命中统计，并且由 BlockingCache 只让一个线程去加载
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.loaded || System.currentTimeMillis() - entry.timestamp >= timeToLive) {
+			if (entry != null) {
+				entries.remove(key, entry);
+			}
+			delegate.putObject(key, null);
+		}
+		Object value = delegate.getObject(key);
+		if (value == null) {
+			return null;
+		}
+		// 上面已经清除了过期的值，这里读到的是刚刚写入的值
+		entry = entries.get(key);
+		if (entry != null && entry.loaded && entry.loader != null
+				&& System.currentTimeMillis() - entry.timestamp >= timeToLive * refreshAheadFactor
+				&& entry.refreshing.compareAndSet(false, true)) {
+			refresh(key, entry);
+		}
+		return value;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+		delegate.clear();
+	}
+
+	private void refresh(Object key, Entry entry) {
+		try {
+			executor.execute(() -> {
+				try {
+					Object value = entry.loader.call();
+					if (value == null) {
+						entry.loader = null;
+					} else if (entries.get(key) == entry) {
+						// 刷新期间被清空的缓存项不再写入
+						delegate.putObject(key, value);
+						entry.timestamp = System.currentTimeMillis();
+					}
+				} catch (Exception e) {
+					log.warn("Error refreshing entry of cache " + getId() + ". Cause: " + e);
+				} finally {
+					entry.refreshing.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing.set(false);
+		}
+	}
+
+	/**
+	 * 每隔 timeToLive 移除一次过期的 Entry ，避免已被淘汰的键一直占用内存
+	 */
+	private void sweepWhenStale() {
+		long now = System.currentTimeMillis();
+		if (now - lastSweep < timeToLive) {
+			return;
+		}
+		lastSweep = now;
+		entries.entrySet().removeIf(e -> now - e.getValue().timestamp >= timeToLive && !e.getValue().refreshing.get());
+	}
+
+	private static Executor newDefaultExecutor() {
+		int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static final class Entry {
+
+		/**
+		 * 写入时间，未写入时为创建时间，单位：毫秒
+		 */
+		private volatile long timestamp = System.currentTimeMillis();
+		/**
+		 * 是否已经写入
+		 */
+		private volatile boolean loaded;
+		private volatile Callable<?> loader;
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	}
+
+}
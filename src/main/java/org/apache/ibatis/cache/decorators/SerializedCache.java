@@ -15,17 +15,14 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.io.Serializable;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.JavaCacheSerializer;
 import org.apache.ibatis.io.Resources;
 
 /**
@@ -37,9 +34,23 @@ public class SerializedCache implements Cache {
      * 装饰的 Cache 对象
      */
 	private final Cache delegate;
+	/**
+	 * 序列化的实现
+	 */
+	private final CacheSerializer serializer;
 
 	public SerializedCache(Cache delegate) {
+		this(delegate, new JavaCacheSerializer());
+	}
+
+	/**
+	 * @param delegate   the decorated cache
+	 * @param serializer the serializer used to copy the values
+	 * @since 3.5.3
+	 */
+	public SerializedCache(Cache delegate, CacheSerializer serializer) {
 		this.delegate = delegate;
+		this.serializer = serializer;
 	}
 
 	@Override
@@ -54,17 +65,13 @@ public class SerializedCache implements Cache {
 
 	@Override
 	public void putObject(Object key, Object object) {
-		if (object == null || object instanceof Serializable) {
-			delegate.putObject(key, serialize((Serializable) object)); // 序列化
-		} else {
-			throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-		}
+		delegate.putObject(key, object == null ? null : serializer.serialize(object)); // 序列化
 	}
 
 	@Override
 	public Object getObject(Object key) {
 		Object object = delegate.getObject(key);
-		return object == null ? null : deserialize((byte[]) object); // 反序列化
+		return object == null ? null : serializer.deserialize((byte[]) object); // 反序列化
 	}
 
 	@Override
@@ -87,28 +94,6 @@ public class SerializedCache implements Cache {
 		return delegate.equals(obj);
 	}
 
-	private byte[] serialize(Serializable value) {
-		try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-			oos.writeObject(value);
-			oos.flush();
-			return bos.toByteArray();
-		} catch (Exception e) {
-			throw new CacheException("Error serializing object.  Cause: " + e, e);
-		}
-	}
-
-	private Serializable deserialize(byte[] value) {
-		Serializable result;
-		try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-				ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-			result = (Serializable) ois.readObject();
-		} catch (Exception e) {
-			throw new CacheException("Error deserializing object.  Cause: " + e, e);
-		}
-		return result;
-	}
-
 	public static class CustomObjectInputStream extends ObjectInputStream {
 
 		public CustomObjectInputStream(InputStream in) throws IOException {
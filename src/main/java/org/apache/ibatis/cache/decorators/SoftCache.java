@@ -21,6 +21,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * Soft Reference cache decorator Thanks to Dr. Heinz Kabutz for his guidance
@@ -45,6 +46,10 @@ public class SoftCache implements Cache {
      * {@link #hardLinksToAvoidGarbageCollection} 的大小
      */
 	private int numberOfHardLinks;
+	/**
+	 * 统计信息，记录被回收的次数
+	 */
+	private CacheStats stats;
 
 	public SoftCache(Cache delegate) {
 		this.delegate = delegate;
@@ -64,6 +69,13 @@ public class SoftCache implements Cache {
 		return delegate.getSize();
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+	}
+
 	public void setSize(int size) {
 		this.numberOfHardLinks = size;
 	}
@@ -115,6 +127,9 @@ public class SoftCache implements Cache {
 		SoftEntry sv;
 		while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
 			delegate.removeObject(sv.key);
+			if (stats != null) {
+				stats.recordEviction();
+			}
 		}
 	}
 
@@ -15,12 +15,17 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheTagIndex;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -32,6 +37,9 @@ import org.apache.ibatis.logging.LogFactory;
  * or discarded if the Session is rolled back. Blocking cache support has been
  * added. Therefore any get() that returns a cache miss will be followed by a
  * put() so any lock associated with the key can be released.
+ * <p>
+ * When the statements use cache tags, a write statement evicts on commit only the entries indexed with its tags
+ * instead of clearing the whole cache.
  *
  * @author Clinton Begin
  * @author Eduardo Macarron
@@ -65,12 +73,38 @@ public class TransactionalCache implements Cache {
 	 * 查找不到的 KEY 集合
 	 */
 	private final Set<Object> entriesMissedInCache;
+	/**
+	 * {@link #delegate} 的标签索引，未使用缓存标签时为 null
+	 */
+	private CacheTagIndex tagIndex;
+	/**
+	 * 待提交的 Key 的标签
+	 */
+	private final Map<Object, Collection<String>> entryTags;
+	/**
+	 * 提交时，失效带有这些标签的缓存
+	 */
+	private final Set<String> tagsToInvalidateOnCommit;
+	/**
+	 * 统计信息，记录提交时写入的次数，可以为 null
+	 */
+	private final CacheStats stats;
 
 	public TransactionalCache(Cache delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public TransactionalCache(Cache delegate, CacheStats stats) {
 		this.delegate = delegate;
+		this.stats = stats;
 		this.clearOnCommit = false;
 		this.entriesToAddOnCommit = new HashMap<>();
 		this.entriesMissedInCache = new HashSet<>();
+		this.entryTags = new HashMap<>();
+		this.tagsToInvalidateOnCommit = new HashSet<>();
 	}
 
 	@Override
@@ -94,6 +128,9 @@ public class TransactionalCache implements Cache {
 		// issue #146
 		if (clearOnCommit) {// <3> 如果 clearOnCommit 为 true ，表示处于持续清空状态，则返回 null
 			return null;
+		} else if (object != null && !tagsToInvalidateOnCommit.isEmpty()
+				&& tagIndex.isTagged(key, tagsToInvalidateOnCommit)) {// <4> 提交时会被失效，则返回 null
+			return null;
 		} else {
 			return object;
 		}
@@ -105,6 +142,42 @@ public class TransactionalCache implements Cache {
 		entriesToAddOnCommit.put(key, object);
 	}
 
+	/**
+	 * Adds an entry that is indexed with the given tags on commit.
+	 *
+	 * @param key      the key
+	 * @param object   the value
+	 * @param tagIndex the tag index of the cache
+	 * @param tags     the tags of the entry
+	 * @since 3.5.3
+	 */
+	public void putObject(Object key, Object object, CacheTagIndex tagIndex, Collection<String> tags) {
+		this.tagIndex = tagIndex;
+		entriesToAddOnCommit.put(key, object);
+		entryTags.put(key, tags);
+	}
+
+	/**
+	 * Evicts on commit the entries having at least one of the given tags, instead of clearing the whole cache.
+	 *
+	 * @param tagIndex the tag index of the cache
+	 * @param tags     the tags
+	 * @since 3.5.3
+	 */
+	public void invalidate(CacheTagIndex tagIndex, Collection<String> tags) {
+		this.tagIndex = tagIndex;
+		tagsToInvalidateOnCommit.addAll(tags);
+		// 移除本事务中读到的、带有这些标签的待提交缓存
+		Iterator<Map.Entry<Object, Collection<String>>> iterator = entryTags.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Object, Collection<String>> entry = iterator.next();
+			if (!Collections.disjoint(entry.getValue(), tags)) {
+				entriesToAddOnCommit.remove(entry.getKey());
+				iterator.remove();
+			}
+		}
+	}
+
 	@Override
 	public Object removeObject(Object key) {
 		return null;
@@ -122,6 +195,19 @@ public class TransactionalCache implements Cache {
 		// <1> 如果 clearOnCommit 为 true ，则清空 delegate 缓存
 		if (clearOnCommit) {
 			delegate.clear();
+			if (tagIndex != null) {
+				tagIndex.clear();
+			}
+		} else if (!tagsToInvalidateOnCommit.isEmpty()) {
+			// <2> 失效带有标签的缓存，写入 null 而不是 removeObject ，兼容 BlockingCache
+			for (Object key : tagIndex.removeTagged(tagsToInvalidateOnCommit)) {
+				delegate.putObject(key, null);
+			}
+			// 标签索引超出上限，无法确定受影响的缓存，清空整个缓存
+			if (tagIndex.isOverflowed()) {
+				delegate.clear();
+				tagIndex.clear();
+			}
 		}
 		// 将 entriesToAddOnCommit、entriesMissedInCache 刷入 delegate 中
 		flushPendingEntries();
@@ -140,10 +226,20 @@ public class TransactionalCache implements Cache {
 		clearOnCommit = false;
 		entriesToAddOnCommit.clear();
 		entriesMissedInCache.clear();
+		entryTags.clear();
+		tagsToInvalidateOnCommit.clear();
 	}
 
 	private void flushPendingEntries() {
+		if (stats != null && !entriesToAddOnCommit.isEmpty()) {
+			stats.recordCommitFlush(entriesToAddOnCommit.size());
+		}
 		for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
+			// 先登记标签，避免写入后、登记前的失效被遗漏
+			Collection<String> tags = entryTags.get(entry.getKey());
+			if (tags != null) {
+				tagIndex.tag(entry.getKey(), tags);
+			}
 			delegate.putObject(entry.getKey(), entry.getValue());
 		}
 		for (Object entry : entriesMissedInCache) {
@@ -21,6 +21,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
 
 /**
  * Weak Reference cache decorator. Thanks to Dr. Heinz Kabutz for his guidance
@@ -45,6 +46,10 @@ public class WeakCache implements Cache {
      * {@link #hardLinksToAvoidGarbageCollection} 的大小
      */
 	private int numberOfHardLinks;
+	/**
+	 * 统计信息，记录被回收的次数
+	 */
+	private CacheStats stats;
 
 	public WeakCache(Cache delegate) {
 		this.delegate = delegate;
@@ -65,6 +70,13 @@ public class WeakCache implements Cache {
 		return delegate.getSize();
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+	}
+
 	public void setSize(int size) {
 		this.numberOfHardLinks = size;
 	}
@@ -122,6 +134,9 @@ public class WeakCache implements Cache {
 		WeakEntry sv;
 		while ((sv = (WeakEntry) queueOfGarbageCollectedEntries.poll()) != null) {
 			delegate.removeObject(sv.key);
+			if (stats != null) {
+				stats.recordEviction();
+			}
 		}
 	}
 
@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheWeigher;
+import org.apache.ibatis.cache.DefaultCacheWeigher;
+
+/**
+ * Lru (least recently used) cache decorator bounded by the estimated size of its entries instead of their number.
+ * <p>
+ * Each entry is weighed by a {@link CacheWeigher} when it is put, and the least recently used entries are evicted until
+ * the total weight fits in {@code maxBytes}. An entry heavier than the whole budget is not kept at all.
+ */
+public class WeightedCache implements Cache {
+
+	private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * 装饰的 Cache 对象
+	 */
+	private final Cache delegate;
+	/**
+	 * 每个键对应的权重，按照访问顺序排序
+	 */
+	private final LinkedHashMap<Object, Long> weights = new LinkedHashMap<>(16, .75F, true);
+	/**
+	 * 计算权重的对象
+	 */
+	private CacheWeigher weigher = new DefaultCacheWeigher();
+	/**
+	 * 权重上限
+	 */
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	/**
+	 * 当前所有缓存项的权重之和
+	 */
+	private long totalWeight;
+	/**
+	 * 统计信息，记录淘汰次数
+	 */
+	private CacheStats stats;
+
+	public WeightedCache(Cache delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String getId() {
+		return delegate.getId();
+	}
+
+	@Override
+	public int getSize() {
+		return delegate.getSize();
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+		stats.setEstimatedBytes(this::getWeight);
+	}
+
+	public void setWeigher(CacheWeigher weigher) {
+		this.weigher = weigher;
+	}
+
+	/**
+	 * @return The estimated size in bytes of all the entries
+	 */
+	public long getWeight() {
+		return totalWeight;
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		long weight = weigher.weigh(key, value);
+		delegate.putObject(key, value);
+		Long previous = weights.put(key, weight);
+		totalWeight += weight - (previous == null ? 0 : previous);
+		// 超过上限，从最少使用的开始淘汰
+		Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+		while (totalWeight > maxBytes && iterator.hasNext()) {
+			Map.Entry<Object, Long> eldest = iterator.next();
+			iterator.remove();
+			totalWeight -= eldest.getValue();
+			delegate.removeObject(eldest.getKey());
+			if (stats != null) {
+				stats.recordEviction();
+			}
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		// 刷新 weights 的访问顺序
+		weights.get(key);
+		return delegate.getObject(key);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Long weight = weights.remove(key);
+		if (weight != null) {
+			totalWeight -= weight;
+		}
+		return delegate.removeObject(key);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		weights.clear();
+		totalWeight = 0;
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheStats;
+
+/**
+ * A thread safe, size bounded cache that never locks on reads.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}. Eviction uses the CLOCK algorithm, an approximation of LRU: a read only
+ * marks the entry as referenced, and a writer that needs room sweeps the slots of one segment, clearing the mark of
+ * referenced entries and evicting the first one that was not read since the last sweep. Each segment has its own lock,
+ * which is only taken by writers of that segment.
+ * <p>
+ * Because it is thread safe and evicts by itself, {@link org.apache.ibatis.mapping.CacheBuilder} neither applies the
+ * eviction decorator nor the {@link org.apache.ibatis.cache.decorators.SynchronizedCache} to it.
+ */
+public class ConcurrentCache implements Cache {
+
+	private static final int DEFAULT_SIZE = 1024;
+	private static final int MAXIMUM_SEGMENTS = 16;
+
+	/**
+	 * 标识
+	 */
+	private final String id;
+	/**
+	 * 缓存容器
+	 */
+	private final ConcurrentMap<Object, Node> cache = new ConcurrentHashMap<>();
+	/**
+	 * 分段，每段负责一部分键的淘汰
+	 */
+	private volatile Segment[] segments;
+	/**
+	 * 统计信息，记录淘汰次数
+	 */
+	private CacheStats stats;
+
+	public ConcurrentCache(String id) {
+		this.id = id;
+		setSize(DEFAULT_SIZE);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Sets the maximum number of entries. Existing entries are discarded.
+	 *
+	 * @param size the maximum number of entries
+	 */
+	public void setSize(int size) {
+		if (size <= 0) {
+			throw new CacheException("Cache size must be positive, but was " + size + " for cache '" + id + "'.");
+		}
+		int segmentCount = 1;
+		while (segmentCount < MAXIMUM_SEGMENTS && segmentCount * 2 <= size) {
+			segmentCount <<= 1;
+		}
+		Segment[] newSegments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			// 将容量尽量平均分配到每个分段上，总和等于 size
+			newSegments[i] = new Segment(size / segmentCount + (i < size % segmentCount ? 1 : 0));
+		}
+		segments = newSegments;
+		cache.clear();
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int getSize() {
+		return cache.size();
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		Node node = cache.get(key);
+		if (node != null) {
+			node.value = value;
+			node.referenced = true;
+			return;
+		}
+		segmentFor(key).add(key, value);
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		Node node = cache.get(key);
+		if (node == null) {
+			return null;
+		}
+		// 避免对热点数据重复写入，减少缓存行的争用
+		if (!node.referenced) {
+			node.referenced = true;
+		}
+		return node.value;
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		Node node = cache.remove(key);
+		if (node == null) {
+			return null;
+		}
+		segmentFor(key).release(node);
+		return node.value;
+	}
+
+	@Override
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Cache)) {
+			return false;
+		}
+
+		Cache otherCache = (Cache) o;
+		return getId().equals(otherCache.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		return getId().hashCode();
+	}
+
+	private Segment segmentFor(Object key) {
+		Segment[] current = segments;
+		int h = key == null ? 0 : key.hashCode();
+		return current[(h ^ (h >>> 16)) & (current.length - 1)];
+	}
+
+	private static final class Node {
+
+		private final Object key;
+		private volatile Object value;
+		private volatile boolean referenced;
+		/**
+		 * 在所属分段中的位置，只在持有分段锁时访问
+		 */
+		private int slot;
+
+		Node(Object key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+
+	}
+
+	private final class Segment {
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Node[] slots;
+		/**
+		 * 已经使用过的位置数，之后的位置都是空的
+		 */
+		private int used;
+		/**
+		 * CLOCK 算法的指针
+		 */
+		private int hand;
+
+		Segment(int capacity) {
+			this.slots = new Node[Math.max(1, capacity)];
+		}
+
+		void add(Object key, Object value) {
+			lock.lock();
+			try {
+				Node node = cache.get(key);
+				if (node != null) {
+					node.value = value;
+					return;
+				}
+				node = new Node(key, value);
+				node.slot = used < slots.length ? used++ : evict();
+				slots[node.slot] = node;
+				cache.put(key, node);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void release(Node node) {
+			lock.lock();
+			try {
+				if (slots[node.slot] == node) {
+					slots[node.slot] = null;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void clear() {
+			lock.lock();
+			try {
+				for (int i = 0; i < used; i++) {
+					Node node = slots[i];
+					if (node != null) {
+						cache.remove(node.key, node);
+						slots[i] = null;
+					}
+				}
+				used = 0;
+				hand = 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * 找到一个可以复用的位置，必要时淘汰其中的数据。最多扫描两圈，第二圈时所有标记都已被清除
+		 */
+		private int evict() {
+			for (;;) {
+				int slot = hand;
+				hand = (hand + 1) % slots.length;
+				Node node = slots[slot];
+				if (node == null) {
+					return slot;
+				}
+				if (node.referenced) {
+					node.referenced = false;
+				} else {
+					cache.remove(node.key, node);
+					slots[slot] = null;
+					if (stats != null) {
+						stats.recordEviction();
+					}
+					return slot;
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,532 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.JavaCacheSerializer;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+
+/**
+ * A thread safe cache that keeps its entries outside of the Java heap.
+ * <p>
+ * Entries are serialized into slabs of direct memory, or of a memory-mapped file when {@code file} is set, and only an
+ * index of their positions stays on heap. The slabs are written as a circular log: when there is no room left, the
+ * oldest entries are overwritten. Values that are already {@code byte[]}, as produced by
+ * {@link SerializedCache}, are stored as is; any other value is serialized here with the configured
+ * {@link CacheSerializer}, so readers always get a copy.
+ * <p>
+ * When file backed, the keys are stored too and the index is rebuilt from the file the next time the cache is opened,
+ * so the cache survives a restart. The keys must then be serializable. Changing {@code maxBytes}, {@code slabSize}
+ * or the serializer discards the content of the file.
+ */
+public class OffHeapCache implements Cache {
+
+	private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+	private static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+	private static final int MINIMUM_SLAB_SIZE = 1024;
+
+	private static final long MAGIC = 0x4d7942617469734fL;
+	/**
+	 * 文件头：魔数、分片大小、分片数量、最旧记录的地址、记录数
+	 */
+	private static final int FILE_HEADER_SIZE = 32;
+	/**
+	 * 记录头：记录长度、键长度、标记
+	 */
+	private static final int RECORD_HEADER_SIZE = 9;
+	/**
+	 * 分片剩余空间放不下记录时写入的标记，表示跳到下一个分片
+	 */
+	private static final int WRAP_MARKER = -1;
+
+	private static final byte FLAG_REMOVED = 0;
+	private static final byte FLAG_BYTES = 1;
+	private static final byte FLAG_OBJECT = 2;
+
+	private static final byte[] EMPTY_KEY = new byte[0];
+
+	/**
+	 * 标识
+	 */
+	private final String id;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/**
+	 * 堆内的索引，键到记录的映射
+	 */
+	private final Map<Object, Record> index = new HashMap<>();
+	/**
+	 * 按写入顺序排列的记录，包括已经被移除的，用于淘汰最旧的记录
+	 */
+	private final Deque<Record> records = new ArrayDeque<>();
+
+	private long maxBytes = DEFAULT_MAX_BYTES;
+	/**
+	 * 配置的分片大小
+	 */
+	private int maxSlabSize = DEFAULT_SLAB_SIZE;
+	private String file;
+	private CacheSerializer serializer = new JavaCacheSerializer();
+	/**
+	 * 统计信息，记录淘汰次数
+	 */
+	private CacheStats stats;
+
+	/**
+	 * 分片，首次使用时才分配
+	 */
+	private volatile ByteBuffer[] slabs;
+	/**
+	 * 实际的分片大小，分配分片时确定，不超过 maxBytes
+	 */
+	private int slabSize;
+	/**
+	 * 文件头，不使用文件时为 null
+	 */
+	private ByteBuffer fileHeader;
+	/**
+	 * 下一条记录写入的地址
+	 */
+	private long head;
+
+	public OffHeapCache(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Sets the total size in bytes of the slabs. Existing entries are discarded.
+	 *
+	 * @param maxBytes the total size of the slabs
+	 */
+	public void setMaxBytes(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new CacheException("Cache maxBytes must be positive, but was " + maxBytes + " for cache '" + id + "'.");
+		}
+		this.maxBytes = maxBytes;
+		reset();
+	}
+
+	/**
+	 * Sets the size in bytes of each slab, which is also the largest entry that can be stored. It is lowered to
+	 * {@code maxBytes} when larger, otherwise {@code maxBytes} must be a multiple of it. Existing entries are discarded.
+	 *
+	 * @param slabSize the size of each slab
+	 */
+	public void setSlabSize(int slabSize) {
+		if (slabSize < MINIMUM_SLAB_SIZE) {
+			throw new CacheException("Cache slabSize must be at least " + MINIMUM_SLAB_SIZE + ", but was " + slabSize
+					+ " for cache '" + id + "'.");
+		}
+		this.maxSlabSize = slabSize;
+		reset();
+	}
+
+	/**
+	 * Sets the file the slabs are mapped to. Without it they are allocated in direct memory and lost on restart.
+	 *
+	 * @param file the path of the file
+	 */
+	public void setFile(String file) {
+		this.file = file;
+		reset();
+	}
+
+	/**
+	 * Sets the serializer used for the values that are not already {@code byte[]} and for the keys of a file backed
+	 * cache. Existing entries are discarded.
+	 *
+	 * @param serializer the serializer
+	 */
+	public void setSerializer(CacheSerializer serializer) {
+		this.serializer = serializer;
+		reset();
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public void setStats(CacheStats stats) {
+		this.stats = stats;
+		stats.setEstimatedBytes(this::getUsedBytes);
+	}
+
+	/**
+	 * @return the number of bytes used by the entries in the slabs
+	 */
+	public long getUsedBytes() {
+		if (slabs == null) {
+			return 0;
+		}
+		lock.readLock().lock();
+		try {
+			long used = 0;
+			for (Record record : index.values()) {
+				used += record.length;
+			}
+			return used;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int getSize() {
+		open();
+		lock.readLock().lock();
+		try {
+			return index.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void putObject(Object key, Object value) {
+		open();
+		// 在锁外完成序列化
+		byte[] keyBytes = fileHeader == null ? EMPTY_KEY : serializer.serialize(key);
+		byte flag;
+		byte[] valueBytes;
+		if (value instanceof byte[]) {
+			flag = FLAG_BYTES;
+			valueBytes = (byte[]) value;
+		} else {
+			flag = FLAG_OBJECT;
+			valueBytes = serializer.serialize(value);
+		}
+		long length = (long) RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+		lock.writeLock().lock();
+		try {
+			markRemoved(index.remove(key));
+			// 比分片还大的记录不缓存
+			if (length <= slabSize) {
+				long address = allocate((int) length);
+				ByteBuffer buffer = slab(address).duplicate();
+				buffer.position(position(address));
+				buffer.putInt((int) length).putInt(keyBytes.length).put(flag).put(keyBytes).put(valueBytes);
+				Record record = new Record(key, address, (int) length, flag);
+				records.addLast(record);
+				index.put(key, record);
+			}
+			writeFileHeader();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public Object getObject(Object key) {
+		open();
+		Record record;
+		byte[] value;
+		lock.readLock().lock();
+		try {
+			record = index.get(key);
+			if (record == null) {
+				return null;
+			}
+			value = read(record);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return decode(record, value);
+	}
+
+	@Override
+	public Object removeObject(Object key) {
+		open();
+		Record record;
+		byte[] value;
+		lock.writeLock().lock();
+		try {
+			record = index.remove(key);
+			if (record == null) {
+				return null;
+			}
+			value = read(record);
+			markRemoved(record);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return decode(record, value);
+	}
+
+	@Override
+	public void clear() {
+		open();
+		lock.writeLock().lock();
+		try {
+			index.clear();
+			records.clear();
+			head = 0;
+			writeFileHeader();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Cache)) {
+			return false;
+		}
+
+		Cache otherCache = (Cache) o;
+		return getId().equals(otherCache.getId());
+	}
+
+	@Override
+	public int hashCode() {
+		if (getId() == null) {
+			throw new CacheException("Cache instances require an ID.");
+		}
+		return getId().hashCode();
+	}
+
+	private void reset() {
+		lock.writeLock().lock();
+		try {
+			slabs = null;
+			fileHeader = null;
+			index.clear();
+			records.clear();
+			head = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 分配分片，使用文件时从文件中恢复索引
+	 */
+	private void open() {
+		if (slabs != null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (slabs != null) {
+				return;
+			}
+			// 分片总大小必须正好等于 maxBytes ，向上取整会多分配最多一个分片
+			slabSize = (int) Math.min(maxSlabSize, maxBytes);
+			if (maxBytes % slabSize != 0) {
+				throw new CacheException("Cache maxBytes must be a multiple of slabSize (" + slabSize + "), but was "
+						+ maxBytes + " for cache '" + id + "'.");
+			}
+			int slabCount = (int) (maxBytes / slabSize);
+			ByteBuffer[] newSlabs = new ByteBuffer[slabCount];
+			if (file == null) {
+				for (int i = 0; i < slabCount; i++) {
+					newSlabs[i] = ByteBuffer.allocateDirect(slabSize);
+				}
+			} else {
+				// 映射完成后可以关闭文件，映射仍然有效
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+					fileHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+					for (int i = 0; i < slabCount; i++) {
+						newSlabs[i] = channel.map(FileChannel.MapMode.READ_WRITE, FILE_HEADER_SIZE + (long) i * slabSize,
+								slabSize);
+					}
+				} catch (IOException e) {
+					throw new CacheException("Error opening file '" + file + "' for cache '" + id + "'.  Cause: " + e, e);
+				}
+			}
+			slabs = newSlabs;
+			if (fileHeader != null) {
+				recover();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void recover() {
+		if (fileHeader.getLong(0) != MAGIC || fileHeader.getInt(8) != slabSize || fileHeader.getInt(12) != slabs.length) {
+			writeFileHeader();
+			return;
+		}
+		long address = fileHeader.getLong(16);
+		int count = fileHeader.getInt(24);
+		try {
+			for (int i = 0; i < count; i++) {
+				address = skipWrapMarker(address);
+				ByteBuffer slab = slab(address);
+				int pos = position(address);
+				int length = slab.getInt(pos);
+				int keyLength = slab.getInt(pos + 4);
+				if (length < RECORD_HEADER_SIZE + keyLength || pos + length > slabSize) {
+					throw new CacheException("Corrupted record at " + address);
+				}
+				Record record = new Record(null, address, length, slab.get(pos + 8));
+				if (record.flag != FLAG_REMOVED) {
+					byte[] keyBytes = new byte[keyLength];
+					ByteBuffer buffer = slab.duplicate();
+					buffer.position(pos + RECORD_HEADER_SIZE);
+					buffer.get(keyBytes);
+					record.key = serializer.deserialize(keyBytes);
+					index.put(record.key, record);
+				}
+				records.addLast(record);
+				address = (address + length) % capacity();
+			}
+			head = address;
+		} catch (RuntimeException e) {
+			// 文件已损坏，丢弃其中的内容
+			index.clear();
+			records.clear();
+			head = 0;
+			writeFileHeader();
+		}
+	}
+
+	/**
+	 * 分配指定长度的空间，覆盖其中最旧的记录
+	 */
+	private long allocate(int length) {
+		int pos = position(head);
+		if (pos + length > slabSize) {
+			long nextSlab = head - pos + slabSize;
+			evict(head, nextSlab);
+			if (slabSize - pos >= 4) {
+				slab(head).putInt(pos, WRAP_MARKER);
+			}
+			head = nextSlab % capacity();
+		}
+		evict(head, head + length);
+		long address = head;
+		head = (head + length) % capacity();
+		return address;
+	}
+
+	/**
+	 * 淘汰起始地址在 [start, end) 范围内的记录。记录按写入顺序首尾相连，所以只需要检查最旧的记录
+	 */
+	private void evict(long start, long end) {
+		while (!records.isEmpty()) {
+			Record record = records.peekFirst();
+			if (record.address < start || record.address >= end) {
+				return;
+			}
+			records.pollFirst();
+			if (record.key != null && index.get(record.key) == record) {
+				index.remove(record.key);
+				if (stats != null) {
+					stats.recordEviction();
+				}
+			}
+		}
+	}
+
+	private void markRemoved(Record record) {
+		if (record != null) {
+			slab(record.address).put(position(record.address) + 8, FLAG_REMOVED);
+			record.key = null;
+		}
+	}
+
+	private byte[] read(Record record) {
+		ByteBuffer buffer = slab(record.address).duplicate();
+		int pos = position(record.address);
+		int keyLength = buffer.getInt(pos + 4);
+		byte[] value = new byte[record.length - RECORD_HEADER_SIZE - keyLength];
+		buffer.position(pos + RECORD_HEADER_SIZE + keyLength);
+		buffer.get(value);
+		return value;
+	}
+
+	private Object decode(Record record, byte[] value) {
+		return record.flag == FLAG_BYTES ? value : serializer.deserialize(value);
+	}
+
+	private void writeFileHeader() {
+		if (fileHeader == null) {
+			return;
+		}
+		fileHeader.putLong(0, MAGIC);
+		fileHeader.putInt(8, slabSize);
+		fileHeader.putInt(12, slabs.length);
+		fileHeader.putLong(16, records.isEmpty() ? head : records.peekFirst().address);
+		fileHeader.putInt(24, records.size());
+	}
+
+	private long skipWrapMarker(long address) {
+		int pos = position(address);
+		if (slabSize - pos < 4 || slab(address).getInt(pos) == WRAP_MARKER) {
+			return (address - pos + slabSize) % capacity();
+		}
+		return address;
+	}
+
+	private long capacity() {
+		return (long) slabs.length * slabSize;
+	}
+
+	private ByteBuffer slab(long address) {
+		return slabs[(int) (address / slabSize)];
+	}
+
+	private int position(long address) {
+		return (int) (address % slabSize);
+	}
+
+	private static final class Record {
+
+		/**
+		 * 键，记录被移除后为 null
+		 */
+		private Object key;
+		private final long address;
+		private final int length;
+		/**
+		 * 值的类型
+		 */
+		private final byte flag;
+
+		Record(Object key, long address, int length, byte flag) {
+			this.key = key;
+			this.address = address;
+			this.length = length;
+			this.flag = flag;
+		}
+
+	}
+
+}
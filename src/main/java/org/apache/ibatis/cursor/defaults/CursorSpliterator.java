@@ -0,0 +1,125 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * A Spliterator over a {@link Cursor}. Each {@link #tryAdvance(Consumer)} pulls exactly one row from the cursor,
+ * and {@link #trySplit()} hands off up to one fetch size of rows at a time, so a parallel stream never holds more
+ * than a few fetches in memory.
+ *
+ * @since 3.5.3
+ */
+public class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+  /**
+   * 语句和全局都没有设置 fetchSize 时，并行流每次拆分的行数
+   */
+  private static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final Cursor<T> cursor;
+  private final int batchSize;
+  private Iterator<T> iterator;
+
+  public CursorSpliterator(Cursor<T> cursor, int batchSize) {
+    super(Long.MAX_VALUE, Spliterator.ORDERED);
+    this.cursor = cursor;
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Returns a sequential Stream over the cursor of a statement. Closing the stream closes the cursor, and a parallel
+   * stream splits it by the fetch size of the statement, or by the default fetch size when the statement has none.
+   *
+   * @param <T> the stream element type
+   * @param cursor the cursor returned for the statement
+   * @param configuration the configuration holding the statement, may be null
+   * @param statement the id of the statement
+   * @return the stream
+   */
+  public static <T> Stream<T> stream(Cursor<T> cursor, Configuration configuration, String statement) {
+    return StreamSupport.stream(new CursorSpliterator<>(cursor, batchSize(configuration, statement)), false)
+        .onClose(() -> {
+          try {
+            cursor.close();
+          } catch (IOException e) {
+            throw ExceptionFactory.wrapException("Error closing cursor.  Cause: " + e, e);
+          }
+        });
+  }
+
+  /**
+   * 并行流每次拆分的行数：取语句的 fetchSize，未设置时取全局默认值
+   */
+  private static int batchSize(Configuration configuration, String statement) {
+    if (configuration == null || !configuration.hasStatement(statement, false)) {
+      return DEFAULT_BATCH_SIZE;
+    }
+    MappedStatement ms = configuration.getMappedStatement(statement, false);
+    Integer fetchSize = ms.getFetchSize() != null ? ms.getFetchSize() : configuration.getDefaultFetchSize();
+    // MySQL 以 Integer.MIN_VALUE 表示逐行流式读取
+    return fetchSize != null && fetchSize > 0 ? fetchSize : DEFAULT_BATCH_SIZE;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    Iterator<T> it = iterator();
+    if (it.hasNext()) {
+      action.accept(it.next());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    iterator().forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    Iterator<T> it = iterator();
+    if (!it.hasNext()) {
+      return null;
+    }
+    Object[] batch = new Object[batchSize];
+    int size = 0;
+    while (size < batchSize && it.hasNext()) {
+      batch[size++] = it.next();
+    }
+    return Spliterators.spliterator(batch, 0, size, Spliterator.ORDERED);
+  }
+
+  private Iterator<T> iterator() {
+    // 延迟获取迭代器，流未执行终端操作前不会访问数据库
+    if (iterator == null) {
+      iterator = cursor.iterator();
+    }
+    return iterator;
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * A Cursor that reads and maps rows on a background thread into a bounded buffer while the caller consumes
+ * earlier rows. The producer blocks once the buffer is full, and closing the cursor stops it and closes the
+ * ResultSet. As with {@link DefaultCursor}, the cursor itself must be used from a single thread.
+ * <p>
+ * The producer reads from the connection of the session, so the session must not run any other statement, commit or
+ * roll back until the cursor is consumed or closed. The executor fails fast when it is used in the meantime. The
+ * producer runs on the given executor; when the executor rejects it, the rows are mapped on the consumer thread like
+ * {@link DefaultCursor} does.
+ *
+ * @since 3.5.3
+ */
+public class PipelinedCursor<T> implements Cursor<T> {
+
+  /**
+   * 队列中的结束标记
+   */
+  private static final Object END = new Object();
+  /**
+   * 队列中代表 null 结果的占位对象（BlockingQueue 不允许 null）
+   */
+  private static final Object NULL = new Object();
+  /**
+   * 生产者放入队列阻塞时，检查游标是否已关闭的间隔
+   */
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+  // ResultSetHandler stuff
+  private final DefaultResultSetHandler resultSetHandler;
+  private final ResultMap resultMap;
+  private final ResultSetWrapper rsw;
+  private final RowBounds rowBounds;
+
+  /**
+   * 环形缓冲区，容量即生产者最多领先消费者的行数
+   */
+  private final BlockingQueue<Object> buffer;
+  private final CursorIterator cursorIterator = new CursorIterator();
+  private boolean iteratorRetrieved;
+
+  /**
+   * 执行生产者的线程池
+   */
+  private final Executor executor;
+  /**
+   * 生产者开始后创建，生产者结束时计数归零
+   */
+  private CountDownLatch producer;
+  /**
+   * 线程池拒绝执行时，在消费者线程上映射结果行
+   */
+  private Iterator<T> fallback;
+  private DefaultCursor<T> fallbackCursor;
+  /**
+   * 消费者关闭游标后置为 true，生产者在下一行停止
+   */
+  private volatile boolean closed;
+  /**
+   * 生产者映射过程中抛出的异常，由消费者重新抛出
+   */
+  private volatile Throwable failure;
+
+  private CursorStatus status = CursorStatus.CREATED;
+
+  private enum CursorStatus {
+    CREATED, OPEN, CLOSED, CONSUMED
+  }
+
+  public PipelinedCursor(DefaultResultSetHandler resultSetHandler, ResultMap resultMap, ResultSetWrapper rsw,
+      RowBounds rowBounds, int bufferSize, Executor executor) {
+    this.resultSetHandler = resultSetHandler;
+    this.executor = executor;
+    this.resultMap = resultMap;
+    this.rsw = rsw;
+    this.rowBounds = rowBounds;
+    this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+  }
+
+  @Override
+  public boolean isOpen() {
+    return status == CursorStatus.OPEN;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return status == CursorStatus.CONSUMED;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return rowBounds.getOffset() + cursorIterator.iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (isClosed()) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    return cursorIterator;
+  }
+
+  @Override
+  public void close() {
+    if (isClosed()) {
+      return;
+    }
+    closed = true;
+    if (fallbackCursor != null) {
+      fallbackCursor.close();
+    } else if (producer == null) {
+      closeResultSet();
+    } else {
+      // 清空缓冲区唤醒阻塞的生产者，等待其关闭 ResultSet 后再返回，以免语句先于 ResultSet 关闭
+      buffer.clear();
+      boolean interrupted = false;
+      while (producer.getCount() > 0) {
+        try {
+          producer.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    status = CursorStatus.CLOSED;
+  }
+
+  /**
+   * Returns whether the cursor was closed or fully consumed, after which it no longer reads from the connection.
+   *
+   * @return true when closed or consumed
+   */
+  public boolean isClosed() {
+    return status == CursorStatus.CLOSED || status == CursorStatus.CONSUMED;
+  }
+
+  private void startProducer() {
+    status = CursorStatus.OPEN;
+    producer = new CountDownLatch(1);
+    try {
+      executor.execute(this::produce);
+    } catch (RejectedExecutionException e) {
+      producer = null;
+      fallbackCursor = new DefaultCursor<>(resultSetHandler, resultMap, rsw, rowBounds);
+      fallback = fallbackCursor.iterator();
+    }
+  }
+
+  private void produce() {
+    try {
+      if (!rsw.getResultSet().isClosed()) {
+        resultSetHandler.handleRowValues(rsw, resultMap, new BufferingResultHandler(), RowBounds.DEFAULT, null);
+      }
+    } catch (Throwable t) {
+      failure = t;
+    } finally {
+      closeResultSet();
+      if (!closed) {
+        put(END);
+      }
+      producer.countDown();
+    }
+  }
+
+  private boolean put(Object value) {
+    try {
+      while (!closed) {
+        if (buffer.offer(value, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      closed = true;
+    }
+    return false;
+  }
+
+  private void closeResultSet() {
+    ResultSet rs = rsw.getResultSet();
+    try {
+      if (rs != null) {
+        rs.close();
+      }
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  private Object take() {
+    if (isClosed()) {
+      return END;
+    }
+    if (producer == null && fallback == null) {
+      startProducer();
+    }
+    if (fallback != null) {
+      if (fallback.hasNext()) {
+        T result = fallback.next();
+        return result == null ? NULL : result;
+      }
+      status = CursorStatus.CONSUMED;
+      return END;
+    }
+    Object value;
+    try {
+      value = buffer.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new IllegalStateException("Interrupted while waiting for the next row of a Cursor", e);
+    }
+    if (value == END) {
+      Throwable t = failure;
+      if (t != null) {
+        close();
+        if (t instanceof RuntimeException) {
+          throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+          throw (Error) t;
+        }
+        throw new RuntimeException(t);
+      }
+      status = CursorStatus.CONSUMED;
+    }
+    return value;
+  }
+
+  private class BufferingResultHandler implements ResultHandler<T> {
+
+    /**
+     * 已读取的行数（含 offset 跳过的行）
+     */
+    private int rows;
+
+    @Override
+    public void handleResult(ResultContext<? extends T> context) {
+      if (closed) {
+        context.stop();
+        return;
+      }
+      rows++;
+      if (rows <= rowBounds.getOffset()) {
+        return;
+      }
+      T result = context.getResultObject();
+      if (!put(result == null ? NULL : result)
+          || rows - rowBounds.getOffset() >= rowBounds.getLimit()) {
+        context.stop();
+      }
+    }
+  }
+
+  protected class CursorIterator implements Iterator<T> {
+
+    /**
+     * Holder for the next object to be returned, {@code null} when none has been fetched yet.
+     */
+    Object object;
+
+    /**
+     * Index of objects returned using next(), and as such, visible to users.
+     */
+    int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (object == null) {
+        object = take();
+      }
+      return object != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object next = object;
+      object = null;
+      iteratorIndex++;
+      return next == NULL ? null : (T) next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free container of pooled connections used by {@link PooledDataSource} when
+ * {@link PooledDataSource#setPoolConcurrentBagEnabled(boolean)} is on.
+ * <p>
+ * A connection is looked up first in the list of connections recently returned by the calling thread, then in the
+ * shared idle queue, and finally the caller waits on a fair hand-off queue fed by the threads returning connections.
+ * Ownership of an entry is always decided by a CAS on its state, so no pool-wide monitor is ever taken.
+ */
+class ConnectionBag {
+
+	static final int STATE_REMOVED = -1;
+	static final int STATE_NOT_IN_USE = 0;
+	static final int STATE_IN_USE = 1;
+
+	/**
+	 * 每个线程最多记住的最近归还的连接数
+	 */
+	private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+	/**
+	 * 等待线程每次阻塞的最长时间，超过后会重新检查空闲队列。
+	 * 用于处理等待线程开始等待的同时，连接被放回空闲队列的情况
+	 */
+	private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/**
+	 * 所有的连接（包括空闲和激活的），只在创建或关闭连接时修改
+	 */
+	private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+	/**
+	 * 空闲连接队列
+	 */
+	private final Queue<Entry> idleQueue = new ConcurrentLinkedQueue<>();
+	/**
+	 * 当前线程最近归还的连接
+	 */
+	private final ThreadLocal<List<WeakReference<Entry>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+	/**
+	 * 公平的交接队列，归还连接的线程直接将连接交给等待中的线程
+	 */
+	private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+	/**
+	 * 等待连接的线程数
+	 */
+	private final AtomicInteger waiters = new AtomicInteger();
+	/**
+	 * 已创建和正在创建的连接数
+	 */
+	private final AtomicInteger reserved = new AtomicInteger();
+
+	/**
+	 * Tries to take an idle entry without blocking.
+	 *
+	 * @return the entry now in {@link #STATE_IN_USE}, or null if none is idle
+	 */
+	Entry borrow() {
+		// 优先使用当前线程最近归还的连接
+		List<WeakReference<Entry>> list = threadList.get();
+		for (int i = list.size() - 1; i >= 0; i--) {
+			Entry entry = list.remove(i).get();
+			if (entry != null && entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+				return entry;
+			}
+		}
+		return pollIdle();
+	}
+
+	/**
+	 * Waits until an entry is returned to the bag or the timeout expires.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the timeout
+	 * @return the entry now in {@link #STATE_IN_USE}, or null if the timeout expired
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	Entry borrow(long timeout, TimeUnit unit) throws InterruptedException {
+		waiters.incrementAndGet();
+		try {
+			long remaining = unit.toNanos(timeout);
+			long deadline = System.nanoTime() + remaining;
+			do {
+				Entry entry = pollIdle();
+				if (entry != null) {
+					return entry;
+				}
+				entry = handoffQueue.poll(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+				if (entry != null && entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+					return entry;
+				}
+				remaining = deadline - System.nanoTime();
+			} while (remaining > 0);
+			return null;
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns a borrowed entry to the bag, handing it to a waiting thread if there is one.
+	 *
+	 * @param entry the entry to return
+	 * @return false if the entry was removed from the bag meanwhile, in which case the caller must close its connection
+	 */
+	boolean requite(Entry entry) {
+		// 归还期间 Entry 可能已经被 forceCloseAll 等移除，此时不能再让它变为可借出
+		if (!entry.compareAndSetState(STATE_IN_USE, STATE_NOT_IN_USE)) {
+			return false;
+		}
+		// 有线程在等待时，直到交接成功或者被其它线程取走为止
+		for (int i = 0; waiters.get() > 0; i++) {
+			if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+				return true;
+			}
+			if ((i & 0xff) == 0xff) {
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+			} else {
+				Thread.yield();
+			}
+		}
+		// 同一个 Entry 在空闲队列中最多只出现一次
+		if (entry.queued.compareAndSet(false, true)) {
+			idleQueue.offer(entry);
+		}
+		List<WeakReference<Entry>> list = threadList.get();
+		if (list.size() >= MAX_THREAD_LOCAL_ENTRIES) {
+			list.remove(0);
+		}
+		list.add(new WeakReference<>(entry));
+		return true;
+	}
+
+	/**
+	 * Reserves a slot for a new connection if the bag holds less than {@code maximum} connections.
+	 *
+	 * @param maximum the maximum number of connections
+	 * @return true if the caller may create a connection and must then either {@link #add(Entry)} it or
+	 *         {@link #cancelReservation()}
+	 */
+	boolean tryReserve(int maximum) {
+		for (;;) {
+			int current = reserved.get();
+			if (current >= maximum) {
+				return false;
+			}
+			if (reserved.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	void cancelReservation() {
+		reserved.decrementAndGet();
+	}
+
+	/**
+	 * Adds a newly created entry, previously reserved through {@link #tryReserve(int)}, in {@link #STATE_IN_USE}.
+	 *
+	 * @param entry the entry
+	 */
+	void add(Entry entry) {
+		sharedList.add(entry);
+	}
+
+	/**
+	 * Removes an entry from the bag. Only the thread owning the entry, or one closing the whole bag, may remove it.
+	 *
+	 * @param entry the entry
+	 * @return true if the entry was still part of the bag
+	 */
+	boolean remove(Entry entry) {
+		entry.setState(STATE_REMOVED);
+		if (sharedList.remove(entry)) {
+			reserved.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Atomically takes an idle entry out of circulation, e.g. to validate or retire it.
+	 *
+	 * @param entry the entry
+	 * @return true if the entry was idle and now belongs to the caller
+	 */
+	boolean reserve(Entry entry) {
+		return entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE);
+	}
+
+	List<Entry> values() {
+		return new ArrayList<>(sharedList);
+	}
+
+	int getCount(int state) {
+		int count = 0;
+		for (Entry entry : sharedList) {
+			if (entry.getState() == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	int size() {
+		return sharedList.size();
+	}
+
+	int getWaitingThreadCount() {
+		return waiters.get();
+	}
+
+	private Entry pollIdle() {
+		Entry entry;
+		while ((entry = idleQueue.poll()) != null) {
+			entry.queued.set(false);
+			if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A slot of the bag, bound to one real connection for its whole life. The {@link PooledConnection} wrapping it is
+	 * replaced every time the connection goes back to the pool so that stale proxies are invalidated.
+	 */
+	static final class Entry {
+
+		private final AtomicInteger state = new AtomicInteger(STATE_IN_USE);
+		private final AtomicBoolean queued = new AtomicBoolean();
+		private final AtomicReference<PooledConnection> connection;
+
+		Entry(PooledConnection connection) {
+			this.connection = new AtomicReference<>(connection);
+			connection.setBagEntry(this);
+		}
+
+		PooledConnection getConnection() {
+			return connection.get();
+		}
+
+		/**
+		 * Replaces the current wrapper, failing if another thread already replaced it.
+		 *
+		 * @param expect the wrapper the caller holds
+		 * @param update the new wrapper
+		 * @return true if the caller won the race
+		 */
+		boolean compareAndSetConnection(PooledConnection expect, PooledConnection update) {
+			update.setBagEntry(this);
+			return connection.compareAndSet(expect, update);
+		}
+
+		int getState() {
+			return state.get();
+		}
+
+		void setState(int newState) {
+			state.set(newState);
+		}
+
+		boolean compareAndSetState(int expect, int update) {
+			return state.compareAndSet(expect, update);
+		}
+
+	}
+
+}
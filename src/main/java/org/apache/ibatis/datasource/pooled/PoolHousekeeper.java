@@ -0,0 +1,86 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Runs {@link PooledDataSource#housekeep()} periodically on a daemon thread.
+ * <p>
+ * Only a weak reference to the data source is kept, so an unused data source can still be collected; the thread stops
+ * by itself once that happens.
+ */
+class PoolHousekeeper {
+
+	private static final Log log = LogFactory.getLog(PoolHousekeeper.class);
+
+	/**
+	 * 所属的 PooledDataSource 对象
+	 */
+	private final WeakReference<PooledDataSource> dataSource;
+	/**
+	 * 执行任务的线程池，未启动时为 null
+	 */
+	private volatile ScheduledExecutorService executor;
+
+	PoolHousekeeper(PooledDataSource dataSource) {
+		this.dataSource = new WeakReference<>(dataSource);
+	}
+
+	boolean isRunning() {
+		return executor != null;
+	}
+
+	synchronized void start(long periodMillis) {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::run, 0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	private void run() {
+		PooledDataSource ds = dataSource.get();
+		if (ds == null) {
+			stop();
+			return;
+		}
+		try {
+			ds.housekeep();
+		} catch (Exception e) {
+			// 不能让异常终止后续的调度
+			log.warn("Pool housekeeping failed. Cause: " + e);
+		}
+	}
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Clinton Begin
@@ -36,6 +37,10 @@ public class PoolState {
 	 * 激活的的 PooledConnection 集合
 	 */
 	protected final List<PooledConnection> activeConnections = new ArrayList<>();
+	/**
+	 * 无锁的连接容器，仅在 {@link PooledDataSource#isPoolConcurrentBagEnabled()} 时使用，代替上面两个集合
+	 */
+	final ConnectionBag connectionBag = new ConnectionBag();
 	/**
 	 * 全局统计 - 获取连接的次数
 	 */
@@ -71,50 +76,77 @@ public class PoolState {
 	 */
 	protected long badConnectionCount = 0;
 
+	/*
+	 * 以下为 connectionBag 的全局统计，含义与上面同名的字段一致。
+	 * 使用 LongAdder 累加，避免无锁的获取和归还连接时竞争 PoolState 的锁；对外的统计方法会将两者相加
+	 */
+	final LongAdder bagRequestCount = new LongAdder();
+	final LongAdder bagAccumulatedRequestTime = new LongAdder();
+	final LongAdder bagAccumulatedCheckoutTime = new LongAdder();
+	final LongAdder bagClaimedOverdueConnectionCount = new LongAdder();
+	final LongAdder bagAccumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+	final LongAdder bagAccumulatedWaitTime = new LongAdder();
+	final LongAdder bagHadToWaitCount = new LongAdder();
+	final LongAdder bagBadConnectionCount = new LongAdder();
+
 	public PoolState(PooledDataSource dataSource) {
 		this.dataSource = dataSource;
 	}
 
 	public synchronized long getRequestCount() {
-		return requestCount;
+		return requestCount + bagRequestCount.sum();
 	}
 
 	public synchronized long getAverageRequestTime() {
-		return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+		long requests = getRequestCount();
+		return requests == 0 ? 0 : (accumulatedRequestTime + bagAccumulatedRequestTime.sum()) / requests;
 	}
 
 	public synchronized long getAverageWaitTime() {
-		return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+		long waits = getHadToWaitCount();
+		return waits == 0 ? 0 : (accumulatedWaitTime + bagAccumulatedWaitTime.sum()) / waits;
 
 	}
 
 	public synchronized long getHadToWaitCount() {
-		return hadToWaitCount;
+		return hadToWaitCount + bagHadToWaitCount.sum();
 	}
 
 	public synchronized long getBadConnectionCount() {
-		return badConnectionCount;
+		return badConnectionCount + bagBadConnectionCount.sum();
 	}
 
 	public synchronized long getClaimedOverdueConnectionCount() {
-		return claimedOverdueConnectionCount;
+		return claimedOverdueConnectionCount + bagClaimedOverdueConnectionCount.sum();
 	}
 
 	public synchronized long getAverageOverdueCheckoutTime() {
-		return claimedOverdueConnectionCount == 0 ? 0
-				: accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+		long overdue = getClaimedOverdueConnectionCount();
+		return overdue == 0 ? 0
+				: (accumulatedCheckoutTimeOfOverdueConnections + bagAccumulatedCheckoutTimeOfOverdueConnections.sum()) / overdue;
 	}
 
 	public synchronized long getAverageCheckoutTime() {
-		return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+		long requests = getRequestCount();
+		return requests == 0 ? 0 : (accumulatedCheckoutTime + bagAccumulatedCheckoutTime.sum()) / requests;
 	}
 
-	public synchronized int getIdleConnectionCount() {
-		return idleConnections.size();
+	public int getIdleConnectionCount() {
+		if (dataSource.isPoolConcurrentBagEnabled()) {
+			return connectionBag.getCount(ConnectionBag.STATE_NOT_IN_USE);
+		}
+		synchronized (this) {
+			return idleConnections.size();
+		}
 	}
 
-	public synchronized int getActiveConnectionCount() {
-		return activeConnections.size();
+	public int getActiveConnectionCount() {
+		if (dataSource.isPoolConcurrentBagEnabled()) {
+			return connectionBag.getCount(ConnectionBag.STATE_IN_USE);
+		}
+		synchronized (this) {
+			return activeConnections.size();
+		}
 	}
 
 	@Override
@@ -133,6 +165,11 @@ public class PoolState {
 		builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
 		builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
 		builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+		builder.append("\n poolConcurrentBagEnabled       ").append(dataSource.poolConcurrentBagEnabled);
+		builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+		builder.append("\n poolIdleTimeout                ").append(dataSource.poolIdleTimeout);
+		builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+		builder.append("\n poolKeepaliveTime              ").append(dataSource.poolKeepaliveTime);
 		builder.append("\n ---STATUS-----------------------------------------------------");
 		builder.append("\n activeConnections              ").append(getActiveConnectionCount());
 		builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -67,6 +67,10 @@ class PooledConnection implements InvocationHandler {
 	 * 最后更新时间
 	 */
 	private long lastUsedTimestamp;
+	/**
+	 * 最后一次确认连接有效的时间
+	 */
+	private volatile long lastValidatedTimestamp;
 	/**
 	 * 连接的标识，即 {@link PooledDataSource#expectedConnectionTypeCode}
 	 */
@@ -74,7 +78,11 @@ class PooledConnection implements InvocationHandler {
 	/**
 	 * 是否有效
 	 */
-	private boolean valid;
+	private volatile boolean valid;
+	/**
+	 * 所属的 {@link ConnectionBag.Entry} 对象，仅在 {@link PooledDataSource#isPoolConcurrentBagEnabled()} 时使用
+	 */
+	private ConnectionBag.Entry bagEntry;
 
 	/**
 	 * Constructor for SimplePooledConnection that uses the Connection and
@@ -90,6 +98,7 @@ class PooledConnection implements InvocationHandler {
 		this.dataSource = dataSource;
 		this.createdTimestamp = System.currentTimeMillis();
 		this.lastUsedTimestamp = System.currentTimeMillis();
+		this.lastValidatedTimestamp = this.createdTimestamp;
 		this.valid = true;
 		// <1> 创建代理的 Connection 对象
 		this.proxyConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), IFACES, this);
@@ -111,6 +120,24 @@ class PooledConnection implements InvocationHandler {
 		return valid && realConnection != null && dataSource.pingConnection(this);
 	}
 
+	/**
+	 * Getter for the bag entry this connection belongs to.
+	 *
+	 * @return The entry, or null if the pool does not use a {@link ConnectionBag}
+	 */
+	ConnectionBag.Entry getBagEntry() {
+		return bagEntry;
+	}
+
+	/**
+	 * Setter for the bag entry this connection belongs to.
+	 *
+	 * @param bagEntry - the entry
+	 */
+	void setBagEntry(ConnectionBag.Entry bagEntry) {
+		this.bagEntry = bagEntry;
+	}
+
 	/**
 	 * Getter for the *real* connection that this wraps.
 	 *
@@ -174,6 +201,36 @@ class PooledConnection implements InvocationHandler {
 		this.createdTimestamp = createdTimestamp;
 	}
 
+	/**
+	 * Getter for the time that the connection was last known to be valid.
+	 *
+	 * @return - the timestamp
+	 * @since 3.5.3
+	 */
+	public long getLastValidatedTimestamp() {
+		return lastValidatedTimestamp;
+	}
+
+	/**
+	 * Setter for the time that the connection was last known to be valid.
+	 *
+	 * @param lastValidatedTimestamp - the timestamp
+	 * @since 3.5.3
+	 */
+	public void setLastValidatedTimestamp(long lastValidatedTimestamp) {
+		this.lastValidatedTimestamp = lastValidatedTimestamp;
+	}
+
+	/**
+	 * Getter for the time since this connection was last known to be valid.
+	 *
+	 * @return - the time since the last validation
+	 * @since 3.5.3
+	 */
+	public long getTimeElapsedSinceLastValidation() {
+		return System.currentTimeMillis() - lastValidatedTimestamp;
+	}
+
 	/**
 	 * Getter for the time that the connection was last used.
 	 *
@@ -22,7 +22,10 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -40,6 +43,11 @@ public class PooledDataSource implements DataSource {
 
 	private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
+	/**
+	 * 后台校验连接时，{@link Connection#isValid(int)} 的超时秒数
+	 */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
 	/**
 	 * PoolState 对象，记录池化的状态
 	 */
@@ -86,10 +94,38 @@ public class PooledDataSource implements DataSource {
 	 * 配置 poolPingQuery 的频率。可以被设置为和数据库连接超时时间一样，来避免不必要的侦测
 	 */
 	protected int poolPingConnectionsNotUsedFor;
+	/**
+	 * 是否使用无锁的 {@link ConnectionBag} 来获取和归还连接，代替对整个 {@link PoolState} 加锁
+	 */
+	protected boolean poolConcurrentBagEnabled;
+	/**
+	 * 后台线程维持的最少空闲连接数，不超过 {@link #poolMaximumIdleConnections}
+	 */
+	protected int poolMinimumIdleConnections;
+	/**
+	 * 空闲超过该时间（毫秒）的连接会被后台线程关闭，直到只剩 {@link #poolMinimumIdleConnections} 个。0 表示不关闭
+	 */
+	protected int poolIdleTimeout;
+	/**
+	 * 连接的最长存活时间（毫秒），超过后在空闲或归还时关闭。0 表示不限制
+	 */
+	protected int poolMaximumLifetime;
+	/**
+	 * 空闲超过该时间（毫秒）的连接会被后台线程校验一次。0 表示不校验
+	 */
+	protected int poolKeepaliveTime;
+	/**
+	 * 后台线程的执行间隔（毫秒）
+	 */
+	protected int poolHousekeepingPeriod = 30000;
+	/**
+	 * 后台线程，在设置了上面任意一个属性后，首次获取连接时启动
+	 */
+	private final PoolHousekeeper housekeeper = new PoolHousekeeper(this);
 	/**
 	 * 期望 Connection 的类型编码，通过 {@link #assembleConnectionTypeCode(String, String, String)} 计算。
 	 */
-	private int expectedConnectionTypeCode;
+	private volatile int expectedConnectionTypeCode;
 
 	public PooledDataSource() {
 		dataSource = new UnpooledDataSource();
@@ -290,6 +326,82 @@ public class PooledDataSource implements DataSource {
 		forceCloseAll();
 	}
 
+	/**
+	 * Determines if connections are checked out and returned through a lock-free
+	 * concurrent bag instead of a pool-wide monitor. Threads get back the
+	 * connections they recently returned first, then an idle one from a shared
+	 * queue, and finally wait on a fair hand-off queue. Rollback, ping and close
+	 * calls never run under a pool-wide lock in this mode.
+	 *
+	 * @param poolConcurrentBagEnabled True to use the concurrent bag
+	 * @since 3.5.3
+	 */
+	public void setPoolConcurrentBagEnabled(boolean poolConcurrentBagEnabled) {
+		forceCloseAll();
+		this.poolConcurrentBagEnabled = poolConcurrentBagEnabled;
+	}
+
+	/**
+	 * The number of idle connections the housekeeping thread tries to keep in the
+	 * pool. It is capped by the maximum number of idle connections.
+	 *
+	 * @param poolMinimumIdleConnections The minimum number of idle connections
+	 * @since 3.5.3
+	 */
+	public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+		this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+		resetHousekeeper();
+	}
+
+	/**
+	 * The time after which the housekeeping thread closes an idle connection, as
+	 * long as more than the minimum number of idle connections remain.
+	 *
+	 * @param milliseconds The idle timeout, 0 to keep idle connections
+	 * @since 3.5.3
+	 */
+	public void setPoolIdleTimeout(int milliseconds) {
+		this.poolIdleTimeout = milliseconds;
+		resetHousekeeper();
+	}
+
+	/**
+	 * The maximum age of a connection. Older connections are closed by the
+	 * housekeeping thread while idle, or when they are returned to the pool.
+	 *
+	 * @param milliseconds The maximum lifetime, 0 for no limit
+	 * @since 3.5.3
+	 */
+	public void setPoolMaximumLifetime(int milliseconds) {
+		this.poolMaximumLifetime = milliseconds;
+		resetHousekeeper();
+	}
+
+	/**
+	 * The time after which the housekeeping thread validates an idle connection,
+	 * with the ping query if it is enabled or {@link Connection#isValid(int)}
+	 * otherwise. A connection validated this way is not pinged again on checkout
+	 * until {@link #setPoolPingConnectionsNotUsedFor(int)} has elapsed.
+	 *
+	 * @param milliseconds The keepalive time, 0 to disable
+	 * @since 3.5.3
+	 */
+	public void setPoolKeepaliveTime(int milliseconds) {
+		this.poolKeepaliveTime = milliseconds;
+		resetHousekeeper();
+	}
+
+	/**
+	 * The delay between two runs of the housekeeping thread.
+	 *
+	 * @param milliseconds The housekeeping period
+	 * @since 3.5.3
+	 */
+	public void setPoolHousekeepingPeriod(int milliseconds) {
+		this.poolHousekeepingPeriod = milliseconds;
+		resetHousekeeper();
+	}
+
 	public String getDriver() {
 		return dataSource.getDriver();
 	}
@@ -357,6 +469,48 @@ public class PooledDataSource implements DataSource {
 		return poolPingConnectionsNotUsedFor;
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public boolean isPoolConcurrentBagEnabled() {
+		return poolConcurrentBagEnabled;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPoolMinimumIdleConnections() {
+		return poolMinimumIdleConnections;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPoolIdleTimeout() {
+		return poolIdleTimeout;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPoolMaximumLifetime() {
+		return poolMaximumLifetime;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPoolKeepaliveTime() {
+		return poolKeepaliveTime;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPoolHousekeepingPeriod() {
+		return poolHousekeepingPeriod;
+	}
+
 	/**
 	 * Closes all active and idle connections in the pool.
 	 */
@@ -398,6 +552,10 @@ public class PooledDataSource implements DataSource {
 				}
 			}
 		}
+		// 遍历 connectionBag ，进行关闭。放在锁外，避免阻塞正在获取连接的线程
+		for (ConnectionBag.Entry entry : state.connectionBag.values()) {
+			discardConnection(entry);
+		}
 		if (log.isDebugEnabled()) {
 			log.debug("PooledDataSource forcefully closed/removed all connections.");
 		}
@@ -418,6 +576,10 @@ public class PooledDataSource implements DataSource {
 	 * @throws SQLException 异常
 	 */
 	protected void pushConnection(PooledConnection conn) throws SQLException {
+		if (poolConcurrentBagEnabled) {
+			pushBagConnection(conn);
+			return;
+		}
 
 		synchronized (state) {
 			// 从激活的连接集合中移除该连接
@@ -425,7 +587,7 @@ public class PooledDataSource implements DataSource {
 			if (conn.isValid()) { // 通过 ping 来测试连接是否有效
 				// 判断是否超过空闲连接上限，并且和当前连接池的标识匹配
 				if (state.idleConnections.size() < poolMaximumIdleConnections
-						&& conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+						&& conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn)) {
 					// 统计连接使用时长
 					state.accumulatedCheckoutTime += conn.getCheckoutTime();
 					// 回滚事务，避免使用方未提交或者回滚事务
@@ -437,6 +599,7 @@ public class PooledDataSource implements DataSource {
 					state.idleConnections.add(newConn);
 					newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
 					newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+					newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
 					// 设置原连接失效
 					// 为什么这里要创建新的 PooledConnection 对象呢？避免使用方还在使用 conn ，通过将它设置为失效，万一再次调用，会抛出异常
 					conn.invalidate();
@@ -480,6 +643,12 @@ public class PooledDataSource implements DataSource {
 	 * @throws SQLException 异常
 	 */
 	private PooledConnection popConnection(String username, String password) throws SQLException {
+		if (!housekeeper.isRunning() && isHousekeepingEnabled()) {
+			housekeeper.start(poolHousekeepingPeriod);
+		}
+		if (poolConcurrentBagEnabled) {
+			return popBagConnection(username, password);
+		}
 		boolean countedWait = false; // 标记，获取连接时，是否进行了等待
 		PooledConnection conn = null; // 最终获取到的连接对象
 		long t = System.currentTimeMillis(); // 记录当前时间
@@ -537,6 +706,7 @@ public class PooledDataSource implements DataSource {
 							conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
 							conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
 							conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+							conn.setLastValidatedTimestamp(oldestActiveConnection.getLastValidatedTimestamp());
 							// 设置 oldestActiveConnection 为无效
 							oldestActiveConnection.invalidate();
 							if (log.isDebugEnabled()) {
@@ -621,6 +791,442 @@ public class PooledDataSource implements DataSource {
 		return conn;
 	}
 
+	/**
+	 * "关闭"一个通过 {@link ConnectionBag} 获取的连接。与 {@link #pushConnection(PooledConnection)} 的逻辑一致，
+	 * 但 ping 、回滚和关闭连接都不在锁内执行
+	 *
+	 * @param conn 连接
+	 * @throws SQLException 异常
+	 */
+	private void pushBagConnection(PooledConnection conn) throws SQLException {
+		ConnectionBag.Entry entry = conn.getBagEntry();
+		// 创建新的 PooledConnection 对象，并抢占 entry 。失败说明该连接已经被其它线程回收，或者连接池已经被关闭
+		PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+		newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+		newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+		newConn.setLastValidatedTimestamp(conn.getLastValidatedTimestamp());
+		if (entry == null || entry.getState() == ConnectionBag.STATE_REMOVED
+				|| !entry.compareAndSetConnection(conn, newConn)) {
+			if (log.isDebugEnabled()) {
+				log.debug("A bad connection (" + conn.getRealHashCode()
+						+ ") attempted to return to the pool, discarding connection.");
+			}
+			state.bagBadConnectionCount.increment();
+			return;
+		}
+		// 设置原连接失效
+		conn.invalidate();
+		state.bagAccumulatedCheckoutTime.add(conn.getCheckoutTime());
+		boolean returned = false;
+		try {
+			if (newConn.isValid()) {
+				if (state.connectionBag.getCount(ConnectionBag.STATE_NOT_IN_USE) < poolMaximumIdleConnections
+						&& conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn)) {
+					// 回滚事务，避免使用方未提交或者回滚事务
+					if (!newConn.getRealConnection().getAutoCommit()) {
+						newConn.getRealConnection().rollback();
+					}
+					returned = true;
+					if (log.isDebugEnabled()) {
+						log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+					}
+				} else if (log.isDebugEnabled()) {
+					log.debug("Closed connection " + newConn.getRealHashCode() + ".");
+				}
+			} else {
+				if (log.isDebugEnabled()) {
+					log.debug("A bad connection (" + conn.getRealHashCode()
+							+ ") attempted to return to the pool, discarding connection.");
+				}
+				state.bagBadConnectionCount.increment();
+			}
+		} finally {
+			if (returned) {
+				// 放回 connectionBag ，若有线程正在等待，则直接交给它
+				requiteConnection(entry);
+			} else {
+				discardConnection(entry);
+			}
+		}
+	}
+
+	/**
+	 * 通过 {@link ConnectionBag} 获取一个连接
+	 *
+	 * @param username 用户名
+	 * @param password 密码
+	 * @return PooledConnection数据库连接
+	 * @throws SQLException 异常
+	 */
+	private PooledConnection popBagConnection(String username, String password) throws SQLException {
+		ConnectionBag bag = state.connectionBag;
+		boolean countedWait = false;
+		PooledConnection conn = null;
+		long t = System.currentTimeMillis();
+		int localBadConnectionCount = 0;
+
+		while (conn == null) {
+			ConnectionBag.Entry entry = bag.borrow();
+			if (entry != null) {
+				conn = entry.getConnection();
+				if (log.isDebugEnabled()) {
+					log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+				}
+			} else if (bag.tryReserve(poolMaximumActiveConnections)) {
+				// 先占用名额，再在锁外创建新的连接
+				boolean created = false;
+				try {
+					conn = new PooledConnection(dataSource.getConnection(), this);
+					entry = new ConnectionBag.Entry(conn);
+					created = true;
+				} finally {
+					if (!created) {
+						bag.cancelReservation();
+					}
+				}
+				// 在加入 connectionBag 之前设置，避免被其它线程当作超时连接回收
+				conn.setCheckoutTimestamp(System.currentTimeMillis());
+				bag.add(entry);
+				if (log.isDebugEnabled()) {
+					log.debug("Created connection " + conn.getRealHashCode() + ".");
+				}
+			} else {
+				conn = claimOverdueBagConnection();
+				if (conn == null) {
+					// Must wait
+					if (!countedWait) {
+						state.bagHadToWaitCount.increment();
+						countedWait = true;
+					}
+					if (log.isDebugEnabled()) {
+						log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+					}
+					long wt = System.currentTimeMillis();
+					try {
+						entry = bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						break;
+					}
+					state.bagAccumulatedWaitTime.add(System.currentTimeMillis() - wt);
+					if (entry != null) {
+						conn = entry.getConnection();
+					}
+				}
+			}
+			if (conn != null) {
+				if (conn.isValid()) {
+					try {
+						if (!conn.getRealConnection().getAutoCommit()) {
+							conn.getRealConnection().rollback();
+						}
+					} catch (SQLException e) {
+						discardConnection(conn.getBagEntry());
+						throw e;
+					}
+					conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+					conn.setCheckoutTimestamp(System.currentTimeMillis());
+					conn.setLastUsedTimestamp(System.currentTimeMillis());
+					state.bagRequestCount.increment();
+					state.bagAccumulatedRequestTime.add(System.currentTimeMillis() - t);
+				} else {
+					if (log.isDebugEnabled()) {
+						log.debug("A bad connection (" + conn.getRealHashCode()
+								+ ") was returned from the pool, getting another connection.");
+					}
+					state.bagBadConnectionCount.increment();
+					localBadConnectionCount++;
+					// 移除坏的连接，释放名额
+					discardConnection(conn.getBagEntry());
+					conn = null;
+					if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+						if (log.isDebugEnabled()) {
+							log.debug("PooledDataSource: Could not get a good connection to the database.");
+						}
+						throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+					}
+				}
+			}
+		}
+
+		if (conn == null) {
+			if (log.isDebugEnabled()) {
+				log.debug(
+						"PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+			}
+			throw new SQLException(
+					"PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+		}
+
+		return conn;
+	}
+
+	/**
+	 * 回收 {@link ConnectionBag} 中检出时间最长，且超过 {@link #poolMaximumCheckoutTime} 的连接
+	 *
+	 * @return 回收得到的连接，没有超时的连接或者被其它线程抢先时返回 null
+	 */
+	private PooledConnection claimOverdueBagConnection() {
+		PooledConnection oldestActiveConnection = null;
+		for (ConnectionBag.Entry entry : state.connectionBag.values()) {
+			PooledConnection candidate = entry.getConnection();
+			// checkoutTimestamp 为 0 表示连接正在被检出，还未设置检出时间
+			if (entry.getState() == ConnectionBag.STATE_IN_USE && candidate.getCheckoutTimestamp() > 0
+					&& candidate.getCheckoutTime() > poolMaximumCheckoutTime
+					&& (oldestActiveConnection == null
+							|| candidate.getCheckoutTimestamp() < oldestActiveConnection.getCheckoutTimestamp())) {
+				oldestActiveConnection = candidate;
+			}
+		}
+		if (oldestActiveConnection == null) {
+			return null;
+		}
+		long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+		PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+		conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+		conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+		conn.setLastValidatedTimestamp(oldestActiveConnection.getLastValidatedTimestamp());
+		if (!oldestActiveConnection.getBagEntry().compareAndSetConnection(oldestActiveConnection, conn)) {
+			return null;
+		}
+		state.bagClaimedOverdueConnectionCount.increment();
+		state.bagAccumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+		state.bagAccumulatedCheckoutTime.add(longestCheckoutTime);
+		oldestActiveConnection.invalidate();
+		try {
+			if (!conn.getRealConnection().getAutoCommit()) {
+				conn.getRealConnection().rollback();
+			}
+		} catch (SQLException e) {
+			// 与 popConnection 一致，交给后续的 isValid 检查处理
+			log.debug("Bad connection. Could not roll back");
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+		}
+		return conn;
+	}
+
+	/**
+	 * 从 {@link ConnectionBag} 中移除连接，并关闭真实的连接
+	 *
+	 * @param entry 连接所在的 Entry
+	 */
+	private void discardConnection(ConnectionBag.Entry entry) {
+		if (entry == null || !state.connectionBag.remove(entry)) {
+			return;
+		}
+		PooledConnection conn = entry.getConnection();
+		conn.invalidate();
+		try {
+			Connection realConn = conn.getRealConnection();
+			if (!realConn.getAutoCommit()) {
+				realConn.rollback();
+			}
+			realConn.close();
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+
+	private boolean isHousekeepingEnabled() {
+		return poolMinimumIdleConnections > 0 || poolIdleTimeout > 0 || poolMaximumLifetime > 0 || poolKeepaliveTime > 0;
+	}
+
+	private void resetHousekeeper() {
+		housekeeper.stop();
+		forceCloseAll();
+	}
+
+	private boolean isExpired(PooledConnection conn) {
+		return poolMaximumLifetime > 0 && conn.getAge() > poolMaximumLifetime;
+	}
+
+	/**
+	 * 后台维护连接池：关闭超过存活时间或空闲超时的连接，校验长时间空闲的连接，并预先创建连接直到
+	 * {@link #poolMinimumIdleConnections} 个空闲连接。所有 JDBC 调用都在锁外执行，获取连接的线程不需要等待
+	 */
+	void housekeep() {
+		if (poolConcurrentBagEnabled) {
+			housekeepBag();
+		} else {
+			housekeepIdleConnections();
+		}
+		fillPool();
+	}
+
+	private void housekeepIdleConnections() {
+		List<PooledConnection> idleConnections;
+		synchronized (state) {
+			idleConnections = new ArrayList<>(state.idleConnections);
+		}
+		int idleCount = idleConnections.size();
+		for (PooledConnection conn : idleConnections) {
+			boolean retire = isExpired(conn) || isIdleTimedOut(conn, idleCount);
+			if (!retire && !needsKeepalive(conn)) {
+				continue;
+			}
+			// 从空闲集合中取出，避免被其它线程获取
+			synchronized (state) {
+				if (!state.idleConnections.remove(conn)) {
+					continue;
+				}
+			}
+			if (!retire && keepalive(conn)) {
+				synchronized (state) {
+					if (state.idleConnections.size() < poolMaximumIdleConnections) {
+						state.idleConnections.add(conn);
+						state.notifyAll();
+						continue;
+					}
+				}
+			}
+			idleCount--;
+			conn.invalidate();
+			closeQuietly(conn.getRealConnection());
+			if (log.isDebugEnabled()) {
+				log.debug("Housekeeper closed connection " + conn.getRealHashCode() + ".");
+			}
+		}
+	}
+
+	private void housekeepBag() {
+		ConnectionBag bag = state.connectionBag;
+		int idleCount = bag.getCount(ConnectionBag.STATE_NOT_IN_USE);
+		for (ConnectionBag.Entry entry : bag.values()) {
+			PooledConnection conn = entry.getConnection();
+			boolean retire = isExpired(conn) || isIdleTimedOut(conn, idleCount);
+			if ((!retire && !needsKeepalive(conn)) || !bag.reserve(entry)) {
+				continue;
+			}
+			if (!retire && keepalive(entry.getConnection())) {
+				requiteConnection(entry);
+			} else {
+				idleCount--;
+				discardConnection(entry);
+				if (log.isDebugEnabled()) {
+					log.debug("Housekeeper closed connection " + conn.getRealHashCode() + ".");
+				}
+			}
+		}
+	}
+
+	private void fillPool() {
+		int minimumIdle = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+		while (state.getIdleConnectionCount() < minimumIdle) {
+			if (poolConcurrentBagEnabled) {
+				ConnectionBag bag = state.connectionBag;
+				if (!bag.tryReserve(poolMaximumActiveConnections)) {
+					return;
+				}
+				ConnectionBag.Entry entry;
+				try {
+					entry = new ConnectionBag.Entry(new PooledConnection(dataSource.getConnection(), this));
+				} catch (SQLException | RuntimeException e) {
+					bag.cancelReservation();
+					log.warn("Housekeeper could not create a connection. Cause: " + e);
+					return;
+				}
+				bag.add(entry);
+				requiteConnection(entry);
+			} else {
+				// 活动连接和空闲连接的总数不能超过 poolMaximumActiveConnections
+				synchronized (state) {
+					if (!hasRoomForConnection()) {
+						return;
+					}
+				}
+				PooledConnection conn;
+				try {
+					conn = new PooledConnection(dataSource.getConnection(), this);
+				} catch (SQLException | RuntimeException e) {
+					log.warn("Housekeeper could not create a connection. Cause: " + e);
+					return;
+				}
+				synchronized (state) {
+					// 创建连接期间可能已有其他线程创建了连接，再次检查
+					if (state.idleConnections.size() < minimumIdle && hasRoomForConnection()) {
+						state.idleConnections.add(conn);
+						state.notifyAll();
+						conn = null;
+					}
+				}
+				if (conn != null) {
+					closeQuietly(conn.getRealConnection());
+					return;
+				}
+			}
+		}
+	}
+
+	private boolean hasRoomForConnection() {
+		return state.activeConnections.size() + state.idleConnections.size() < poolMaximumActiveConnections;
+	}
+
+	private boolean isIdleTimedOut(PooledConnection conn, int idleCount) {
+		return poolIdleTimeout > 0 && idleCount > poolMinimumIdleConnections
+				&& conn.getTimeElapsedSinceLastUse() > poolIdleTimeout;
+	}
+
+	private boolean needsKeepalive(PooledConnection conn) {
+		return poolKeepaliveTime > 0 && conn.getTimeElapsedSinceLastUse() > poolKeepaliveTime
+				&& conn.getTimeElapsedSinceLastValidation() > poolKeepaliveTime;
+	}
+
+	/**
+	 * 在后台线程中校验连接，使用 ping 语句或者 {@link Connection#isValid(int)}
+	 *
+	 * @param conn 连接
+	 * @return 是否有效
+	 */
+	private boolean keepalive(PooledConnection conn) {
+		Connection realConn = conn.getRealConnection();
+		try {
+			boolean valid;
+			if (poolPingEnabled) {
+				try (Statement statement = realConn.createStatement()) {
+					statement.executeQuery(poolPingQuery).close();
+				}
+				if (!realConn.getAutoCommit()) {
+					realConn.rollback();
+				}
+				valid = true;
+			} else {
+				valid = realConn.isValid(VALIDATION_TIMEOUT_SECONDS);
+			}
+			if (valid) {
+				conn.setLastValidatedTimestamp(System.currentTimeMillis());
+			}
+			return valid;
+		} catch (Exception e) {
+			log.warn("Keepalive of connection " + conn.getRealHashCode() + " failed: " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * 放回 connectionBag 。若 Entry 已经被其它线程移除，则关闭真实的连接
+	 *
+	 * @param entry 连接所在的 Entry
+	 */
+	private void requiteConnection(ConnectionBag.Entry entry) {
+		if (!state.connectionBag.requite(entry)) {
+			PooledConnection conn = entry.getConnection();
+			conn.invalidate();
+			closeQuietly(conn.getRealConnection());
+		}
+	}
+
+	private void closeQuietly(Connection realConn) {
+		try {
+			if (!realConn.getAutoCommit()) {
+				realConn.rollback();
+			}
+			realConn.close();
+		} catch (Exception e) {
+			// ignore
+		}
+	}
+
 	/**
 	 * Method to check to see if a connection is still usable
 	 *
@@ -645,7 +1251,9 @@ public class PooledDataSource implements DataSource {
 			// 是否启用侦测查询
 			if (poolPingEnabled) {
 				// 判断是否长时间未使用。若是，才需要发起 ping
-				if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+				// 后台线程刚校验过的连接，不需要再次 ping
+				if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor
+						&& conn.getTimeElapsedSinceLastValidation() > poolPingConnectionsNotUsedFor) {
 					try {
 						if (log.isDebugEnabled()) {
 							log.debug("Testing connection " + conn.getRealHashCode() + " ...");
@@ -660,6 +1268,7 @@ public class PooledDataSource implements DataSource {
 						}
 						// 标记执行成功
 						result = true;
+						conn.setLastValidatedTimestamp(System.currentTimeMillis());
 						if (log.isDebugEnabled()) {
 							log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
 						}
@@ -704,7 +1313,8 @@ public class PooledDataSource implements DataSource {
 
 	@Override
 	protected void finalize() throws Throwable {
-		// 关闭所有连接
+		// 停止后台线程，关闭所有连接
+		housekeeper.stop();
 		forceCloseAll();
 		// 执行对象销毁
 		super.finalize();
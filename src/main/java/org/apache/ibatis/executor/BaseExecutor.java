@@ -20,12 +20,17 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.PipelinedCursor;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -83,6 +88,10 @@ public abstract class BaseExecutor implements Executor {
 	 * 是否关闭
 	 */
 	private boolean closed;
+	/**
+	 * 打开的 PipelinedCursor ，它们在后台线程读取当前连接，读取期间不能执行其它操作
+	 */
+	private final List<PipelinedCursor<?>> pipelinedCursors = new ArrayList<>();
 
 	protected BaseExecutor(Configuration configuration, Transaction transaction) {
 		this.transaction = transaction;
@@ -105,6 +114,8 @@ public abstract class BaseExecutor implements Executor {
 	@Override
 	public void close(boolean forceRollback) {
 		try {
+			// 先停止后台读取，再回滚和关闭连接
+			closePipelinedCursors();
 			try {
 				rollback(forceRollback);
 			} finally {
@@ -136,10 +147,32 @@ public abstract class BaseExecutor implements Executor {
 		if (closed) {
 			throw new ExecutorException("Executor was closed.");
 		}
+		ensureNoPipelinedCursorReading();
+		StatementMetricsCollector metrics = configuration.getStatementMetricsCollector();
+		if (metrics != null) {
+			metrics.onInvocation(ms);
+		}
 		// <2> 清空本地缓存
 		clearLocalCache();
 		// <3> 执行写操作
-		return doUpdate(ms, parameter);
+		long slowThreshold = configuration.getSlowStatementThresholdMillis();
+		// 执行前生成 BoundSql ，执行后参数对象可能已被修改（例如写入了主键）
+		BoundSql boundSql = slowThreshold > 0 ? ms.getBoundSql(parameter) : null;
+		long start = slowThreshold > 0 ? System.nanoTime() : 0;
+		int rows;
+		try {
+			rows = doUpdate(ms, parameter);
+		} finally {
+			// 执行失败的语句同样检测
+			if (slowThreshold > 0) {
+				warnIfSlow(ms, boundSql, start, slowThreshold);
+			}
+		}
+		// 批量执行时返回的不是影响行数
+		if (metrics != null && rows >= 0) {
+			metrics.onRowsAffected(ms, rows);
+		}
+		return rows;
 	}
 
 	@Override
@@ -151,6 +184,7 @@ public abstract class BaseExecutor implements Executor {
 		if (closed) {
 			throw new ExecutorException("Executor was closed.");
 		}
+		ensureNoPipelinedCursorReading();
 		return doFlushStatements(isRollBack);
 	}
 
@@ -174,6 +208,11 @@ public abstract class BaseExecutor implements Executor {
 		if (closed) {
 			throw new ExecutorException("Executor was closed.");
 		}
+		ensureNoPipelinedCursorReading();
+		StatementMetricsCollector metrics = configuration.getStatementMetricsCollector();
+		if (metrics != null) {
+			metrics.onInvocation(ms);
+		}
 		// <2> 清空本地缓存，如果 queryStack 为零，并且要求清空本地缓存（配置了 flushCache = true）
 		if (queryStack == 0 && ms.isFlushCacheRequired()) {
 			clearLocalCache();
@@ -187,6 +226,9 @@ public abstract class BaseExecutor implements Executor {
 			if (list != null) { // <4.1> 获取到，则进行处理
 				// 处理存储过程的情况，将需要作为出参（`OUT`）的参数设置到本次查询的入参的属性中
 				handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
+				if (metrics != null) {
+					metrics.onLocalCacheHit(ms);
+				}
 			} else { // <4.2> 获得不到，则从数据库中查询
 				list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
 			}
@@ -216,8 +258,17 @@ public abstract class BaseExecutor implements Executor {
 	public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
 		// <1> 获得 BoundSql 对象
 		BoundSql boundSql = ms.getBoundSql(parameter);
+		StatementMetricsCollector metrics = configuration.getStatementMetricsCollector();
+		if (metrics != null) {
+			metrics.onInvocation(ms);
+		}
+		ensureNoPipelinedCursorReading();
 		// 执行查询
-		return doQueryCursor(ms, parameter, rowBounds, boundSql);
+		Cursor<E> cursor = doQueryCursor(ms, parameter, rowBounds, boundSql);
+		if (cursor instanceof PipelinedCursor) {
+			pipelinedCursors.add((PipelinedCursor<?>) cursor);
+		}
+		return cursor;
 	}
 
 	@Override
@@ -295,6 +346,7 @@ public abstract class BaseExecutor implements Executor {
 		if (closed) {
 			throw new ExecutorException("Cannot commit, transaction is already closed");
 		}
+		ensureNoPipelinedCursorReading();
 		clearLocalCache();
 		flushStatements();
 		if (required) {
@@ -305,6 +357,7 @@ public abstract class BaseExecutor implements Executor {
 	@Override
 	public void rollback(boolean required) throws SQLException {
 		if (!closed) {
+			ensureNoPipelinedCursorReading();
 			try {
 				clearLocalCache();
 				flushStatements(true);
@@ -316,6 +369,26 @@ public abstract class BaseExecutor implements Executor {
 		}
 	}
 
+	/**
+	 * PipelinedCursor 的后台线程正在读取当前连接时，抛出 ExecutorException 异常
+	 */
+	private void ensureNoPipelinedCursorReading() {
+		pipelinedCursors.removeIf(PipelinedCursor::isClosed);
+		for (PipelinedCursor<?> cursor : pipelinedCursors) {
+			if (cursor.isOpen()) {
+				throw new ExecutorException("Cannot use the session while a pipelined cursor is being read. "
+						+ "Consume or close the cursor first.");
+			}
+		}
+	}
+
+	private void closePipelinedCursors() {
+		for (PipelinedCursor<?> cursor : pipelinedCursors) {
+			cursor.close();
+		}
+		pipelinedCursors.clear();
+	}
+
 	@Override
 	public void clearLocalCache() {
 		if (!closed) {
@@ -381,10 +454,15 @@ public abstract class BaseExecutor implements Executor {
 		List<E> list;
 		// <1> 在缓存中，添加正在执行符的占位对象，因为正在执行的查询不允许提前加载需要延迟加载的属性，可见 DeferredLoad#canLoad() 方法
 		localCache.putObject(key, EXECUTION_PLACEHOLDER);
+		long slowThreshold = configuration.getSlowStatementThresholdMillis();
+		long start = slowThreshold > 0 ? System.nanoTime() : 0;
 		try {
 			// <2> 执行读操作
 			list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
 		} finally {
+			if (slowThreshold > 0) {
+				warnIfSlow(ms, boundSql, start, slowThreshold);
+			}
 			// <3> 从缓存中，移除占位对象
 			localCache.removeObject(key);
 		}
@@ -398,6 +476,65 @@ public abstract class BaseExecutor implements Executor {
 		return list;
 	}
 
+	/**
+	 * 如果语句的执行耗时超过 slowStatementThresholdMillis ，则通过语句的日志打印 SQL 和参数
+	 *
+	 * @param boundSql 执行的 SQL
+	 */
+	private void warnIfSlow(MappedStatement ms, BoundSql boundSql, long start, long thresholdMillis) {
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		if (elapsedMillis < thresholdMillis) {
+			return;
+		}
+		ms.getStatementLog().warn("Slow statement " + ms.getId() + " took " + elapsedMillis + " ms (threshold "
+				+ thresholdMillis + " ms). SQL: " + boundSql.getSql().replaceAll("\\s+", " ").trim() + " Parameters: "
+				+ getParameterValueString(boundSql));
+	}
+
+	/**
+	 * 按照 DefaultParameterHandler 的方式获得入参的值，格式与 JDBC 日志的 Parameters 一致
+	 */
+	private String getParameterValueString(BoundSql boundSql) {
+		Object parameterObject = boundSql.getParameterObject();
+		StringJoiner values = new StringJoiner(", ");
+		for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+			if (parameterMapping.getMode() == ParameterMode.OUT) {
+				continue;
+			}
+			String propertyName = parameterMapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(propertyName)) {
+				value = boundSql.getAdditionalParameter(propertyName);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				value = configuration.newMetaObject(parameterObject).getValue(propertyName);
+			}
+			values.add(value == null ? "null" : value + "(" + value.getClass().getSimpleName() + ")");
+		}
+		return values.toString();
+	}
+
+	/**
+	 * 获得数据库连接，并记录获取连接的耗时
+	 *
+	 * @param ms 执行的 MappedStatement 对象
+	 * @return 数据库连接
+	 * @throws SQLException 如果获取失败
+	 */
+	protected Connection getConnection(MappedStatement ms) throws SQLException {
+		StatementMetricsCollector metrics = configuration.getStatementMetricsCollector();
+		if (metrics == null) {
+			return getConnection(ms.getStatementLog());
+		}
+		long start = System.nanoTime();
+		Connection connection = getConnection(ms.getStatementLog());
+		metrics.onConnectionAcquired(ms, System.nanoTime() - start);
+		return connection;
+	}
+
 	protected Connection getConnection(Log statementLog) throws SQLException {
 		Connection connection = transaction.getConnection();
 		if (statementLog.isDebugEnabled()) { // 如果 debug 日志级别，则创建 ConnectionLogger 对象，进行动态代理
@@ -87,7 +87,7 @@ public class BatchExecutor extends BaseExecutor {
 			batchResult.addParameterObject(parameterObject);
 		} else { // <3> 否则，创建 Statement 和 BatchResult 对象
 		  // <3.1> 初始化 Statement 对象
-			Connection connection = getConnection(ms.getStatementLog());
+			Connection connection = getConnection(ms);
 			stmt = handler.prepare(connection, transaction.getTimeout());
 			handler.parameterize(stmt); // fix Issues 322
 			// <3.2> 设置 currentSql 和 currentStatemen
@@ -115,7 +115,7 @@ public class BatchExecutor extends BaseExecutor {
 			// 创建 StatementHandler 对象
 			StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
 			// 获得 Connection 对象
-			Connection connection = getConnection(ms.getStatementLog());
+			Connection connection = getConnection(ms);
 			// 创建 Statement 或 PrepareStatement 对象
 			stmt = handler.prepare(connection, transaction.getTimeout());
 			// 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
@@ -134,7 +134,7 @@ public class BatchExecutor extends BaseExecutor {
 		flushStatements();
 		Configuration configuration = ms.getConfiguration();
 		StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-		Connection connection = getConnection(ms.getStatementLog());
+		Connection connection = getConnection(ms);
 		Statement stmt = handler.prepare(connection, transaction.getTimeout());
 		handler.parameterize(stmt);
 		Cursor<E> cursor = handler.queryCursor(stmt);
@@ -16,21 +16,36 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheTagIndex;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
+import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
  * 支持二级缓存的 Executor 的实现类
@@ -40,6 +55,15 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class CachingExecutor implements Executor {
 
+	/**
+	 * 当前线程是否正在重新加载提前刷新的缓存项，此时查询不能读取二级缓存中的旧值
+	 */
+	private static final ThreadLocal<Boolean> reloading = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	/**
+	 * 重新加载时，参数值所在的附加参数的名字前缀
+	 */
+	private static final String RELOAD_PARAMETER_PREFIX = "__reload_";
+
 	/**
 	 * 被委托的 Executor 对象
 	 */
@@ -47,10 +71,20 @@ public class CachingExecutor implements Executor {
 	/**
 	 * TransactionalCacheManager 对象
 	 */
-	private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+	private final TransactionalCacheManager tcm;
 
 	public CachingExecutor(Executor delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * @param delegate      the executor
+	 * @param configuration the configuration holding the statistics of the caches, may be null
+	 * @since 3.5.3
+	 */
+	public CachingExecutor(Executor delegate, Configuration configuration) {
 		this.delegate = delegate;
+		this.tcm = new TransactionalCacheManager(configuration);
 		// 设置 delegate 被当前执行器所包装
 		delegate.setExecutorWrapper(this);
 	}
@@ -82,7 +116,7 @@ public class CachingExecutor implements Executor {
 	@Override
 	public int update(MappedStatement ms, Object parameterObject) throws SQLException {
     // 如果需要清空缓存，则进行清空
-		flushCacheIfRequired(ms);
+		flushCacheIfRequired(ms, parameterObject);
     // 执行 delegate 对应的方法
 		return delegate.update(ms, parameterObject);
 	}
@@ -97,7 +131,7 @@ public class CachingExecutor implements Executor {
 
 	@Override
 	public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
-		flushCacheIfRequired(ms);
+		flushCacheIfRequired(ms, parameter);
 		return delegate.queryCursor(ms, parameter, rowBounds);
 	}
 
@@ -109,21 +143,40 @@ public class CachingExecutor implements Executor {
 		// <2> 如果配置了二级缓存
 		if (cache != null) {
 			// <2.1> 如果需要清空缓存，则进行清空
-			flushCacheIfRequired(ms);
+			flushCacheIfRequired(ms, parameterObject);
 			// <2.2> 如果当前操作需要使用缓存（默认开启）
-			if (ms.isUseCache() && resultHandler == null) {
+			if (ms.isUseCache() && resultHandler == null && !reloading.get()) {
 				// <2.2.1> 如果是存储过程相关操作，保证所有的参数模式为 ParameterMode.IN
 				ensureNoOutParams(ms, boundSql);
 				@SuppressWarnings("unchecked")
         // <2.2.2> 从二级缓存中获取结果，会装饰成 TransactionalCache
 				List<E> list = (List<E>) tcm.getObject(cache, key);
 				if (list == null) {
-					// <2.2.3> 如果不存在，则从数据库中查询
+					// <2.2.3> 如果不存在，则从数据库中查询，并记录加载耗时
+					long start = System.nanoTime();
 					list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-					// <2.2.4> 将缓存结果保存至 TransactionalCache
-					tcm.putObject(cache, key, list); // issue #578 and #116
+					CacheStats stats = ms.getConfiguration().getCacheStats(cache.getId());
+					if (stats != null) {
+						stats.recordLoad(System.nanoTime() - start);
+					}
+					// <2.2.4> 将缓存结果保存至 TransactionalCache ，使用了缓存标签时，同时登记标签
+					CacheTagIndex tagIndex = ms.getConfiguration().getCacheTagIndex(cache.getId());
+					if (tagIndex != null) {
+						tcm.putObject(cache, key, list, tagIndex, ms.resolveCacheTags(parameterObject));
+					} else {
+						tcm.putObject(cache, key, list); // issue #578 and #116
+					}
+					// <2.2.5> 提前刷新的缓存，注册重新加载的方法
+					if (cache instanceof RefreshAheadCache) {
+						((RefreshAheadCache) cache).setLoader(key, newLoader(ms, boundSql, rowBounds, key));
+					}
+				} else {
+					StatementMetricsCollector metrics = ms.getConfiguration().getStatementMetricsCollector();
+					if (metrics != null) {
+						metrics.onSecondLevelCacheHit(ms);
+					}
 				}
-        // <2.2.5> 直接返回结果
+        // <2.2.6> 直接返回结果
 				return list;
 			}
 		}
@@ -157,6 +210,71 @@ public class CachingExecutor implements Executor {
 		}
 	}
 
+	/**
+	 * 创建重新加载缓存项的方法。只保留 SQL 和参数值，不引用调用方的参数对象，避免它随缓存项一直留在内存中
+	 */
+	private static Callable<List<Object>> newLoader(MappedStatement ms, BoundSql boundSql, RowBounds rowBounds,
+			CacheKey key) {
+		Configuration configuration = ms.getConfiguration();
+		TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+		Object parameterObject = boundSql.getParameterObject();
+		List<ParameterMapping> parameterMappings = new ArrayList<>();
+		Map<String, Object> parameterValues = new HashMap<>();
+		// 与 DefaultParameterHandler 一样取出每个参数的值，改为按序号命名的附加参数
+		for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+			String propertyName = parameterMapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(propertyName)) {
+				value = boundSql.getAdditionalParameter(propertyName);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				value = configuration.newMetaObject(parameterObject).getValue(propertyName);
+			}
+			String name = RELOAD_PARAMETER_PREFIX + parameterMappings.size();
+			parameterValues.put(name, value);
+			parameterMappings.add(new ParameterMapping.Builder(configuration, name, parameterMapping.getTypeHandler())
+					.mode(parameterMapping.getMode()).javaType(parameterMapping.getJavaType())
+					.jdbcType(parameterMapping.getJdbcType()).numericScale(parameterMapping.getNumericScale())
+					.resultMapId(parameterMapping.getResultMapId()).jdbcTypeName(parameterMapping.getJdbcTypeName())
+					.expression(parameterMapping.getExpression()).build());
+		}
+		String sql = boundSql.getSql();
+		return () -> reload(ms, sql, parameterMappings, parameterValues, rowBounds, key);
+	}
+
+	/**
+	 * 在新的事务中重新执行查询，不经过二级缓存。执行器由 Configuration 创建，会应用插件
+	 */
+	private static List<Object> reload(MappedStatement ms, String sql, List<ParameterMapping> parameterMappings,
+			Map<String, Object> parameterValues, RowBounds rowBounds, CacheKey key) throws SQLException {
+		Configuration configuration = ms.getConfiguration();
+		Environment environment = configuration.getEnvironment();
+		if (environment == null) {
+			return null;
+		}
+		TransactionFactory transactionFactory = environment.getTransactionFactory() == null
+				? new ManagedTransactionFactory() : environment.getTransactionFactory();
+		Transaction tx = transactionFactory.newTransaction(environment.getDataSource(), null, false);
+		Executor executor = null;
+		reloading.set(Boolean.TRUE);
+		try {
+			executor = configuration.newExecutor(tx, ExecutorType.SIMPLE);
+			BoundSql boundSql = new BoundSql(configuration, sql, parameterMappings, null);
+			parameterValues.forEach(boundSql::setAdditionalParameter);
+			return executor.query(ms, null, rowBounds, NO_RESULT_HANDLER, key, boundSql);
+		} finally {
+			reloading.remove();
+			if (executor != null) {
+				executor.close(false);
+			} else {
+				tx.close();
+			}
+		}
+	}
+
 	private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
 		if (ms.getStatementType() == StatementType.CALLABLE) {
 			for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -190,10 +308,16 @@ public class CachingExecutor implements Executor {
 		delegate.clearLocalCache();
 	}
 
-	private void flushCacheIfRequired(MappedStatement ms) {
+	private void flushCacheIfRequired(MappedStatement ms, Object parameterObject) {
 		Cache cache = ms.getCache();
 		if (cache != null && ms.isFlushCacheRequired()) {
-			tcm.clear(cache);
+			// 声明了缓存标签的写语句，只失效带有这些标签的缓存
+			CacheTagIndex tagIndex = ms.getConfiguration().getCacheTagIndex(cache.getId());
+			if (tagIndex != null && ms.getCacheTags() != null && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+				tcm.invalidate(cache, tagIndex, ms.resolveCacheTags(parameterObject));
+			} else {
+				tcm.clear(cache);
+			}
 		}
 	}
 
@@ -17,7 +17,6 @@ package org.apache.ibatis.executor;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
-import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
@@ -56,7 +55,7 @@ public class ReuseExecutor extends BaseExecutor {
     // 创建 StatementHandler 对象
 		StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
     // 初始化 Statement 对象
-		Statement stmt = prepareStatement(handler, ms.getStatementLog());
+		Statement stmt = prepareStatement(handler, ms);
     // 通过 StatementHandler 执行写操作
 		return handler.update(stmt);
 	}
@@ -68,7 +67,7 @@ public class ReuseExecutor extends BaseExecutor {
     // 创建 StatementHandler 对象
 		StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
     // 初始化 Statement 对象
-		Statement stmt = prepareStatement(handler, ms.getStatementLog());
+		Statement stmt = prepareStatement(handler, ms);
     // 通过 StatementHandler 执行写操作
 		return handler.query(stmt, resultHandler);
 	}
@@ -78,7 +77,7 @@ public class ReuseExecutor extends BaseExecutor {
 			throws SQLException {
 		Configuration configuration = ms.getConfiguration();
 		StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-		Statement stmt = prepareStatement(handler, ms.getStatementLog());
+		Statement stmt = prepareStatement(handler, ms);
 		return handler.queryCursor(stmt);
 	}
 
@@ -92,7 +91,7 @@ public class ReuseExecutor extends BaseExecutor {
 		return Collections.emptyList();
 	}
 
-	private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+	private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
 		Statement stmt;
 		BoundSql boundSql = handler.getBoundSql();
 		String sql = boundSql.getSql();
@@ -106,7 +105,7 @@ public class ReuseExecutor extends BaseExecutor {
 			applyTransactionTimeout(stmt);
 		} else {
 			// 获得 Connection 对象
-			Connection connection = getConnection(statementLog);
+			Connection connection = getConnection(ms);
       // 初始化 Statement 对象
 			stmt = handler.prepare(connection, transaction.getTimeout());
 			// 将 Statement 添加到缓存中，key 值为 当前执行的 SQL 语句
@@ -17,7 +17,6 @@ package org.apache.ibatis.executor;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
-import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
@@ -49,7 +48,7 @@ public class SimpleExecutor extends BaseExecutor {
 			// 创建 StatementHandler 对象
 			StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
 			// 初始化 Statement 对象
-			stmt = prepareStatement(handler, ms.getStatementLog());
+			stmt = prepareStatement(handler, ms);
 			// 通过 StatementHandler 执行写操作
 			return handler.update(stmt);
 		} finally {
@@ -67,7 +66,7 @@ public class SimpleExecutor extends BaseExecutor {
 			// 创建 StatementHandler 对象
 			StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
 			// 初始化 Statement 对象
-			stmt = prepareStatement(handler, ms.getStatementLog());
+			stmt = prepareStatement(handler, ms);
 			// 通过 StatementHandler 执行读操作
 			return handler.query(stmt, resultHandler);
 		} finally {
@@ -81,7 +80,7 @@ public class SimpleExecutor extends BaseExecutor {
 			throws SQLException {
 		Configuration configuration = ms.getConfiguration();
 		StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-		Statement stmt = prepareStatement(handler, ms.getStatementLog());
+		Statement stmt = prepareStatement(handler, ms);
 		Cursor<E> cursor = handler.queryCursor(stmt);
 		stmt.closeOnCompletion();
 		return cursor;
@@ -92,10 +91,10 @@ public class SimpleExecutor extends BaseExecutor {
 		return Collections.emptyList();
 	}
 
-	private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+	private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
 		Statement stmt;
 		// 获得 Connection 对象，如果开启了 Debug 模式，则返回的是一个代理对象
-		Connection connection = getConnection(statementLog);
+		Connection connection = getConnection(ms);
 		// 创建 Statement 或 PrepareStatement 对象
 		stmt = handler.prepare(connection, transaction.getTimeout());
 		// 往 Statement 中设置 SQL 语句上的参数，例如 PrepareStatement 的 ? 占位符
@@ -0,0 +1,236 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Matches the results of a batched nested select with the rows that requested them.
+ * <p>
+ * The nested select receives the parameters of all the rows of the batch as the {@code list} (or {@code collection})
+ * parameter, and each child is assigned to the rows whose parameter equals the value of its {@code foreignColumn}.
+ * Numbers are compared by value whatever their type, e.g. a {@code BigDecimal} parameter matches a {@code Long}
+ * property. A parameter of another type than all the keys of the children, e.g. a {@code String} parameter with
+ * {@code Long} properties, is rejected rather than silently matching nothing.
+ *
+ * @since 3.5.3
+ */
+public class BatchKeyMatcher {
+
+	private final Configuration configuration;
+	private final ResultMapping propertyMapping;
+	private final MappedStatement nestedQuery;
+	/**
+	 * 子对象中 foreignColumn 对应的属性，在处理第一个子对象时解析
+	 */
+	private List<String> foreignProperties;
+	/**
+	 * 子对象的键每一列的类型，用于检查父对象的键能否匹配
+	 */
+	private final List<Set<Class<?>>> childKeyTypes = new ArrayList<>();
+
+	public BatchKeyMatcher(Configuration configuration, ResultMapping propertyMapping, MappedStatement nestedQuery) {
+		this.configuration = configuration;
+		this.propertyMapping = propertyMapping;
+		this.nestedQuery = nestedQuery;
+	}
+
+	/**
+	 * 创建嵌套子查询的入参
+	 */
+	public static ParamMap<Object> newParameter(List<Object> parameterObjects) {
+		ParamMap<Object> parameter = new ParamMap<>();
+		parameter.put("collection", parameterObjects);
+		parameter.put("list", parameterObjects);
+		return parameter;
+	}
+
+	/**
+	 * 获得父对象的键，为嵌套子查询的入参
+	 */
+	public Object parentKey(Object parameterObject) {
+		if (!propertyMapping.isCompositeResult()) {
+			return normalize(parameterObject);
+		}
+		final MetaObject metaParameter = configuration.newMetaObject(parameterObject);
+		final List<Object> key = new ArrayList<>();
+		for (ResultMapping composite : propertyMapping.getComposites()) {
+			key.add(normalize(metaParameter.getValue(composite.getProperty())));
+		}
+		return key;
+	}
+
+	/**
+	 * 将子对象按 foreignColumn 的值分组，与 {@link #parentKey(Object)} 对应
+	 */
+	public Map<Object, List<Object>> groupByKey(List<Object> children) {
+		final Map<Object, List<Object>> childrenByKey = new HashMap<>();
+		for (Object child : children) {
+			if (child == null) {
+				continue;
+			}
+			if (foreignProperties == null) {
+				foreignProperties = resolveForeignProperties(child);
+			}
+			final Object key = childKey(child);
+			addKeyTypes(key);
+			childrenByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(child);
+		}
+		return childrenByKey;
+	}
+
+	/**
+	 * 获得父对象的子对象
+	 *
+	 * @param childrenByKey the children grouped by {@link #groupByKey(List)}
+	 * @param parentKey the key returned by {@link #parentKey(Object)}
+	 * @return the children of the parent, or null when there is none
+	 * @throws ExecutorException when the key of the parent cannot match the key of any child because of its type
+	 */
+	public List<Object> childrenOf(Map<Object, List<Object>> childrenByKey, Object parentKey) {
+		final List<Object> children = childrenByKey.get(parentKey);
+		if (children == null && !childKeyTypes.isEmpty()) {
+			final List<?> columns = parentKey instanceof List ? (List<?>) parentKey : Collections.singletonList(parentKey);
+			for (int i = 0; i < columns.size(); i++) {
+				final Object column = columns.get(i);
+				final Set<Class<?>> types = childKeyTypes.get(i);
+				if (column != null && !types.isEmpty() && !types.contains(column.getClass())) {
+					throw new ExecutorException("Cannot match the parameter " + column + " (" + column.getClass().getName()
+							+ ") of property '" + propertyMapping.getProperty() + "' with the results of '" + nestedQuery.getId()
+							+ "', whose foreignColumn values are of type " + types + ".");
+				}
+			}
+		}
+		return children;
+	}
+
+	private void addKeyTypes(Object key) {
+		final List<?> columns = foreignProperties.size() == 1 ? Collections.singletonList(key) : (List<?>) key;
+		for (int i = 0; i < columns.size(); i++) {
+			if (childKeyTypes.size() <= i) {
+				childKeyTypes.add(new HashSet<>());
+			}
+			if (columns.get(i) != null) {
+				childKeyTypes.get(i).add(columns.get(i).getClass());
+			}
+		}
+	}
+
+	private Object childKey(Object child) {
+		final MetaObject metaChild = configuration.newMetaObject(child);
+		if (foreignProperties.size() == 1) {
+			return normalize(metaChild.getValue(foreignProperties.get(0)));
+		}
+		final List<Object> key = new ArrayList<>();
+		for (String foreignProperty : foreignProperties) {
+			key.add(normalize(metaChild.getValue(foreignProperty)));
+		}
+		return key;
+	}
+
+	/**
+	 * 父对象的入参与子对象的属性类型可能不同，例如 Integer 、Long 和 BigDecimal ，数字统一转换成去掉末尾 0 的 BigDecimal
+	 */
+	private Object normalize(Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return BigDecimal.valueOf(((Number) value).longValue());
+		} else if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).stripTrailingZeros();
+		} else if (value instanceof BigInteger) {
+			return new BigDecimal((BigInteger) value);
+		} else if (value instanceof Number) {
+			try {
+				return new BigDecimal(value.toString()).stripTrailingZeros();
+			} catch (NumberFormatException e) {
+				// 例如 NaN 和 Infinity
+				return value;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * 获得子对象中 foreignColumn 对应的属性，默认与 column 同名
+	 */
+	private List<String> resolveForeignProperties(Object child) {
+		final List<String> foreignColumns = new ArrayList<>();
+		if (propertyMapping.getForeignColumn() != null) {
+			for (String foreignColumn : propertyMapping.getForeignColumn().split(",")) {
+				foreignColumns.add(foreignColumn.trim());
+			}
+		} else if (propertyMapping.isCompositeResult()) {
+			for (ResultMapping composite : propertyMapping.getComposites()) {
+				foreignColumns.add(composite.getColumn());
+			}
+		} else {
+			foreignColumns.add(propertyMapping.getColumn());
+		}
+		final int keySize = propertyMapping.isCompositeResult() ? propertyMapping.getComposites().size() : 1;
+		if (foreignColumns.size() != keySize) {
+			throw new ExecutorException("The foreignColumn of property '" + propertyMapping.getProperty()
+					+ "' must list one column for each column of the nested select '" + nestedQuery.getId() + "'.");
+		}
+		final ResultMap resultMap = nestedQuery.getResultMaps().get(0);
+		final List<String> properties = new ArrayList<>();
+		for (String foreignColumn : foreignColumns) {
+			properties.add(resolveForeignProperty(resultMap, foreignColumn, child));
+		}
+		return properties;
+	}
+
+	private String resolveForeignProperty(ResultMap resultMap, String foreignColumn, Object child) {
+		if (child instanceof Map) {
+			// 结果为 Map 时，键为列名，大小写取决于数据库
+			for (Object key : ((Map<?, ?>) child).keySet()) {
+				if (key instanceof String && foreignColumn.equalsIgnoreCase((String) key)) {
+					return (String) key;
+				}
+			}
+		}
+		for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+			if (foreignColumn.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getProperty() != null) {
+				return resultMapping.getProperty();
+			}
+		}
+		// 自动映射的列
+		final MetaClass metaClass = MetaClass.forClass(child.getClass(), configuration.getReflectorFactory());
+		final String property = metaClass.findProperty(foreignColumn, configuration.isMapUnderscoreToCamelCase());
+		if (property != null && metaClass.hasGetter(property)) {
+			return property;
+		}
+		throw new ExecutorException("Cannot batch fetch the results of '" + nestedQuery.getId() + "' because its column '"
+				+ foreignColumn + "' is not mapped to a property of " + child.getClass().getName()
+				+ ". Map the column or set the foreignColumn attribute.");
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Lazy loader of a nested select whose fetchType is {@code lazyBatch}.
+ * <p>
+ * All the loaders of a property created from the same result set share a {@link Batch}. The first one that is
+ * triggered runs the nested select for itself and for up to {@code batchFetchSize} of the siblings not loaded yet, so
+ * iterating the results costs one select per batch instead of one per row. Each sibling still gets its value only
+ * when its own property is read.
+ *
+ * @since 3.5.3
+ */
+public class BatchResultLoader extends ResultLoader {
+
+	/**
+	 * 同一结果集中同一属性的批量加载
+	 */
+	private final Batch batch;
+	/**
+	 * 在批量加载中的键
+	 */
+	private final Object key;
+
+	public BatchResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement,
+			Object parameterObject, Class<?> targetType, Batch batch) {
+		// 单独加载时（例如反序列化后）入参为只包含当前行参数的 list
+		super(config, executor, mappedStatement,
+				BatchKeyMatcher.newParameter(Collections.singletonList(parameterObject)), targetType, null, null);
+		this.batch = batch;
+		this.key = batch.add(parameterObject);
+	}
+
+	private BatchResultLoader(BatchResultLoader loader, Executor executor) {
+		super(loader.configuration, executor, loader.mappedStatement, loader.parameterObject, loader.targetType, null,
+				null);
+		this.batch = loader.batch;
+		this.key = loader.key;
+	}
+
+	@Override
+	public Object loadResult() throws SQLException {
+		resultObject = resultExtractor.extractObjectFromList(batch.load(this), targetType);
+		return resultObject;
+	}
+
+	@Override
+	ResultLoader withExecutor(Executor executor) {
+		return new BatchResultLoader(this, executor);
+	}
+
+	/**
+	 * The pending and loaded keys of a lazily batched property.
+	 */
+	public static class Batch {
+
+		private final BatchKeyMatcher matcher;
+		private final int batchFetchSize;
+		/**
+		 * 未加载的键与嵌套子查询入参的映射，按结果行的顺序
+		 */
+		private final Map<Object, Object> pendingParameters = new LinkedHashMap<>();
+		/**
+		 * 已加载的键与子对象的映射
+		 */
+		private final Map<Object, List<Object>> loadedChildren = new HashMap<>();
+
+		public Batch(Configuration configuration, ResultMapping propertyMapping, MappedStatement nestedQuery) {
+			this.matcher = new BatchKeyMatcher(configuration, propertyMapping, nestedQuery);
+			this.batchFetchSize = Math.max(1, configuration.getBatchFetchSize());
+		}
+
+		synchronized Object add(Object parameterObject) {
+			Object key = matcher.parentKey(parameterObject);
+			if (!loadedChildren.containsKey(key)) {
+				pendingParameters.putIfAbsent(key, parameterObject);
+			}
+			return key;
+		}
+
+		synchronized List<Object> load(BatchResultLoader loader) throws SQLException {
+			List<Object> children = loadedChildren.get(loader.key);
+			if (children == null) {
+				// <1> 当前行的参数，加上之后未加载的参数，最多 batchFetchSize 个
+				final List<Object> keys = new ArrayList<>();
+				final List<Object> parameterObjects = new ArrayList<>();
+				keys.add(loader.key);
+				parameterObjects.add(pendingParameters.remove(loader.key));
+				for (Iterator<Map.Entry<Object, Object>> it = pendingParameters.entrySet().iterator();
+						it.hasNext() && keys.size() < batchFetchSize;) {
+					Map.Entry<Object, Object> entry = it.next();
+					keys.add(entry.getKey());
+					parameterObjects.add(entry.getValue());
+					it.remove();
+				}
+				// <2> 执行嵌套子查询，并按外键分组
+				final Map<Object, List<Object>> childrenByKey = matcher
+						.groupByKey(loader.selectList(BatchKeyMatcher.newParameter(parameterObjects), null, null));
+				for (Object key : keys) {
+					final List<Object> keyChildren = matcher.childrenOf(childrenByKey, key);
+					loadedChildren.put(key, keyChildren == null ? Collections.emptyList() : keyChildren);
+				}
+				children = loadedChildren.get(loader.key);
+			}
+			return new ArrayList<>(children);
+		}
+
+	}
+
+}
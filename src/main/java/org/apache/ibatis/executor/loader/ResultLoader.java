@@ -110,6 +110,10 @@ public class ResultLoader {
 	}
 
 	private <E> List<E> selectList() throws SQLException {
+		return selectList(parameterObject, cacheKey, boundSql);
+	}
+
+	protected <E> List<E> selectList(Object parameterObject, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
 		// <1> 获得 Executor 对象
 		Executor localExecutor = executor;
 		if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
@@ -117,6 +121,13 @@ public class ResultLoader {
 			localExecutor = newExecutor();
 		}
 		try {
+			// 反序列化后加载时，没有 BoundSql 和 CacheKey
+			if (boundSql == null) {
+				boundSql = mappedStatement.getBoundSql(parameterObject);
+			}
+			if (cacheKey == null) {
+				cacheKey = localExecutor.createCacheKey(mappedStatement, parameterObject, RowBounds.DEFAULT, boundSql);
+			}
 			// <2> 执行查询
 			return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
 		} finally {
@@ -127,6 +138,13 @@ public class ResultLoader {
 		}
 	}
 
+	/**
+	 * 创建使用指定执行器的 ResultLoader 对象
+	 */
+	ResultLoader withExecutor(Executor executor) {
+		return new ResultLoader(configuration, executor, mappedStatement, parameterObject, targetType, cacheKey, boundSql);
+	}
+
   /**
    * 创建一个新的执行器
    *
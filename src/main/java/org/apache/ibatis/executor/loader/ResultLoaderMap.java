@@ -32,6 +32,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
@@ -222,11 +223,13 @@ public class ResultLoaderMap {
 			 * A better approach would be making executors thread safe.
 			 */
 			if (this.serializationCheck == null) {
-				final ResultLoader old = this.resultLoader;
-				this.resultLoader = new ResultLoader(old.configuration, new ClosedExecutor(), old.mappedStatement,
-						old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
+				this.resultLoader = this.resultLoader.withExecutor(new ClosedExecutor());
 			}
 
+			StatementMetricsCollector metrics = this.resultLoader.configuration.getStatementMetricsCollector();
+			if (metrics != null) {
+				metrics.onLazyLoad(this.resultLoader.mappedStatement);
+			}
 			this.metaResultObject.setValue(property, this.resultLoader.loadResult());
 		}
 
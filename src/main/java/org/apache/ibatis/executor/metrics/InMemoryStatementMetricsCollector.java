@@ -0,0 +1,113 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * The default {@link StatementMetricsCollector}, it keeps a {@link StatementMetrics} per mapped statement in memory.
+ * <p>
+ * It can be enabled with the {@code statementMetricsCollector} setting, using the {@code IN_MEMORY} alias:
+ * <pre>
+ * &lt;setting name="statementMetricsCollector" value="IN_MEMORY"/&gt;
+ * </pre>
+ * and read back with {@code (InMemoryStatementMetricsCollector) configuration.getStatementMetricsCollector()}.
+ *
+ * @since 3.5.3
+ */
+public class InMemoryStatementMetricsCollector implements StatementMetricsCollector {
+
+	/**
+	 * StatementMetrics 映射
+	 *
+	 * KEY：MappedStatement 的编号
+	 */
+	private final Map<String, StatementMetrics> metrics = new ConcurrentHashMap<>();
+
+	@Override
+	public void onInvocation(MappedStatement ms) {
+		metricsFor(ms).recordInvocation();
+	}
+
+	@Override
+	public void onLocalCacheHit(MappedStatement ms) {
+		metricsFor(ms).recordLocalCacheHit();
+	}
+
+	@Override
+	public void onSecondLevelCacheHit(MappedStatement ms) {
+		metricsFor(ms).recordSecondLevelCacheHit();
+	}
+
+	@Override
+	public void onConnectionAcquired(MappedStatement ms, long nanos) {
+		metricsFor(ms).getConnectionAcquireTime().record(nanos);
+	}
+
+	@Override
+	public void onPrepared(MappedStatement ms, long nanos) {
+		metricsFor(ms).getPrepareTime().record(nanos);
+	}
+
+	@Override
+	public void onExecuted(MappedStatement ms, long nanos) {
+		metricsFor(ms).getExecuteTime().record(nanos);
+	}
+
+	@Override
+	public void onResultsMapped(MappedStatement ms, long nanos, int rows) {
+		StatementMetrics statementMetrics = metricsFor(ms);
+		statementMetrics.getMappingTime().record(nanos);
+		statementMetrics.recordRowsReturned(rows);
+	}
+
+	@Override
+	public void onRowsAffected(MappedStatement ms, int rows) {
+		metricsFor(ms).recordRowsAffected(rows);
+	}
+
+	@Override
+	public void onLazyLoad(MappedStatement ms) {
+		metricsFor(ms).recordLazyLoad();
+	}
+
+	/**
+	 * @return the metrics of the statement, null if it was never executed
+	 */
+	public StatementMetrics getMetrics(String statementId) {
+		return metrics.get(statementId);
+	}
+
+	public Collection<StatementMetrics> getMetrics() {
+		return Collections.unmodifiableCollection(metrics.values());
+	}
+
+	public void reset() {
+		metrics.values().forEach(StatementMetrics::reset);
+	}
+
+	private StatementMetrics metricsFor(MappedStatement ms) {
+		StatementMetrics statementMetrics = metrics.get(ms.getId());
+		// 先 get 再 computeIfAbsent ，避免 Java 8 下 computeIfAbsent 的锁竞争
+		return statementMetrics != null ? statementMetrics : metrics.computeIfAbsent(ms.getId(), StatementMetrics::new);
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one mapped statement collected by the {@link InMemoryStatementMetricsCollector}.
+ *
+ * @since 3.5.3
+ */
+public class StatementMetrics {
+
+	/**
+	 * MappedStatement 的编号
+	 */
+	private final String id;
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder localCacheHits = new LongAdder();
+	private final LongAdder secondLevelCacheHits = new LongAdder();
+	private final LongAdder rowsReturned = new LongAdder();
+	private final LongAdder rowsAffected = new LongAdder();
+	private final LongAdder lazyLoads = new LongAdder();
+	private final LatencyHistogram connectionAcquireTime = new LatencyHistogram();
+	private final LatencyHistogram prepareTime = new LatencyHistogram();
+	private final LatencyHistogram executeTime = new LatencyHistogram();
+	private final LatencyHistogram mappingTime = new LatencyHistogram();
+
+	public StatementMetrics(String id) {
+		this.id = id;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the number of executions, including the ones answered from the caches
+	 */
+	public long getCount() {
+		return invocations.sum() + secondLevelCacheHits.sum();
+	}
+
+	public long getLocalCacheHits() {
+		return localCacheHits.sum();
+	}
+
+	public long getSecondLevelCacheHits() {
+		return secondLevelCacheHits.sum();
+	}
+
+	public long getRowsReturned() {
+		return rowsReturned.sum();
+	}
+
+	public long getRowsAffected() {
+		return rowsAffected.sum();
+	}
+
+	public long getLazyLoads() {
+		return lazyLoads.sum();
+	}
+
+	public LatencyHistogram getConnectionAcquireTime() {
+		return connectionAcquireTime;
+	}
+
+	public LatencyHistogram getPrepareTime() {
+		return prepareTime;
+	}
+
+	public LatencyHistogram getExecuteTime() {
+		return executeTime;
+	}
+
+	public LatencyHistogram getMappingTime() {
+		return mappingTime;
+	}
+
+	public void reset() {
+		invocations.reset();
+		localCacheHits.reset();
+		secondLevelCacheHits.reset();
+		rowsReturned.reset();
+		rowsAffected.reset();
+		lazyLoads.reset();
+		connectionAcquireTime.reset();
+		prepareTime.reset();
+		executeTime.reset();
+		mappingTime.reset();
+	}
+
+	void recordInvocation() {
+		invocations.increment();
+	}
+
+	void recordLocalCacheHit() {
+		localCacheHits.increment();
+	}
+
+	void recordSecondLevelCacheHit() {
+		secondLevelCacheHits.increment();
+	}
+
+	void recordRowsReturned(int rows) {
+		rowsReturned.add(rows);
+	}
+
+	void recordRowsAffected(int rows) {
+		rowsAffected.add(rows);
+	}
+
+	void recordLazyLoad() {
+		lazyLoads.increment();
+	}
+
+	@Override
+	public String toString() {
+		return "StatementMetrics [id=" + id + ", count=" + getCount() + ", localCacheHits=" + getLocalCacheHits()
+				+ ", secondLevelCacheHits=" + getSecondLevelCacheHits() + ", rowsReturned=" + getRowsReturned()
+				+ ", rowsAffected=" + getRowsAffected() + ", lazyLoads=" + getLazyLoads() + ", executeTime=" + executeTime
+				+ "]";
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Receives the execution events of the mapped statements.
+ * <p>
+ * The collector configured with {@link org.apache.ibatis.session.Configuration#setStatementMetricsCollector} is
+ * called by the {@link org.apache.ibatis.executor.BaseExecutor}, the
+ * {@link org.apache.ibatis.executor.CachingExecutor}, the statement handlers, the
+ * {@link org.apache.ibatis.executor.resultset.DefaultResultSetHandler} and the lazy loader. It is called on the
+ * thread executing the statement, so implementations must be thread safe and should return quickly. All the
+ * durations are in nanoseconds.
+ *
+ * @since 3.5.3
+ * @see InMemoryStatementMetricsCollector
+ */
+public interface StatementMetricsCollector {
+
+  /**
+   * The statement reached the executor, it is either answered from the local cache or sent to the database.
+   */
+  default void onInvocation(MappedStatement ms) {
+    // NOP
+  }
+
+  /**
+   * The query was answered from the local (first level) cache.
+   */
+  default void onLocalCacheHit(MappedStatement ms) {
+    // NOP
+  }
+
+  /**
+   * The query was answered from the second level cache, it does not reach {@link #onInvocation}.
+   */
+  default void onSecondLevelCacheHit(MappedStatement ms) {
+    // NOP
+  }
+
+  /**
+   * @param nanos the time spent waiting for the connection of the transaction
+   */
+  default void onConnectionAcquired(MappedStatement ms, long nanos) {
+    // NOP
+  }
+
+  /**
+   * @param nanos the time spent creating and configuring the JDBC statement
+   */
+  default void onPrepared(MappedStatement ms, long nanos) {
+    // NOP
+  }
+
+  /**
+   * @param nanos the time spent in the JDBC execute call
+   */
+  default void onExecuted(MappedStatement ms, long nanos) {
+    // NOP
+  }
+
+  /**
+   * @param nanos the time spent mapping the result sets, including the nested queries loaded eagerly
+   * @param rows the number of mapped top level rows
+   */
+  default void onResultsMapped(MappedStatement ms, long nanos, int rows) {
+    // NOP
+  }
+
+  /**
+   * @param rows the number of rows affected by an insert, update or delete
+   */
+  default void onRowsAffected(MappedStatement ms, int rows) {
+    // NOP
+  }
+
+  /**
+   * A lazy loaded property was loaded by running the given statement.
+   */
+  default void onLazyLoad(MappedStatement ms) {
+    // NOP
+  }
+
+}
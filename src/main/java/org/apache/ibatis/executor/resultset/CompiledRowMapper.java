@@ -0,0 +1,169 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the columns of a result set to the properties of a result object by column index.
+ * <p>
+ * It is compiled once for a result map and a result set, when all the mapped properties are plain properties of the
+ * result type, and fills each row without creating a {@link org.apache.ibatis.reflection.MetaObject} nor resolving
+ * property names again.
+ */
+final class CompiledRowMapper {
+
+	/**
+	 * 编译时对应的 ResultSetWrapper 对象，列的顺序只在同一个结果集中有效
+	 */
+	private final ResultSetWrapper rsw;
+	/**
+	 * 结果对象的类型
+	 */
+	private final Class<?> type;
+	private final boolean callSettersOnNulls;
+	private final List<Column> columns = new ArrayList<>();
+
+	CompiledRowMapper(ResultSetWrapper rsw, Class<?> type, boolean callSettersOnNulls) {
+		this.rsw = rsw;
+		this.type = type;
+		this.callSettersOnNulls = callSettersOnNulls;
+	}
+
+	/**
+	 * 添加一列，按添加的顺序设置属性
+	 *
+	 * @return 结果集中不存在该列时返回 false
+	 */
+	boolean addColumn(String columnName, TypeHandler<?> typeHandler, String property, Invoker setter,
+			boolean primitive) {
+		final List<String> columnNames = rsw.getColumnNames();
+		for (int i = 0; i < columnNames.size(); i++) {
+			if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+				columns.add(new Column(i + 1, typeHandler, property, setter, primitive));
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean isCompiledFor(ResultSetWrapper rsw) {
+		return this.rsw == rsw;
+	}
+
+	boolean canMap(Object rowValue) {
+		// ObjectFactory 可能返回子类，此时仍然通过 MetaObject 设置
+		return rowValue.getClass() == type;
+	}
+
+	/**
+	 * 将当前行的列值设置到结果对象中
+	 *
+	 * @return 是否有不为 null 的列值
+	 */
+	boolean map(ResultSet rs, Object rowValue) throws SQLException {
+		boolean foundValues = false;
+		for (Column column : columns) {
+			final Object value = column.typeHandler.getResult(rs, column.index);
+			if (value != null) {
+				foundValues = true;
+			}
+			if (value != null || (callSettersOnNulls && !column.primitive)) {
+				column.set(rowValue, value);
+			}
+		}
+		return foundValues;
+	}
+
+	/**
+	 * 读取当前行的列值，与 {@link #apply(Object, Object[])} 配合，可以在其他线程设置属性
+	 */
+	Object[] read(ResultSet rs) throws SQLException {
+		final Object[] values = new Object[columns.size()];
+		for (int i = 0; i < values.length; i++) {
+			final Column column = columns.get(i);
+			values[i] = column.typeHandler.getResult(rs, column.index);
+		}
+		return values;
+	}
+
+	/**
+	 * 将 {@link #read(ResultSet)} 读取的列值设置到结果对象中
+	 *
+	 * @return 是否有不为 null 的列值
+	 */
+	boolean apply(Object rowValue, Object[] values) {
+		boolean foundValues = false;
+		for (int i = 0; i < values.length; i++) {
+			final Column column = columns.get(i);
+			final Object value = values[i];
+			if (value != null) {
+				foundValues = true;
+			}
+			if (value != null || (callSettersOnNulls && !column.primitive)) {
+				column.set(rowValue, value);
+			}
+		}
+		return foundValues;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	private static final class Column {
+
+		/**
+		 * 列的位置，从 1 开始
+		 */
+		private final int index;
+		private final TypeHandler<?> typeHandler;
+		private final String property;
+		private final Invoker setter;
+		private final boolean primitive;
+
+		Column(int index, TypeHandler<?> typeHandler, String property, Invoker setter, boolean primitive) {
+			this.index = index;
+			this.typeHandler = typeHandler;
+			this.property = property;
+			this.setter = setter;
+			this.primitive = primitive;
+		}
+
+		void set(Object rowValue, Object value) {
+			try {
+				try {
+					setter.invoke(rowValue, new Object[] { value });
+				} catch (Throwable t) {
+					throw ExceptionUtil.unwrapThrowable(t);
+				}
+			} catch (Throwable t) {
+				throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass()
+						+ "' with value '" + value + "' Cause: " + t.toString(), t);
+			}
+		}
+
+	}
+
+}
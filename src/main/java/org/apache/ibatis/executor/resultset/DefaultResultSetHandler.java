@@ -20,24 +20,41 @@ import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PipelinedCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.executor.loader.BatchKeyMatcher;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
@@ -51,6 +68,7 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -74,6 +92,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * 延迟加载默认对象
    */
 	private static final Object DEFERRED = new Object();
+
+	/**
+	 * 语句未设置 fetchSize 时，后台映射游标的缓冲区大小
+	 */
+	private static final int DEFAULT_CURSOR_BUFFER_SIZE = 256;
   /**
    * 执行器
    */
@@ -117,7 +140,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	private final ReflectorFactory reflectorFactory;
 
 	// nested resultmaps
-	private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+	private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
 	private final Map<String, Object> ancestorObjects = new HashMap<>();
 	private Object previousRowValue;
 
@@ -125,8 +148,42 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
 	private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+	// batch fetch
+	/**
+	 * 是否可以批量加载嵌套子查询，结果全部交给 DefaultResultHandler 时才可以，否则退化为立即加载
+	 */
+	private boolean batchFetchEnabled;
+	/**
+	 * fetchType 为 batch 的 ResultMapping 与待加载的结果对象的映射
+	 */
+	private final Map<ResultMapping, List<PendingBatchLoad>> pendingBatchLoads = new IdentityHashMap<>();
+	/**
+	 * fetchType 为 lazyBatch 的 ResultMapping 与批量延迟加载的映射
+	 */
+	private final Map<ResultMapping, BatchResultLoader.Batch> lazyBatches = new IdentityHashMap<>();
+
 	// Cached Automappings
 	private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
+	/**
+	 * ResultMap 与按列的位置设置属性的 CompiledRowMapper 对象的映射，无法编译时值为 null
+	 */
+	private final Map<String, CompiledRowMapper> compiledRowMappers = new HashMap<>();
+	/**
+	 * ResultMap 与读取其 RowKey 的 RowKey.Reader 对象的映射
+	 */
+	private final Map<String, RowKey.Reader> rowKeyReaders = new HashMap<>();
+	/**
+	 * 交给 ResultHandler 的结果行数，用于语句执行指标
+	 */
+	private int handledRowCount;
+	/**
+	 * 是否检测 maxRowsWarnThreshold 和 maxRowsHardLimit ，只检测收集至 List 中的结果
+	 */
+	private boolean rowLimitsEnabled;
+	/**
+	 * 已读取的结果行数，用于检测 maxRowsWarnThreshold 和 maxRowsHardLimit
+	 */
+	private int readRowCount;
 
 	// temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
 	private boolean useConstructorMappings;
@@ -136,6 +193,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		public ResultMapping propertyMapping;
 	}
 
+	private static class PendingBatchLoad {
+		private final MetaObject metaObject;
+		/**
+		 * 嵌套子查询的入参
+		 */
+		private final Object parameterObject;
+
+		PendingBatchLoad(MetaObject metaObject, Object parameterObject) {
+			this.metaObject = metaObject;
+			this.parameterObject = parameterObject;
+		}
+	}
+
   /**
    * 未被映射的字段
    */
@@ -212,6 +282,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 			if (this.resultHandler == null) {
 				final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
 				handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
+				loadPendingBatches();
 				metaParam.setValue(parameterMapping.getProperty(), resultHandler.getResultList());
 			} else {
 				handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -228,12 +299,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	@Override
 	public List<Object> handleResultSets(Statement stmt) throws SQLException {
 		ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+		StatementMetricsCollector metrics = configuration.getStatementMetricsCollector();
+		long start = metrics == null ? 0 : System.nanoTime();
 
 		/*
 		 * <1> 用于保存映射结果集得到的结果队形
 		 * 多 ResultSet 的结果集合，每个 ResultSet 对应一个 Object 对象，而实际上，每个 Object 是 List<Object> 对象
 		 */
 		final List<Object> multipleResults = new ArrayList<>();
+		// 结果对象在全部结果集处理完后才交给调用方时，才可以批量加载
+		batchFetchEnabled = resultHandler == null;
+		rowLimitsEnabled = resultHandler == null
+				&& (configuration.getMaxRowsWarnThreshold() > 0 || configuration.getMaxRowsHardLimit() > 0);
 
 		int resultSetCount = 0;
 		// <2> 获取 ResultSet 对象，并封装成 ResultSetWrapper
@@ -283,7 +360,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 			}
 		}
 
-		// <7> 如果是 multipleResults 单元素，则取首元素返回
+		// <7> 批量执行 fetchType 为 batch 的嵌套子查询
+		loadPendingBatches();
+
+		if (metrics != null) {
+			metrics.onResultsMapped(mappedStatement, System.nanoTime() - start, handledRowCount);
+		}
+		// <8> 如果是 multipleResults 单元素，则取首元素返回
 		return collapseSingleResultList(multipleResults);
 	}
 
@@ -305,9 +388,50 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
     // 获得 ResultMap 对象，后创建 DefaultCursor 对象
 		ResultMap resultMap = resultMaps.get(0);
+		// 嵌套子查询会在映射线程上使用 Executor，因此只有不含嵌套子查询的 ResultMap 才能在后台线程映射
+		if (configuration.isPipelinedCursorEnabled() && !hasNestedQueries(resultMap, new HashSet<>())) {
+			return new PipelinedCursor<>(this, resultMap, rsw, rowBounds, cursorBufferSize(stmt),
+					configuration.getPipelinedCursorExecutor());
+		}
 		return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
 	}
 
+	/**
+	 * ResultMap 是否含有嵌套子查询，包括嵌套的 ResultMap 和鉴别器各个分支的 ResultMap 中的嵌套子查询
+	 */
+	private boolean hasNestedQueries(ResultMap resultMap, Set<String> visitedResultMapIds) {
+		if (!visitedResultMapIds.add(resultMap.getId())) {
+			return false;
+		}
+		if (resultMap.hasNestedQueries()) {
+			return true;
+		}
+		for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+			final String nestedResultMapId = resultMapping.getNestedResultMapId();
+			if (nestedResultMapId != null && hasNestedQueries(configuration.getResultMap(nestedResultMapId), visitedResultMapIds)) {
+				return true;
+			}
+		}
+		final Discriminator discriminator = resultMap.getDiscriminator();
+		if (discriminator != null) {
+			for (String caseResultMapId : discriminator.getDiscriminatorMap().values()) {
+				if (hasNestedQueries(configuration.getResultMap(caseResultMapId), visitedResultMapIds)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 后台映射的缓冲区大小：与 fetchSize 相同，生产者最多领先消费者一次网络往返的行数
+	 */
+	private int cursorBufferSize(Statement stmt) throws SQLException {
+		int fetchSize = stmt.getFetchSize();
+		// MySQL 以 Integer.MIN_VALUE 表示逐行流式读取
+		return fetchSize > 0 ? fetchSize : DEFAULT_CURSOR_BUFFER_SIZE;
+	}
+
 	private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
 		ResultSet rs = stmt.getResultSet();
 		while (rs == null) {
@@ -448,8 +572,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ResultSet resultSet = rsw.getResultSet();
     // <1> 根据 RowBounds 中的 offset 跳到到指定的记录
     skipRows(resultSet, rowBounds);
+    // 是否可以在第一行之后并行映射
+    boolean parallelCandidate = parentMapping == null && isParallelMappingCandidate(resultMap);
     // <2> 检测已经处理的行数是否已经达到上限（RowBounds.limit）以及 ResultSet 中是否还有可处理的记录
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+      checkRowLimits();
       /*
        * <3> 获取最终的 ResultMap
        * 因为 ResultMap 可能使用到了 <discriminator /> 标签，需要根据不同的值映射不同的 ResultMap
@@ -460,9 +587,126 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
       // <5> 将返回结果对象保存至 resultHandler，或者设置到父对象 parentMapping 的对应属性中
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+      if (parallelCandidate) {
+        parallelCandidate = false;
+        // 第一行已经编译了 CompiledRowMapper，剩余的行交给 parallelResultMappingExecutor 分块映射
+        final CompiledRowMapper rowMapper = getParallelRowMapper(rsw, resultMap, rowValue);
+        if (rowMapper != null) {
+          handleRemainingRowsInParallel(rsw, rowMapper, resultHandler, resultContext, rowBounds);
+          return;
+        }
+      }
     }
   }
 
+	/**
+	 * 语句是否开启了并行映射，且 ResultMap 的每一行都可以独立地通过 CompiledRowMapper 映射
+	 */
+	private boolean isParallelMappingCandidate(ResultMap resultMap) {
+		return mappedStatement.isParallelResultMapping() && resultMap.getDiscriminator() == null
+				&& !resultMap.hasNestedQueries() && resultMap.getConstructorResultMappings().isEmpty();
+	}
+
+	private CompiledRowMapper getParallelRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue) {
+		final CompiledRowMapper rowMapper = compiledRowMappers.get(resultMap.getId() + ":" + null);
+		// 结果对象需要通过默认构造方法创建，其他方式（例如自动匹配构造方法）仍然逐行映射
+		if (rowValue == null || rowMapper == null || !rowMapper.isCompiledFor(rsw) || !rowMapper.canMap(rowValue)
+				|| !reflectorFactory.findForClass(rowMapper.getType()).hasDefaultConstructor()) {
+			return null;
+		}
+		return rowMapper;
+	}
+
+	/**
+	 * 在当前线程读取列值，按 parallelResultMappingChunkSize 分块后在 parallelResultMappingExecutor 中创建结果对象并设置属性，按顺序保存结果
+	 */
+	private void handleRemainingRowsInParallel(ResultSetWrapper rsw, CompiledRowMapper rowMapper,
+			ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, RowBounds rowBounds)
+			throws SQLException {
+		final ResultSet resultSet = rsw.getResultSet();
+		final int chunkSize = Math.max(1, configuration.getParallelResultMappingChunkSize());
+		// 最多同时映射的块数，限制缓冲的行数
+		final int maxPendingChunks = Math.max(2, configuration.getParallelResultMappingMaxThreads() * 2);
+		final ExecutorService mappingExecutor = configuration.getParallelResultMappingExecutor();
+		final Deque<Future<Object[]>> pendingChunks = new ArrayDeque<>();
+		List<Object[]> chunk = new ArrayList<>(chunkSize);
+		long rowCount = resultContext.getResultCount();
+		try {
+			while (!resultContext.isStopped() && rowCount < rowBounds.getLimit() && !resultSet.isClosed()
+					&& resultSet.next()) {
+				checkRowLimits();
+				chunk.add(rowMapper.read(resultSet));
+				rowCount++;
+				if (chunk.size() == chunkSize) {
+					pendingChunks.add(submitChunk(mappingExecutor, rowMapper, chunk));
+					chunk = new ArrayList<>(chunkSize);
+					if (pendingChunks.size() >= maxPendingChunks) {
+						storeChunk(joinChunk(pendingChunks.poll()), resultHandler, resultContext, rowBounds);
+					}
+				}
+			}
+			while (!pendingChunks.isEmpty()) {
+				storeChunk(joinChunk(pendingChunks.poll()), resultHandler, resultContext, rowBounds);
+			}
+			// 最后不足一块的行在当前线程映射
+			storeChunk(mapChunk(rowMapper, chunk), resultHandler, resultContext, rowBounds);
+		} finally {
+			for (Future<Object[]> pendingChunk : pendingChunks) {
+				pendingChunk.cancel(false);
+			}
+		}
+	}
+
+	private Future<Object[]> submitChunk(ExecutorService mappingExecutor, CompiledRowMapper rowMapper,
+			List<Object[]> rows) {
+		final FutureTask<Object[]> task = new FutureTask<>(() -> mapChunk(rowMapper, rows));
+		try {
+			mappingExecutor.execute(task);
+			return task;
+		} catch (RejectedExecutionException e) {
+			// 线程池已满或已关闭时，在当前线程映射
+			return CompletableFuture.completedFuture(mapChunk(rowMapper, rows));
+		}
+	}
+
+	private Object[] joinChunk(Future<Object[]> chunk) {
+		try {
+			return chunk.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExecutorException("Interrupted while waiting for rows mapped in parallel.", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ExecutorException("Error mapping rows in parallel. Cause: " + cause, cause);
+		}
+	}
+
+	private Object[] mapChunk(CompiledRowMapper rowMapper, List<Object[]> rows) {
+		final Object[] rowValues = new Object[rows.size()];
+		for (int i = 0; i < rowValues.length; i++) {
+			final Object rowValue = objectFactory.create(rowMapper.getType());
+			final boolean foundValues = rowMapper.apply(rowValue, rows.get(i));
+			rowValues[i] = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+		}
+		return rowValues;
+	}
+
+	private void storeChunk(Object[] rowValues, ResultHandler<?> resultHandler,
+			DefaultResultContext<Object> resultContext, RowBounds rowBounds) {
+		for (Object rowValue : rowValues) {
+			if (!shouldProcessMoreRows(resultContext, rowBounds)) {
+				return;
+			}
+			callResultHandler(resultHandler, resultContext, rowValue);
+		}
+	}
+
 	protected void checkResultHandler() {
 		if (resultHandler != null && configuration.isSafeResultHandlerEnabled() && !mappedStatement.isResultOrdered()) {
 			throw new ExecutorException(
@@ -496,10 +740,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      * 保存返回结果 resultObject
      */
 		resultContext.nextResultObject(rowValue);
+		handledRowCount++;
 		// 将返回结果保存至 ResultHandler 中
 		((ResultHandler<Object>) resultHandler).handleResult(resultContext);
 	}
 
+	/**
+	 * 读取一行之后，检测是否超过 maxRowsWarnThreshold 和 maxRowsHardLimit ，在映射剩余的行之前打印警告或者抛出异常
+	 */
+	private void checkRowLimits() {
+		if (!rowLimitsEnabled) {
+			return;
+		}
+		readRowCount++;
+		final int hardLimit = configuration.getMaxRowsHardLimit();
+		if (hardLimit > 0 && readRowCount > hardLimit) {
+			throw new ExecutorException("Statement " + mappedStatement.getId() + " returned more than " + hardLimit
+					+ " rows (maxRowsHardLimit). Use a RowBounds, a ResultHandler or a Cursor to read large results.");
+		}
+		final int warnThreshold = configuration.getMaxRowsWarnThreshold();
+		if (warnThreshold > 0 && readRowCount == warnThreshold + 1) {
+			mappedStatement.getStatementLog().warn("Statement " + mappedStatement.getId() + " returned more than "
+					+ warnThreshold + " rows (maxRowsWarnThreshold). SQL: "
+					+ boundSql.getSql().replaceAll("\\s+", " ").trim());
+		}
+	}
+
 	private boolean shouldProcessMoreRows(ResultContext<?> context, RowBounds rowBounds) {
 		/*
 		 * 1. 检测 DefaultResultContext.stopped 字段是否停止
@@ -544,6 +810,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		 * 例如我们返回结果为 java.lang.String 就不用了，因为上面已经处理且赋值了
 		 */
 		if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+			// 所有属性都可以按列的位置直接设置时，不需要创建 MetaObject
+			final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, rowValue, columnPrefix);
+			if (rowMapper != null && rowMapper.canMap(rowValue)) {
+				boolean foundValues = rowMapper.map(rsw.getResultSet(), rowValue) || this.useConstructorMappings;
+				return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+			}
 			// <3.1> 将返回结果的实例对象封装成 MetaObject，便于操作
 			final MetaObject metaObject = configuration.newMetaObject(rowValue);
       // <3.2> 标记是否成功映射了任意一个属性，useConstructorMappings 表示是否在构造方法中使用了参数映射
@@ -571,6 +843,67 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		return rowValue;
 	}
 
+	/**
+	 * 获得 ResultMap 对应的 CompiledRowMapper 对象，第一行时编译，无法编译时返回 null
+	 */
+	private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue,
+			String columnPrefix) throws SQLException {
+		final String mapKey = resultMap.getId() + ":" + columnPrefix;
+		CompiledRowMapper rowMapper = compiledRowMappers.get(mapKey);
+		if (rowMapper == null ? !compiledRowMappers.containsKey(mapKey) : !rowMapper.isCompiledFor(rsw)) {
+			rowMapper = compileRowMapper(rsw, resultMap, rowValue, columnPrefix);
+			compiledRowMappers.put(mapKey, rowMapper);
+		}
+		return rowMapper;
+	}
+
+	private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue,
+			String columnPrefix) throws SQLException {
+		final Class<?> type = resultMap.getType();
+		// Map 、集合、代理对象以及自定义 ObjectWrapper 的对象，仍然通过 MetaObject 设置
+		if (rowValue.getClass() != type || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+				|| configuration.getObjectWrapperFactory().hasWrapperFor(rowValue)) {
+			return null;
+		}
+		final Reflector reflector = reflectorFactory.findForClass(type);
+		final CompiledRowMapper rowMapper = new CompiledRowMapper(rsw, type, configuration.isCallSettersOnNulls());
+		// <1> 自动映射的列，与 applyAutomaticMappings 的顺序相同
+		if (shouldApplyAutomaticMappings(resultMap, false)) {
+			final MetaObject metaObject = configuration.newMetaObject(rowValue);
+			for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+				if (!isPlainProperty(reflector, mapping.property) || !rowMapper.addColumn(mapping.column,
+						mapping.typeHandler, mapping.property, reflector.getSetInvoker(mapping.property), mapping.primitive)) {
+					return null;
+				}
+			}
+		}
+		// <2> 明确映射的列，只支持简单的属性映射
+		final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+		for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+			if (propertyMapping.getNestedQueryId() != null || propertyMapping.getNestedResultMapId() != null
+					|| propertyMapping.getResultSet() != null || propertyMapping.isCompositeResult()) {
+				return null;
+			}
+			final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+			final String property = propertyMapping.getProperty();
+			if (property == null || column == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+				continue;
+			}
+			if (!isPlainProperty(reflector, property) || !rowMapper.addColumn(column, propertyMapping.getTypeHandler(),
+					property, reflector.getSetInvoker(property), reflector.getSetterType(property).isPrimitive())) {
+				return null;
+			}
+		}
+		return rowMapper;
+	}
+
+	/**
+	 * 是否为结果类型可以直接设置的属性，例如 'author.id' 需要先创建 author 对象
+	 */
+	private boolean isPlainProperty(Reflector reflector, String property) {
+		return property.indexOf('.') < 0 && property.indexOf('[') < 0 && reflector.hasSetter(property);
+	}
+
 	private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     /*
      * 获取<resultMap />中的 autoMapping 配置
@@ -1058,7 +1391,24 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping,
 				nestedQueryParameterType, columnPrefix);
 		Object value = null;
-		if (nestedQueryParameterObject != null) {
+		if (nestedQueryParameterObject != null && propertyMapping.isBatch() && propertyMapping.isLazy()) {
+			// 批量延迟加载，同一结果集中的加载器共享一个 Batch 对象
+			final BatchResultLoader.Batch batch = lazyBatches.computeIfAbsent(propertyMapping,
+					k -> new BatchResultLoader.Batch(configuration, k, nestedQuery));
+			lazyLoader.addLoader(property, metaResultObject, new BatchResultLoader(configuration, executor, nestedQuery,
+					nestedQueryParameterObject, propertyMapping.getJavaType(), batch));
+			value = DEFERRED;
+		} else if (nestedQueryParameterObject != null && propertyMapping.isBatch()) {
+			final PendingBatchLoad load = new PendingBatchLoad(metaResultObject, nestedQueryParameterObject);
+			if (batchFetchEnabled) {
+				// 批量加载，等到所有结果行处理完后再执行
+				pendingBatchLoads.computeIfAbsent(propertyMapping, k -> new ArrayList<>()).add(load);
+			} else {
+				// 无法批量加载，嵌套子查询的入参仍然是 list ，只包含当前行
+				loadBatch(propertyMapping, Collections.singletonList(load));
+			}
+			value = DEFERRED;
+		} else if (nestedQueryParameterObject != null) {
 			// <3> 获得嵌套子查询的 BoundSql 对象
 			final BoundSql nestedBoundSql = nestedQuery.getBoundSql(nestedQueryParameterObject);
 			// <4> 获得嵌套子查询本次查询的 CacheKey 对象
@@ -1088,6 +1438,92 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		return value;
 	}
 
+	//
+	// BATCH FETCH
+	//
+
+	/**
+	 * 执行所有待批量加载的嵌套子查询
+	 */
+	private void loadPendingBatches() throws SQLException {
+		if (pendingBatchLoads.isEmpty()) {
+			return;
+		}
+		try {
+			for (Map.Entry<ResultMapping, List<PendingBatchLoad>> entry : pendingBatchLoads.entrySet()) {
+				loadBatch(entry.getKey(), entry.getValue());
+			}
+		} finally {
+			pendingBatchLoads.clear();
+		}
+	}
+
+	/**
+	 * 按 batchFetchSize 分批执行嵌套子查询，入参为去重后的各行参数组成的 list ，再按 foreignColumn 的值将子对象设置到对应的结果对象中
+	 */
+	private void loadBatch(ResultMapping propertyMapping, List<PendingBatchLoad> loads) throws SQLException {
+		final MappedStatement nestedQuery = configuration.getMappedStatement(propertyMapping.getNestedQueryId());
+		final BatchKeyMatcher matcher = new BatchKeyMatcher(configuration, propertyMapping, nestedQuery);
+		// <1> 按参数去重
+		final Map<Object, List<PendingBatchLoad>> loadsByKey = new LinkedHashMap<>();
+		for (PendingBatchLoad load : loads) {
+			loadsByKey.computeIfAbsent(matcher.parentKey(load.parameterObject), k -> new ArrayList<>()).add(load);
+		}
+		// <2> 分批查询
+		final List<List<PendingBatchLoad>> loadsPerKey = new ArrayList<>(loadsByKey.values());
+		final int batchSize = Math.max(1, configuration.getBatchFetchSize());
+		for (int i = 0; i < loadsPerKey.size(); i += batchSize) {
+			final List<Object> batch = new ArrayList<>();
+			final List<PendingBatchLoad> batchLoads = new ArrayList<>();
+			for (List<PendingBatchLoad> keyLoads : loadsPerKey.subList(i, Math.min(i + batchSize, loadsPerKey.size()))) {
+				batch.add(keyLoads.get(0).parameterObject);
+				batchLoads.addAll(keyLoads);
+			}
+			final Object parameterObject = BatchKeyMatcher.newParameter(batch);
+			final BoundSql nestedBoundSql = nestedQuery.getBoundSql(parameterObject);
+			final CacheKey key = executor.createCacheKey(nestedQuery, parameterObject, RowBounds.DEFAULT, nestedBoundSql);
+			final DeferredBatchLoad deferredBatchLoad = new DeferredBatchLoad(propertyMapping, matcher, batchLoads);
+			if (executor.isCached(nestedQuery, key)) {
+				// 与 getNestedQueryMappingValue 相同，同样的查询可能正在执行（例如双向的 batch 关联），等它完成后再从一级缓存中设置
+				executor.deferLoad(nestedQuery, configuration.newMetaObject(deferredBatchLoad), "children", key, List.class);
+			} else {
+				deferredBatchLoad.setChildren(executor.query(nestedQuery, parameterObject, RowBounds.DEFAULT,
+						Executor.NO_RESULT_HANDLER, key, nestedBoundSql));
+			}
+		}
+	}
+
+	/**
+	 * 一批嵌套子查询的结果，设置 children 时按 foreignColumn 的值将子对象设置到对应的结果对象中
+	 */
+	private final class DeferredBatchLoad {
+
+		private final ResultMapping propertyMapping;
+		private final BatchKeyMatcher matcher;
+		private final List<PendingBatchLoad> loads;
+
+		DeferredBatchLoad(ResultMapping propertyMapping, BatchKeyMatcher matcher, List<PendingBatchLoad> loads) {
+			this.propertyMapping = propertyMapping;
+			this.matcher = matcher;
+			this.loads = loads;
+		}
+
+		public void setChildren(List<Object> children) {
+			final Map<Object, List<Object>> childrenByKey = matcher.groupByKey(children);
+			final ResultExtractor resultExtractor = new ResultExtractor(configuration, objectFactory);
+			final String property = propertyMapping.getProperty();
+			for (PendingBatchLoad load : loads) {
+				List<Object> loaded = matcher.childrenOf(childrenByKey, matcher.parentKey(load.parameterObject));
+				Object value = resultExtractor.extractObjectFromList(
+						loaded == null ? new ArrayList<>() : new ArrayList<>(loaded), propertyMapping.getJavaType());
+				if (value != null || (configuration.isCallSettersOnNulls() && !load.metaObject.getSetterType(property).isPrimitive())) {
+					load.metaObject.setValue(property, value);
+				}
+			}
+		}
+
+	}
+
 	private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType,
 			String columnPrefix) throws SQLException {
 		if (resultMapping.isCompositeResult()) { // 嵌套子查询是否有多个属性映射
@@ -1214,15 +1650,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		Object rowValue = previousRowValue;
     // <2> 检测已经处理的行数是否已经达到上限（RowBounds.limit）以及 ResultSet 中是否还有可处理的记录
 		while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
+			checkRowLimits();
       /*
        * <3> 获取最终的 ResultMap
        * 因为 ResultMap 可能使用到了 <discriminator /> 标签，需要根据不同的值映射不同的 ResultMap
        * 如果存在 Discriminator 鉴别器，则根据当前记录选择对应的 ResultMap，会一直嵌套处理
        */
 			final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-			// <4> 生成当前结果集该 ResultMap 对应的 CacheKey
-			final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
-			// 根据 CacheKey 尝试从 nestedResultObjects 集合中获取到是否有内嵌的对象
+			// <4> 生成当前结果集该 ResultMap 对应的 RowKey
+			final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+			// 根据 RowKey 尝试从 nestedResultObjects 集合中获取到是否有内嵌的对象
 			Object partialObject = nestedResultObjects.get(rowKey);
 			// issue #577 && #542
 			if (mappedStatement.isResultOrdered()) { // 检测 resultOrdered 属性
@@ -1252,7 +1689,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	//
 	// GET VALUE FROM ROW FOR NESTED RESULT MAP
 	//
-	private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+	private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
 		final String resultMapId = resultMap.getId();
 		Object rowValue = partialObject;
 		if (rowValue != null) { // 该对象已经被其他列映射了
@@ -1302,7 +1739,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 				 */
 				rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
 			}
-			if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+			if (combinedKey != RowKey.NULL) {
 				// 将该对象保存至 nestedResultObjects中，后面的对象也可以引用
 				nestedResultObjects.put(combinedKey, rowValue);
 			}
@@ -1318,7 +1755,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	// NESTED RESULT MAP (JOIN MAPPING)
 	//
 	private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject,
-			String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+			String parentPrefix, RowKey parentRowKey, boolean newObject) {
 		boolean foundValues = false;
 		// 遍历该 ResultMap 所有的 ResultMapping 对象
 		for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
@@ -1349,10 +1786,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 							continue;
 						}
 					}
-					// <4> 为内嵌的 ResultMap 生成 CacheKey
-					final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-					// 将内嵌的 CacheKey 和父级的 CacheKey 进行合并
-					final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+					// <4> 为内嵌的 ResultMap 生成 RowKey
+					final RowKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
+					// 将内嵌的 RowKey 和父级的 RowKey 进行合并
+					final RowKey combinedKey = rowKey.combine(parentRowKey);
 					// <5> 从内嵌的集合中获取该结果
 					Object rowValue = nestedResultObjects.get(combinedKey);
 					// 标记该内嵌对象是否已经存在
@@ -1429,46 +1866,40 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 	// UNIQUE RESULT KEY
 	//
 	/**
-	 * 4.2.1 处理结果集（含嵌套映射）生成对应的cacheKey
+	 * 4.2.1 处理结果集（含嵌套映射）生成对应的 RowKey
 	 */
-	private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-		final CacheKey cacheKey = new CacheKey();
-		cacheKey.update(resultMap.getId());
+	private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+		final String readerKey = resultMap.getId() + ":" + columnPrefix;
+		RowKey.Reader reader = rowKeyReaders.get(readerKey);
+		if (reader == null || !reader.isCompiledFor(rsw)) {
+			// 每个结果集只解析一次参与构成 RowKey 的列
+			reader = compileRowKeyReader(resultMap, rsw, columnPrefix, readerKey);
+			rowKeyReaders.put(readerKey, reader);
+		}
+		return reader.read(rsw.getResultSet());
+	}
+
+	private RowKey.Reader compileRowKeyReader(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix,
+			String readerKey) throws SQLException {
 		/*
 		 * 获取用来组合去唯一标识当前 ResultMap 的 ResultMapping 集合（例如定义的 <id />，没有定义则是全部）
 		 */
 		List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
 		if (resultMappings.isEmpty()) { // 没有唯一标识组合
+			final RowKey.Reader reader = new RowKey.Reader(rsw, readerKey, false);
 			if (Map.class.isAssignableFrom(resultMap.getType())) {
-				// Map 类型则，则从结果集获取的所有列名和值添加到 CacheKey 中
-				createRowKeyForMap(rsw, cacheKey);
+				// Map 类型则，则结果集的所有列参与构成 RowKey
+				addRowKeyColumnsForMap(rsw, reader);
 			} else {
-				// 将未映射的列名与值添加到 CacheKey 中
-				createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+				// 未映射的列参与构成 RowKey
+				addRowKeyColumnsForUnmappedProperties(resultMap, rsw, reader, columnPrefix);
 			}
-		} else {
-      // 将上面获取到的唯一标识组合对应的列名和值添加到 CacheKey 中
-			createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
-		}
-		// 如果上面两种操作都没有找到任何列参与构成cacheKey，则返回NULL_CACHE_KEY对象
-		if (cacheKey.getUpdateCount() < 2) {
-			return CacheKey.NULL_CACHE_KEY;
+			return reader;
 		}
-		return cacheKey;
-	}
-
-	private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-		if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-			CacheKey combinedKey;
-			try {
-				combinedKey = rowKey.clone();
-			} catch (CloneNotSupportedException e) {
-				throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-			}
-			combinedKey.update(parentRowKey);
-			return combinedKey;
-		}
-		return CacheKey.NULL_CACHE_KEY;
+		// 上面获取到的唯一标识组合对应的列参与构成 RowKey
+		final RowKey.Reader reader = new RowKey.Reader(rsw, readerKey, configuration.isReturnInstanceForEmptyRow());
+		addRowKeyColumnsForMappedProperties(resultMap, rsw, reader, resultMappings, columnPrefix);
+		return reader;
 	}
 
 	private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1481,37 +1912,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 		return resultMappings;
 	}
 
-	private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey,
+	private void addRowKeyColumnsForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, RowKey.Reader reader,
 			List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+		// 获取返回结果需要映射的列名
+		List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
 		for (ResultMapping resultMapping : resultMappings) {
 			if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) { // 存在嵌套映射
 				// Issue #392
         // 循环调用该方法进行处理
 				final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-				createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey,
+				addRowKeyColumnsForMappedProperties(nestedResultMap, rsw, reader,
 						nestedResultMap.getConstructorResultMappings(),
 						prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
 			} else if (resultMapping.getNestedQueryId() == null) { // 不是嵌套子查询
 				// 获取列名
 				final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-				final TypeHandler<?> th = resultMapping.getTypeHandler();
-				// 获取返回结果需要映射的列名
-				List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
 				// Issue #114
 				if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) { // 如果该列名被映射
-				  // 通过 TypeHandler 从结果集中获取该列的值
-					final Object value = th.getResult(rsw.getResultSet(), column);
-					if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-						// 将列名和列值添加至 CacheKey 对象中
-						cacheKey.update(column);
-						cacheKey.update(value);
-					}
+					// 通过 TypeHandler 从结果集中获取该列的值
+					reader.addColumn(column, resultMapping.getTypeHandler());
 				}
 			}
 		}
 	}
 
-	private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey,
+	private void addRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, RowKey.Reader reader,
 			String columnPrefix) throws SQLException {
 		final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
 		// 获取未被映射的列名集合
@@ -1528,24 +1953,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 				}
 			}
 			if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-			  // 获取到该列对应的值
-				String value = rsw.getResultSet().getString(column);
-				if (value != null) {
-					cacheKey.update(column);
-					cacheKey.update(value);
-				}
+				// 以字符串读取该列的值
+				reader.addColumn(column, null);
 			}
 		}
 	}
 
-	private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-		List<String> columnNames = rsw.getColumnNames();
-		for (String columnName : columnNames) {
-			final String value = rsw.getResultSet().getString(columnName);
-			if (value != null) {
-				cacheKey.update(columnName);
-				cacheKey.update(value);
-			}
+	private void addRowKeyColumnsForMap(ResultSetWrapper rsw, RowKey.Reader reader) throws SQLException {
+		for (String columnName : rsw.getColumnNames()) {
+			reader.addColumn(columnName, null);
 		}
 	}
 
@@ -0,0 +1,169 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Identifies the object a row maps to for a nested result map.
+ * <p>
+ * The id columns of a result map are resolved to column indexes once per result set by a {@link Reader}, so each
+ * row only reads the id values into an array and hashes them. A nested key references its parent key instead of
+ * copying it.
+ */
+final class RowKey {
+
+	/**
+	 * 没有任何列值参与构成时的 RowKey，不会被保存
+	 */
+	static final RowKey NULL = new RowKey(null, new Object[0], null, 0);
+
+	/**
+	 * 读取列值的 Reader 对象，同一个 ResultMap 和列前缀只有一个
+	 */
+	private final Reader reader;
+	private final Object[] values;
+	private final RowKey parent;
+	private final int hashCode;
+
+	private RowKey(Reader reader, Object[] values, RowKey parent, int hashCode) {
+		this.reader = reader;
+		this.values = values;
+		this.parent = parent;
+		this.hashCode = hashCode;
+	}
+
+	/**
+	 * 与父对象的 RowKey 组合，任一为 {@link #NULL} 时返回 {@link #NULL}
+	 */
+	RowKey combine(RowKey parentKey) {
+		if (this == NULL || parentKey == NULL) {
+			return NULL;
+		}
+		return new RowKey(reader, values, parentKey, 31 * hashCode + parentKey.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof RowKey)) {
+			return false;
+		}
+		final RowKey other = (RowKey) object;
+		if (hashCode != other.hashCode || reader != other.reader) {
+			return false;
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (!ArrayUtil.equals(values[i], other.values[i])) {
+				return false;
+			}
+		}
+		return parent == null ? other.parent == null : parent.equals(other.parent);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder().append(reader == null ? "NULL" : reader.id);
+		for (Object value : values) {
+			builder.append(':').append(ArrayUtil.toString(value));
+		}
+		if (parent != null) {
+			builder.append('/').append(parent);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Reads the key columns of a result map from the current row.
+	 */
+	static final class Reader {
+
+		/**
+		 * 编译时对应的 ResultSetWrapper 对象，列的位置只在同一个结果集中有效
+		 */
+		private final ResultSetWrapper rsw;
+		/**
+		 * ResultMap 的编号与列前缀
+		 */
+		private final String id;
+		/**
+		 * 值为 null 的列是否也参与构成 RowKey，对应 returnInstanceForEmptyRow 配置
+		 */
+		private final boolean keepNullValues;
+		private final List<Integer> indexes = new ArrayList<>();
+		/**
+		 * 每列的 TypeHandler 对象，为 null 时通过 ResultSet#getString 读取
+		 */
+		private final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
+		private int[] columnIndexes;
+		private TypeHandler<?>[] columnTypeHandlers;
+
+		Reader(ResultSetWrapper rsw, String id, boolean keepNullValues) {
+			this.rsw = rsw;
+			this.id = id;
+			this.keepNullValues = keepNullValues;
+		}
+
+		/**
+		 * 添加一列，按添加的顺序读取
+		 */
+		void addColumn(String columnName, TypeHandler<?> typeHandler) throws SQLException {
+			indexes.add(rsw.getResultSet().findColumn(columnName));
+			typeHandlers.add(typeHandler);
+		}
+
+		boolean isCompiledFor(ResultSetWrapper rsw) {
+			return this.rsw == rsw;
+		}
+
+		/**
+		 * 读取当前行的 RowKey，没有列值时返回 {@link RowKey#NULL}
+		 */
+		RowKey read(ResultSet rs) throws SQLException {
+			if (columnIndexes == null) {
+				columnIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+				columnTypeHandlers = typeHandlers.toArray(new TypeHandler<?>[0]);
+			}
+			final Object[] values = new Object[columnIndexes.length];
+			int hashCode = id.hashCode();
+			boolean found = false;
+			for (int i = 0; i < columnIndexes.length; i++) {
+				final TypeHandler<?> typeHandler = columnTypeHandlers[i];
+				final Object value = typeHandler == null ? rs.getString(columnIndexes[i])
+						: typeHandler.getResult(rs, columnIndexes[i]);
+				found = found || value != null || keepNullValues;
+				values[i] = value;
+				hashCode = 31 * hashCode + ArrayUtil.hashCode(value);
+			}
+			return found ? new RowKey(this, values, null, hashCode) : NULL;
+		}
+
+	}
+
+}
@@ -19,6 +19,7 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
@@ -74,6 +75,10 @@ public abstract class BaseStatementHandler implements StatementHandler {
    * SQL 语句
    */
 	protected BoundSql boundSql;
+  /**
+   * 语句执行指标的收集器，可能为空
+   */
+	protected final StatementMetricsCollector metricsCollector;
 
 	protected BaseStatementHandler(Executor executor, MappedStatement mappedStatement, Object parameterObject,
 			RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
@@ -83,6 +88,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
 		this.rowBounds = rowBounds;
 		this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
 		this.objectFactory = configuration.getObjectFactory();
+		this.metricsCollector = configuration.getStatementMetricsCollector();
 
 		// <1> 如果 boundSql 为空，更新数据库的操作这里传入的对象会为 null
 		if (boundSql == null) { // issue #435, get the key before calculating the statement
@@ -115,6 +121,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
 	public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
 		ErrorContext.instance().sql(boundSql.getSql());
 		Statement statement = null;
+		long start = startTimer();
 		try {
 			// <1> 创建 Statement 对象
 			statement = instantiateStatement(connection);
@@ -122,6 +129,9 @@ public abstract class BaseStatementHandler implements StatementHandler {
 			setStatementTimeout(statement, transactionTimeout);
 			// <3> 设置 fetchSize，为驱动的结果集获取数量（fetchSize）设置一个建议值
 			setFetchSize(statement);
+			if (metricsCollector != null) {
+				metricsCollector.onPrepared(mappedStatement, System.nanoTime() - start);
+			}
 			return statement;
 		} catch (SQLException e) {
       // 发生异常，进行关闭
@@ -134,6 +144,26 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
   }
 
+	/**
+	 * 开始计时，未配置指标收集器时不读取时钟
+	 *
+	 * @return 开始时间，单位：纳秒
+	 */
+	protected long startTimer() {
+		return metricsCollector == null ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * 记录 SQL 执行的耗时
+	 *
+	 * @param start {@link #startTimer()} 返回的开始时间
+	 */
+	protected void recordExecuted(long start) {
+		if (metricsCollector != null) {
+			metricsCollector.onExecuted(mappedStatement, System.nanoTime() - start);
+		}
+	}
+
   /**
    * 通过数据库连接对象 {@link Connection} 来创建相应的 {@link Statement}
    * @param connection 数据库连接对象
@@ -42,7 +42,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
 	public int update(Statement statement) throws SQLException {
 		CallableStatement cs = (CallableStatement) statement;
 		// 执行更新操作
+		long start = startTimer();
 		cs.execute();
+		recordExecuted(start);
 		// 获取受影响行数
 		int rows = cs.getUpdateCount();
 		// 获取入参
@@ -65,7 +67,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
 	@Override
 	public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
 		CallableStatement cs = (CallableStatement) statement;
+		long start = startTimer();
 		cs.execute();
+		recordExecuted(start);
 		List<E> resultList = resultSetHandler.handleResultSets(cs);
 		resultSetHandler.handleOutputParameters(cs);
 		return resultList;
@@ -74,7 +78,9 @@ public class CallableStatementHandler extends BaseStatementHandler {
 	@Override
 	public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
 		CallableStatement cs = (CallableStatement) statement;
+		long start = startTimer();
 		cs.execute();
+		recordExecuted(start);
 		Cursor<E> resultList = resultSetHandler.handleCursorResultSets(cs);
 		resultSetHandler.handleOutputParameters(cs);
 		return resultList;
@@ -43,7 +43,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   public int update(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
     // 执行
+    long start = startTimer();
     ps.execute();
+    recordExecuted(start);
     // 获得更新数量
     int rows = ps.getUpdateCount();
     // 入参对象
@@ -71,7 +73,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
     // 执行
+    long start = startTimer();
     ps.execute();
+    recordExecuted(start);
     // 结果处理器并返回结果
     return resultSetHandler.handleResultSets(ps);
   }
@@ -80,7 +84,9 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
     // 执行
+    long start = startTimer();
     ps.execute();
+    recordExecuted(start);
     // 结果处理器并返回 Cursor 结果
     return resultSetHandler.handleCursorResultSets(ps);
   }
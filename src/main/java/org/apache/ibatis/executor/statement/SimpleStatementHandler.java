@@ -55,9 +55,11 @@ public class SimpleStatementHandler extends BaseStatementHandler {
      */
 		KeyGenerator keyGenerator = mappedStatement.getKeyGenerator();
 		int rows;
+		long start = startTimer();
 		if (keyGenerator instanceof Jdbc3KeyGenerator) { // 如果是 Jdbc3KeyGenerator 类型
 			// <1.1> 执行写操作，设置返回自增键，可通过 getGeneratedKeys() 方法获取
 			statement.execute(sql, Statement.RETURN_GENERATED_KEYS);
+			recordExecuted(start);
 			// <1.2> 获得更新数量
 			rows = statement.getUpdateCount();
 			// <1.3> 执行 keyGenerator 的后置处理逻辑，也就是对我们配置的自增键进行赋值
@@ -65,6 +67,7 @@ public class SimpleStatementHandler extends BaseStatementHandler {
 		} else if (keyGenerator instanceof SelectKeyGenerator) { // 如果是 SelectKeyGenerator 类型
 			// <2.1> 执行写操作
 			statement.execute(sql);
+			recordExecuted(start);
 			// <2.2> 获得更新数量
 			rows = statement.getUpdateCount();
 			// <2.3>执行 keyGenerator 的后置处理逻辑，也就是对我们配置的自增键进行赋值
@@ -72,6 +75,7 @@ public class SimpleStatementHandler extends BaseStatementHandler {
 		} else {
 			// <3.1> 执行写操作
 			statement.execute(sql);
+			recordExecuted(start);
 			// <3.2> 获得更新数量
 			rows = statement.getUpdateCount();
 		}
@@ -89,7 +93,9 @@ public class SimpleStatementHandler extends BaseStatementHandler {
 	public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
 		String sql = boundSql.getSql();
 		// <1> 执行查询
+		long start = startTimer();
 		statement.execute(sql);
+		recordExecuted(start);
 		// <2> 处理返回结果
 		return resultSetHandler.handleResultSets(statement);
 	}
@@ -97,7 +103,9 @@ public class SimpleStatementHandler extends BaseStatementHandler {
 	@Override
 	public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
 		String sql = boundSql.getSql();
+		long start = startTimer();
 		statement.execute(sql);
+		recordExecuted(start);
 		return resultSetHandler.handleCursorResultSets(statement);
 	}
 
@@ -24,12 +24,19 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheWeigher;
 import org.apache.ibatis.cache.decorators.BlockingCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -59,6 +66,14 @@ public class CacheBuilder {
      */
 	private Integer size;
 	/**
+	 * 缓存容器的字节数上限
+	 */
+	private Long maxBytes;
+	/**
+	 * 估算缓存项字节数的 CacheWeigher 实现类
+	 */
+	private Class<? extends CacheWeigher> weigher;
+	/**
      * 清空缓存的频率。0 代表不清空
      */
 	private Long clearInterval;
@@ -67,6 +82,10 @@ public class CacheBuilder {
      */
 	private boolean readWrite;
 	/**
+	 * 序列化的 CacheSerializer 实现类
+	 */
+	private Class<? extends CacheSerializer> serializer;
+	/**
      * Properties 对象
      */
 	private Properties properties;
@@ -74,6 +93,14 @@ public class CacheBuilder {
      * 是否阻塞
      */
 	private boolean blocking;
+	/**
+	 * 是否在缓存项过期前刷新，此时 clearInterval 是每个缓存项的有效时间
+	 */
+	private boolean refreshAhead;
+	/**
+	 * 统计信息，为空时创建
+	 */
+	private CacheStats stats;
 
 	public CacheBuilder(String id) {
 		this.id = id;
@@ -98,6 +125,16 @@ public class CacheBuilder {
 		return this;
 	}
 
+	public CacheBuilder maxBytes(Long maxBytes) {
+		this.maxBytes = maxBytes;
+		return this;
+	}
+
+	public CacheBuilder weigher(Class<? extends CacheWeigher> weigher) {
+		this.weigher = weigher;
+		return this;
+	}
+
 	public CacheBuilder clearInterval(Long clearInterval) {
 		this.clearInterval = clearInterval;
 		return this;
@@ -108,11 +145,33 @@ public class CacheBuilder {
 		return this;
 	}
 
+	public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+		this.serializer = serializer;
+		return this;
+	}
+
 	public CacheBuilder blocking(boolean blocking) {
 		this.blocking = blocking;
 		return this;
 	}
 
+	public CacheBuilder refreshAhead(boolean refreshAhead) {
+		this.refreshAhead = refreshAhead;
+		return this;
+	}
+
+	/**
+	 * Sets the statistics shared by the decorators of the cache. Defaults to new statistics.
+	 *
+	 * @param stats the statistics
+	 * @return this builder
+	 * @since 3.5.3
+	 */
+	public CacheBuilder stats(CacheStats stats) {
+		this.stats = stats;
+		return this;
+	}
+
 	public CacheBuilder properties(Properties properties) {
 		this.properties = properties;
 		return this;
@@ -121,10 +180,14 @@ public class CacheBuilder {
 	public Cache build() {
 		// 设置默认实现类
 		setDefaultImplementations();
+		if (stats == null) {
+			stats = new CacheStats(id);
+		}
 		// 创建基础 Cache 对象
 		Cache cache = newBaseCacheInstance(implementation, id);
 		// 设置属性
 		setCacheProperties(cache);
+		setCacheStats(cache);
 		// issue #352, do not apply decorators to custom caches
 		// 如果是 PerpetualCache 类，则进行包装
 		if (PerpetualCache.class.equals(cache.getClass())) {
@@ -134,12 +197,27 @@ public class CacheBuilder {
 				cache = newCacheDecoratorInstance(decorator, cache);
 				// 设置属性
 				setCacheProperties(cache);
+				setCacheStats(cache);
 			}
 			// 执行标准化的 Cache 包装
-			cache = setStandardDecorators(cache);
+			cache = setStandardDecorators(cache, false);
+		// 如果是 ConcurrentCache 或 OffHeapCache 类，它自身线程安全并负责淘汰，不需要淘汰装饰器和 SynchronizedCache
+		} else if (ConcurrentCache.class.equals(cache.getClass()) || OffHeapCache.class.equals(cache.getClass())) {
+			// 淘汰装饰器和不支持的 maxBytes 会被忽略，直接报错，避免配置被悄悄忽略
+			for (Class<? extends Cache> decorator : decorators) {
+				if (!LruCache.class.equals(decorator) && !(maxBytes != null && WeightedCache.class.equals(decorator))) {
+					throw new CacheException("Cache '" + id + "' of type '" + cache.getClass().getName()
+							+ "' evicts by itself and cannot be decorated with '" + decorator.getName() + "'.");
+				}
+			}
+			if (maxBytes != null && !SystemMetaObject.forObject(cache).hasSetter("maxBytes")) {
+				throw new CacheException("Cache '" + id + "' of type '" + cache.getClass().getName()
+						+ "' does not support maxBytes.");
+			}
+			cache = setStandardDecorators(cache, true);
 		// 如果是自定义的 Cache 类，则包装成 LoggingCache 对象，因为要统计。
 		} else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-			cache = new LoggingCache(cache);
+			cache = new LoggingCache(cache, stats);
 		}
 		return cache;
 	}
@@ -156,29 +234,63 @@ public class CacheBuilder {
 		}
 	}
 
-	private Cache setStandardDecorators(Cache cache) {
+	private Cache setStandardDecorators(Cache cache, boolean threadSafe) {
 		try {
 			MetaObject metaCache = SystemMetaObject.forObject(cache);
 			// 如果有 size 方法，则进行设置
 			if (size != null && metaCache.hasSetter("size")) {
 				metaCache.setValue("size", size);
 			}
-			// 包装成 ScheduledCache 对象
-			if (clearInterval != null) {
+			// 如果有 maxBytes 方法，则进行设置
+			if (maxBytes != null && metaCache.hasSetter("maxBytes")) {
+				metaCache.setValue("maxBytes", maxBytes);
+			}
+			// 如果有 weigher 方法，则创建 CacheWeigher 对象并设置
+			if (weigher != null && metaCache.hasSetter("weigher")) {
+				metaCache.setValue("weigher", weigher.getDeclaredConstructor().newInstance());
+			}
+			// 创建 CacheSerializer 对象，如果有 serializer 方法，则进行设置
+			CacheSerializer cacheSerializer = serializer == null ? null : serializer.getDeclaredConstructor().newInstance();
+			if (cacheSerializer != null && metaCache.hasSetter("serializer")) {
+				metaCache.setValue("serializer", cacheSerializer);
+			}
+			if (refreshAhead && clearInterval == null) {
+				throw new CacheException("Cache '" + id + "' requires a flushInterval to refresh ahead.");
+			}
+			// 包装成 ScheduledCache 对象，提前刷新时由 RefreshAheadCache 按缓存项过期
+			if (clearInterval != null && !refreshAhead) {
 				cache = new ScheduledCache(cache);
 				((ScheduledCache) cache).setClearInterval(clearInterval);
 			}
-			// 包装成 SerializedCache 对象
-			if (readWrite) {
-				cache = new SerializedCache(cache);
+			// 包装成 SerializedCache 对象，阻塞时放在 BlockingCache 外面，等待的线程拿到的也是副本
+			// 它必须在淘汰装饰器外面，WeightedCache 才能按序列化后的字节数计算大小
+			if (readWrite && !blocking) {
+				cache = newSerializedCache(cache, cacheSerializer);
+			}
+			// 包装成 LoggingCache 对象，阻塞时放在 BlockingCache 外面，加锁后的再次读取不会重复统计未命中
+			if (!blocking) {
+				cache = new LoggingCache(cache, stats);
 			}
-			// 包装成 LoggingCache 对象
-			cache = new LoggingCache(cache);
 			// 包装成 SynchronizedCache 对象
-			cache = new SynchronizedCache(cache);
+			if (!threadSafe) {
+				cache = new SynchronizedCache(cache);
+			}
 			// 包装成 BlockingCache 对象
 			if (blocking) {
 				cache = new BlockingCache(cache);
+				String blockingTimeout = properties == null ? null : properties.getProperty("blockingTimeout");
+				if (blockingTimeout != null) {
+					((BlockingCache) cache).setTimeout(Long.parseLong(blockingTimeout));
+				}
+				if (readWrite) {
+					cache = newSerializedCache(cache, cacheSerializer);
+				}
+				cache = new LoggingCache(cache, stats);
+			}
+			// 包装成 RefreshAheadCache 对象，放在最外层，以便 CachingExecutor 注册加载器
+			if (refreshAhead) {
+				cache = new RefreshAheadCache(cache);
+				((RefreshAheadCache) cache).setTimeToLive(clearInterval);
 			}
 			return cache;
 		} catch (Exception e) {
@@ -186,6 +298,20 @@ public class CacheBuilder {
 		}
 	}
 
+	private Cache newSerializedCache(Cache cache, CacheSerializer cacheSerializer) {
+		return cacheSerializer == null ? new SerializedCache(cache) : new SerializedCache(cache, cacheSerializer);
+	}
+
+	/**
+	 * 如果有 stats 方法，则设置统计信息，用于记录淘汰次数
+	 */
+	private void setCacheStats(Cache cache) {
+		MetaObject metaCache = SystemMetaObject.forObject(cache);
+		if (metaCache.hasSetter("stats") && CacheStats.class.equals(metaCache.getSetterType("stats"))) {
+			metaCache.setValue("stats", stats);
+		}
+	}
+
 	private void setCacheProperties(Cache cache) {
 		if (properties != null) {
 			// 初始化 Cache 对象的属性
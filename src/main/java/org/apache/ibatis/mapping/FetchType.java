@@ -19,5 +19,17 @@ package org.apache.ibatis.mapping;
  * @author Eduardo Macarron
  */
 public enum FetchType {
-  LAZY, EAGER, DEFAULT
+  LAZY, EAGER, DEFAULT,
+  /**
+   * Runs the nested select once for a batch of result rows.
+   *
+   * @since 3.5.3
+   */
+  BATCH,
+  /**
+   * Runs the nested select lazily, once for all the rows of the same result set that have not been loaded yet.
+   *
+   * @since 3.5.3
+   */
+  LAZY_BATCH
 }
@@ -21,6 +21,8 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
 
@@ -130,6 +132,18 @@ public final class MappedStatement {
    * 它将列出语句执行后返回的结果集并赋予每个结果集一个名称，多个名称之间以逗号分隔
    */
 	private String[] resultSets;
+	/**
+	 * 缓存标签，可以包含 #{property} 占位符
+	 */
+	private String[] cacheTags;
+	/**
+	 * 集合参数每批执行的最大元素个数，0 表示不分批
+	 */
+	private int chunkSize;
+	/**
+	 * 是否并行映射简单 ResultMap 的结果行
+	 */
+	private boolean parallelResultMapping;
 
 	MappedStatement() {
 		// constructor disabled
@@ -155,6 +169,7 @@ public final class MappedStatement {
 			}
 			mappedStatement.statementLog = LogFactory.getLog(logId);
 			mappedStatement.lang = configuration.getDefaultScriptingLanguageInstance();
+			mappedStatement.parallelResultMapping = configuration.isParallelResultMappingEnabled();
 		}
 
 		public Builder resource(String resource) {
@@ -250,6 +265,27 @@ public final class MappedStatement {
 			return this;
 		}
 
+		public Builder cacheTags(String cacheTags) {
+			String[] tags = delimitedStringToArray(cacheTags);
+			if (tags != null) {
+				for (int i = 0; i < tags.length; i++) {
+					tags[i] = tags[i].trim();
+				}
+			}
+			mappedStatement.cacheTags = tags;
+			return this;
+		}
+
+		public Builder chunkSize(Integer chunkSize) {
+			mappedStatement.chunkSize = chunkSize == null ? 0 : chunkSize;
+			return this;
+		}
+
+		public Builder parallelResultMapping(boolean parallelResultMapping) {
+			mappedStatement.parallelResultMapping = parallelResultMapping;
+			return this;
+		}
+
 		/**
 		 * @deprecated Use {@link #resultSets}
 		 */
@@ -372,6 +408,78 @@ public final class MappedStatement {
 		return resultSets;
 	}
 
+	/**
+	 * Returns the cache tags declared by this statement. A select tags the entries it caches with them, a write
+	 * statement evicts only the entries having one of them instead of flushing the whole cache.
+	 *
+	 * @return the cache tags, or null if none were declared
+	 * @since 3.5.3
+	 */
+	public String[] getCacheTags() {
+		return cacheTags;
+	}
+
+	/**
+	 * Returns the maximum number of elements of a collection parameter passed to one execution of this statement.
+	 * A larger collection is split into chunks, each executed separately.
+	 *
+	 * @return the chunk size, 0 when the collection is not split
+	 * @since 3.5.3
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns whether the rows of a simple result map of this statement are mapped in parallel on the
+	 * {@link Configuration#getParallelResultMappingExecutor() parallel result mapping executor}.
+	 *
+	 * @return whether the rows are mapped in parallel
+	 * @since 3.5.3
+	 */
+	public boolean isParallelResultMapping() {
+		return parallelResultMapping;
+	}
+
+	/**
+	 * Resolves the cache tags for a parameter: each {@code #{property}} is replaced by the value of the property, or
+	 * by the parameter itself when it is of a simple type. A tag naming a statement of the same namespace is qualified
+	 * with the namespace, and a select is always tagged with its own id, so a write statement can list the selects it
+	 * invalidates.
+	 *
+	 * @param parameterObject the parameter of the statement
+	 * @return the resolved tags
+	 * @since 3.5.3
+	 */
+	public List<String> resolveCacheTags(Object parameterObject) {
+		List<String> tags = new ArrayList<>();
+		if (sqlCommandType == SqlCommandType.SELECT) {
+			tags.add(id);
+		}
+		if (cacheTags == null) {
+			return tags;
+		}
+		MetaObject metaObject = null;
+		boolean simpleType = parameterObject == null
+				|| configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
+		if (!simpleType) {
+			metaObject = configuration.newMetaObject(parameterObject);
+		}
+		MetaObject parameterMetaObject = metaObject;
+		GenericTokenParser parser = new GenericTokenParser("#{", "}",
+				property -> String.valueOf(parameterMetaObject == null ? parameterObject
+						: parameterMetaObject.getValue(property.trim())));
+		String namespace = id.substring(0, id.lastIndexOf('.') + 1);
+		for (String tag : cacheTags) {
+			String resolved = parser.parse(tag);
+			if (resolved.indexOf('.') < 0 && configuration.hasStatement(namespace + resolved, false)) {
+				resolved = namespace + resolved;
+			}
+			tags.add(resolved);
+		}
+		return tags;
+	}
+
 	public BoundSql getBoundSql(Object parameterObject) {
 		// 获得 BoundSql 对象
 		BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
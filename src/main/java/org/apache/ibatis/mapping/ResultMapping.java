@@ -92,6 +92,10 @@ public class ResultMapping {
    * 是否延迟加载
    */
 	private boolean lazy;
+  /**
+   * 是否批量加载，即收集所有结果行的参数后，按批执行一次嵌套子查询
+   */
+	private boolean batch;
 
 	ResultMapping() {
 	}
@@ -179,6 +183,14 @@ public class ResultMapping {
 			return this;
 		}
 
+		/**
+		 * @since 3.5.3
+		 */
+		public Builder batch(boolean batch) {
+			resultMapping.batch = batch;
+			return this;
+		}
+
 		public ResultMapping build() {
 			// lock down collections
 			resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -306,6 +318,16 @@ public class ResultMapping {
 		this.lazy = lazy;
 	}
 
+	/**
+	 * Returns whether the nested select is run once for a batch of result rows instead of once per row.
+	 *
+	 * @return true if the fetch type is batch
+	 * @since 3.5.3
+	 */
+	public boolean isBatch() {
+		return batch;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -351,6 +373,7 @@ public class ResultMapping {
 		sb.append(", resultSet='").append(resultSet).append('\'');
 		sb.append(", foreignColumn='").append(foreignColumn).append('\'');
 		sb.append(", lazy=").append(lazy);
+		sb.append(", batch=").append(batch);
 		sb.append('}');
 		return sb.toString();
 	}
@@ -0,0 +1,40 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
+
+/**
+ * A {@link ReflectorFactory} whose reflectors call the getter and setter methods through classes generated by
+ * {@link java.lang.invoke.LambdaMetafactory} instead of reflection. See {@link LambdaMethodInvoker}.
+ * <p>
+ * The reflectors are cached by default, as the generated classes are lost with them. Enable it in the configuration
+ * with {@code <reflectorFactory type="org.apache.ibatis.reflection.LambdaReflectorFactory"/>}.
+ *
+ * @since 3.5.3
+ */
+public class LambdaReflectorFactory extends DefaultReflectorFactory {
+
+	public LambdaReflectorFactory() {
+		setClassCacheEnabled(true);
+	}
+
+	@Override
+	protected Reflector newReflector(Class<?> type) {
+		return new Reflector(type, true);
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.Map.Entry;
 import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -92,10 +93,26 @@ public class Reflector {
    * value 为属性名称
 	 */
 	private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+	/**
+	 * 是否通过生成的类调用 getter 和 setter 方法
+	 */
+	private final boolean lambdaInvokers;
 
 	public Reflector(Class<?> clazz) {
+		this(clazz, false);
+	}
+
+	/**
+	 * Creates a reflector whose getter and setter methods can be called through generated classes.
+	 *
+	 * @param clazz the class
+	 * @param lambdaInvokers whether to call the getter and setter methods through {@link LambdaMethodInvoker}s
+	 * @since 3.5.3
+	 */
+	public Reflector(Class<?> clazz, boolean lambdaInvokers) {
 		// 设置对应的类
 		type = clazz;
+		this.lambdaInvokers = lambdaInvokers;
 		// <1> 初始化 defaultConstructor 默认构造器，也就是无参构造器
 		addDefaultConstructor(clazz);
 		// <2> 初始化 getMethods 和 getTypes
@@ -185,7 +202,7 @@ public class Reflector {
 	private void addGetMethod(String name, Method method, boolean isAmbiguous) {
 		MethodInvoker invoker = isAmbiguous ? new AmbiguousMethodInvoker(method, MessageFormat.format(
 				"Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
-				name, method.getDeclaringClass().getName())) : new MethodInvoker(method);
+				name, method.getDeclaringClass().getName())) : newMethodInvoker(method);
 		getMethods.put(name, invoker);
 		Type returnType = TypeParameterResolver.resolveReturnType(method, type);
 		getTypes.put(name, typeToClass(returnType));
@@ -258,12 +275,16 @@ public class Reflector {
 	}
 
 	private void addSetMethod(String name, Method method) {
-		MethodInvoker invoker = new MethodInvoker(method);
+		MethodInvoker invoker = newMethodInvoker(method);
 		setMethods.put(name, invoker);
 		Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
 		setTypes.put(name, typeToClass(paramTypes[0]));
 	}
 
+	private MethodInvoker newMethodInvoker(Method method) {
+		return lambdaInvokers ? new LambdaMethodInvoker(method) : new MethodInvoker(method);
+	}
+
 	private Class<?> typeToClass(Type src) {
 		Class<?> result = null;
 		// 普通类型，直接使用类
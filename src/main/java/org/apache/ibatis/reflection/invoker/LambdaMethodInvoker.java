@@ -0,0 +1,162 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A {@link MethodInvoker} that calls the getter or setter through a class generated by {@link LambdaMetafactory}
+ * instead of {@link Method#invoke(Object, Object...)}, so that the JIT can inline the call.
+ * <p>
+ * The class is generated on the first invocation. Methods that the generated class could not link against, such as
+ * non public methods or methods of classes that are not visible from the class loader of MyBatis, keep being invoked
+ * through reflection.
+ *
+ * @since 3.5.3
+ */
+public class LambdaMethodInvoker extends MethodInvoker {
+
+	private final Method method;
+	/**
+	 * setter 方法的参数类型，基本类型会转换为包装类型
+	 */
+	private final Class<?> parameterType;
+	/**
+	 * 是否为基本类型参数的 setter 方法，null 参数仍然通过反射调用，以抛出相同的异常
+	 */
+	private final boolean primitiveParameter;
+	/*
+	 * 生成的 getter 或 setter 访问对象，它们是无状态的，因此不需要 volatile ，并发时最多重复生成
+	 * 分别保存，避免每次调用时对接口做 instanceof 检查
+	 */
+	private Function<Object, Object> getter;
+	private BiConsumer<Object, Object> setter;
+	/**
+	 * 是否无法生成访问类
+	 */
+	private boolean reflective;
+
+	public LambdaMethodInvoker(Method method) {
+		super(method);
+		this.method = method;
+		this.parameterType = method.getParameterTypes().length == 1 ? wrap(method.getParameterTypes()[0]) : null;
+		this.primitiveParameter = method.getParameterTypes().length == 1 && method.getParameterTypes()[0].isPrimitive();
+	}
+
+	@Override
+	public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+		if (getter == null && setter == null && !reflective) {
+			generateAccessor();
+		}
+		// 目标对象或参数的类型不匹配时通过反射调用，抛出相同的 IllegalArgumentException ，而不是生成类中的 ClassCastException
+		if (getter != null && method.getDeclaringClass().isInstance(target)) {
+			try {
+				return getter.apply(target);
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		} else if (setter != null && method.getDeclaringClass().isInstance(target) && isAssignable(args[0])) {
+			try {
+				setter.accept(target, args[0]);
+				return null;
+			} catch (Throwable t) {
+				throw new InvocationTargetException(t);
+			}
+		}
+		return super.invoke(target, args);
+	}
+
+	private boolean isAssignable(Object arg) {
+		return arg == null ? !primitiveParameter : parameterType.isInstance(arg);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void generateAccessor() {
+		if (!isLinkable(method)) {
+			reflective = true;
+			return;
+		}
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final MethodHandle handle = lookup.unreflect(method);
+			final Class<?>[] parameterTypes = method.getParameterTypes();
+			if (parameterTypes.length == 0) {
+				CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class), handle,
+						MethodType.methodType(wrap(method.getReturnType()), method.getDeclaringClass()));
+				getter = (Function<Object, Object>) callSite.getTarget().invoke();
+			} else {
+				CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), handle,
+						MethodType.methodType(void.class, method.getDeclaringClass(), wrap(parameterTypes[0])));
+				setter = (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+			}
+		} catch (Throwable t) {
+			reflective = true;
+		}
+	}
+
+	/**
+	 * 生成的类位于 MyBatis 的类加载器中，只能直接调用对它可见的公共方法
+	 */
+	private static boolean isLinkable(Method method) {
+		if (!Modifier.isPublic(method.getModifiers()) || method.getReturnType() == void.class && method.getParameterTypes().length == 0) {
+			return false;
+		}
+		for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getEnclosingClass()) {
+			if (!Modifier.isPublic(type.getModifiers())) {
+				return false;
+			}
+		}
+		if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isVisible(parameterType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isVisible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return true;
+		}
+		try {
+			return Class.forName(type.getName(), false, LambdaMethodInvoker.class.getClassLoader()) == type;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+	}
+
+}
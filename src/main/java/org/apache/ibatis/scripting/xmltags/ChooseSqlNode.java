@@ -55,4 +55,12 @@ public class ChooseSqlNode implements SqlNode {
     // <3> 返回都失败
     return false;
   }
+
+  List<SqlNode> getIfSqlNodes() {
+    return ifSqlNodes;
+  }
+
+  SqlNode getDefaultSqlNode() {
+    return defaultSqlNode;
+  }
 }
@@ -0,0 +1,287 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 将 SqlNode 树编译成的扁平指令数组，应用时按顺序执行，避免逐层递归和为 trim 类节点创建包装的 DynamicContext 对象
+ *
+ * Static text, {@code <if>}, {@code <choose>}, {@code <trim>}, {@code <where>} and {@code <set>} are compiled into
+ * instructions. Any other node (for example {@code <foreach>}, {@code <bind>} or text containing {@code ${}}) is kept
+ * and applied as is.
+ *
+ * @see Configuration#isDynamicSqlCompilationEnabled()
+ */
+class CompiledSqlNode implements SqlNode {
+
+  /**
+   * 添加文本，操作数为 String
+   */
+  private static final int TEXT = 0;
+  /**
+   * 条件不成立时跳转，操作数为 IfSqlNode
+   */
+  private static final int IF_FALSE = 1;
+  /**
+   * 无条件跳转
+   */
+  private static final int JUMP = 2;
+  /**
+   * 开始收集 trim 节点的内容
+   */
+  private static final int TRIM_BEGIN = 3;
+  /**
+   * 结束收集 trim 节点的内容，操作数为 TrimSqlNode
+   */
+  private static final int TRIM_END = 4;
+  /**
+   * 直接应用未编译的节点，操作数为 SqlNode
+   */
+  private static final int CALL = 5;
+
+  private final Configuration configuration;
+  private final int[] opcodes;
+  private final Object[] operands;
+  /**
+   * 跳转的目标位置
+   */
+  private final int[] jumps;
+  /**
+   * trim 节点的最大嵌套深度
+   */
+  private final int maxDepth;
+
+  private CompiledSqlNode(Configuration configuration, Compiler compiler) {
+    this.configuration = configuration;
+    int size = compiler.opcodes.size();
+    this.opcodes = new int[size];
+    this.operands = compiler.operands.toArray();
+    this.jumps = new int[size];
+    for (int i = 0; i < size; i++) {
+      opcodes[i] = compiler.opcodes.get(i);
+      jumps[i] = compiler.jumps.get(i);
+    }
+    this.maxDepth = compiler.maxDepth;
+  }
+
+  /**
+   * Compiles the given SqlNode tree. Nodes other than {@link MixedSqlNode} are returned unchanged.
+   *
+   * @param configuration the configuration
+   * @param root the root node of a statement
+   * @return the compiled node
+   */
+  static SqlNode compile(Configuration configuration, SqlNode root) {
+    if (root.getClass() != MixedSqlNode.class) {
+      return root;
+    }
+    Compiler compiler = new Compiler();
+    compiler.compile(root);
+    return new CompiledSqlNode(configuration, compiler);
+  }
+
+  @Override
+  public boolean apply(DynamicContext context) {
+    // trim 节点的内容先收集到 buffer 中，starts 记录每一层的起始位置
+    StringBuilder buffer = null;
+    int[] starts = maxDepth == 0 ? null : new int[maxDepth];
+    int depth = 0;
+    DynamicContext bufferContext = null;
+    int pc = 0;
+    while (pc < opcodes.length) {
+      switch (opcodes[pc]) {
+        case TEXT:
+          if (depth == 0) {
+            context.appendSql((String) operands[pc]);
+          } else {
+            buffer.append((String) operands[pc]);
+          }
+          break;
+        case IF_FALSE:
+          if (!((IfSqlNode) operands[pc]).isSatisfied(context)) {
+            pc = jumps[pc];
+            continue;
+          }
+          break;
+        case JUMP:
+          pc = jumps[pc];
+          continue;
+        case TRIM_BEGIN:
+          if (buffer == null) {
+            buffer = new StringBuilder();
+          }
+          starts[depth++] = buffer.length();
+          break;
+        case TRIM_END: {
+          int start = starts[--depth];
+          String sql = ((TrimSqlNode) operands[pc]).trimSql(buffer.substring(start));
+          buffer.setLength(start);
+          if (depth == 0) {
+            context.appendSql(sql);
+          } else {
+            buffer.append(sql);
+          }
+          break;
+        }
+        default:
+          if (depth == 0) {
+            ((SqlNode) operands[pc]).apply(context);
+          } else {
+            if (bufferContext == null) {
+              bufferContext = new BufferContext(configuration, context, buffer);
+            }
+            ((SqlNode) operands[pc]).apply(bufferContext);
+          }
+          break;
+      }
+      pc++;
+    }
+    return true;
+  }
+
+  /**
+   * 将 SqlNode 树转换为指令
+   */
+  private static class Compiler {
+
+    private final List<Integer> opcodes = new ArrayList<>();
+    private final List<Object> operands = new ArrayList<>();
+    private final List<Integer> jumps = new ArrayList<>();
+    /**
+     * 作为跳转目标的位置，这些位置的文本不能与前一条指令合并
+     */
+    private final Set<Integer> labels = new HashSet<>();
+    private int depth;
+    private int maxDepth;
+
+    private void compile(SqlNode node) {
+      Class<?> type = node.getClass();
+      if (type == MixedSqlNode.class) {
+        ((MixedSqlNode) node).getContents().forEach(this::compile);
+      } else if (type == StaticTextSqlNode.class) {
+        text(((StaticTextSqlNode) node).getText());
+      } else if (type == IfSqlNode.class) {
+        IfSqlNode ifSqlNode = (IfSqlNode) node;
+        int branch = emit(IF_FALSE, ifSqlNode);
+        compile(ifSqlNode.getContents());
+        patch(branch);
+      } else if (type == ChooseSqlNode.class && isCompilable((ChooseSqlNode) node)) {
+        ChooseSqlNode chooseSqlNode = (ChooseSqlNode) node;
+        List<Integer> exits = new ArrayList<>();
+        for (SqlNode when : chooseSqlNode.getIfSqlNodes()) {
+          IfSqlNode ifSqlNode = (IfSqlNode) when;
+          int branch = emit(IF_FALSE, ifSqlNode);
+          compile(ifSqlNode.getContents());
+          exits.add(emit(JUMP, null));
+          patch(branch);
+        }
+        if (chooseSqlNode.getDefaultSqlNode() != null) {
+          compile(chooseSqlNode.getDefaultSqlNode());
+        }
+        exits.forEach(this::patch);
+      } else if (node instanceof TrimSqlNode
+          && (type == TrimSqlNode.class || type == WhereSqlNode.class || type == SetSqlNode.class)) {
+        TrimSqlNode trimSqlNode = (TrimSqlNode) node;
+        emit(TRIM_BEGIN, null);
+        maxDepth = Math.max(maxDepth, ++depth);
+        compile(trimSqlNode.getContents());
+        depth--;
+        emit(TRIM_END, trimSqlNode);
+      } else {
+        emit(CALL, node);
+      }
+    }
+
+    private boolean isCompilable(ChooseSqlNode node) {
+      for (SqlNode when : node.getIfSqlNodes()) {
+        if (when.getClass() != IfSqlNode.class) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void text(String text) {
+      int last = opcodes.size() - 1;
+      if (last >= 0 && opcodes.get(last) == TEXT && !labels.contains(opcodes.size())) {
+        // 合并相邻的文本。最外层的 appendSql 会以空格分隔片段，trim 节点内则直接拼接
+        operands.set(last, operands.get(last) + (depth == 0 ? " " : "") + text);
+      } else {
+        emit(TEXT, text);
+      }
+    }
+
+    private int emit(int opcode, Object operand) {
+      opcodes.add(opcode);
+      operands.add(operand);
+      jumps.add(-1);
+      return opcodes.size() - 1;
+    }
+
+    private void patch(int instruction) {
+      int target = opcodes.size();
+      jumps.set(instruction, target);
+      labels.add(target);
+    }
+  }
+
+  /**
+   * trim 节点内应用未编译节点时使用的上下文，SQL 直接添加到 buffer 中
+   */
+  private static class BufferContext extends DynamicContext {
+
+    private final DynamicContext delegate;
+    private final StringBuilder buffer;
+
+    BufferContext(Configuration configuration, DynamicContext delegate, StringBuilder buffer) {
+      super(configuration, null);
+      this.delegate = delegate;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public Map<String, Object> getBindings() {
+      return delegate.getBindings();
+    }
+
+    @Override
+    public void bind(String name, Object value) {
+      delegate.bind(name, value);
+    }
+
+    @Override
+    public int getUniqueNumber() {
+      return delegate.getUniqueNumber();
+    }
+
+    @Override
+    public void appendSql(String sql) {
+      buffer.append(sql);
+    }
+
+    @Override
+    public String getSql() {
+      return delegate.getSql();
+    }
+  }
+}
@@ -17,7 +17,6 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.StringJoiner;
 
 import ognl.OgnlContext;
 import ognl.OgnlRuntime;
@@ -56,9 +55,13 @@ public class DynamicContext {
    */
   private final ContextMap bindings;
   /**
-   * 生成后的 SQL
+   * 生成后的 SQL ，片段之间以空格分隔
    */
-  private final StringJoiner sqlBuilder = new StringJoiner(" ");
+  private final StringBuilder sqlBuilder = new StringBuilder();
+  /**
+   * 是否已经添加过 SQL 片段
+   */
+  private boolean sqlAppended;
   /**
    * 唯一编号。在 {@link org.apache.ibatis.scripting.xmltags.ForEachSqlNode} 使用
    */
@@ -89,7 +92,12 @@ public class DynamicContext {
   }
 
   public void appendSql(String sql) {
-    sqlBuilder.add(sql);
+    if (sqlAppended) {
+      sqlBuilder.append(' ');
+    } else {
+      sqlAppended = true;
+    }
+    sqlBuilder.append(sql);
   }
 
   public String getSql() {
@@ -15,6 +15,11 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
@@ -30,10 +35,16 @@ public class DynamicSqlSource implements SqlSource {
 	 * 根 SqlNode 对象
 	 */
 	private final SqlNode rootSqlNode;
+	/**
+	 * 生成的 SQL 的形状与 SqlSourceBuilder 解析结果的映射，最多保存 sqlShapeCacheSize 个
+	 */
+	private final Map<ShapeKey, SqlSource> shapes = new ConcurrentHashMap<>();
+	private final int maxShapes;
 
 	public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
 		this.configuration = configuration;
 		this.rootSqlNode = rootSqlNode;
+		this.maxShapes = configuration.getSqlShapeCacheSize();
 	}
 
 	@Override
@@ -42,11 +53,18 @@ public class DynamicSqlSource implements SqlSource {
 		DynamicContext context = new DynamicContext(configuration, parameterObject);
 		// <2> 根据上下文应用整个 SqlNode
 		rootSqlNode.apply(context);
-		// <3> 创建 SqlSourceBuilder 对象
-		SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
 		Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    // <4> 通过 SqlSourceBuilder 将应用后的 SQL 进行转换，变量替换成 ? 占位符，并生成对应的 ParameterMapping 集合
-		SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+		// <3> 相同形状的 SQL 直接复用之前的解析结果
+		ShapeKey key = maxShapes > 0 ? new ShapeKey(context.getSql(), parameterType, context.getBindings()) : null;
+		SqlSource sqlSource = key != null ? shapes.get(key) : null;
+		if (sqlSource == null) {
+			// <4> 通过 SqlSourceBuilder 将应用后的 SQL 进行转换，变量替换成 ? 占位符，并生成对应的 ParameterMapping 集合
+			SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+			sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+			if (key != null && sqlSourceParser.isReusable() && shapes.size() < maxShapes) {
+				shapes.putIfAbsent(key, sqlSource);
+			}
+		}
 		// <5> 创建 BoundSql 对象
 		BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
 		// <6> 添加附加参数到 BoundSql 对象中，因为上一步创建的`BoundSql`对象时候传入的仅是入参信息，没有添加附加参数
@@ -54,4 +72,48 @@ public class DynamicSqlSource implements SqlSource {
 		return boundSql;
 	}
 
+	/**
+	 * 生成的 SQL 的形状：应用 SqlNode 后的 SQL 、参数类型，以及附加参数的名字和类型
+	 */
+	private static final class ShapeKey {
+
+		private final String sql;
+		private final Class<?> parameterType;
+		/**
+		 * 依次为附加参数的名字和值的类型
+		 */
+		private final Object[] bindings;
+		private final int hashCode;
+
+		ShapeKey(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+			this.sql = sql;
+			this.parameterType = parameterType;
+			this.bindings = new Object[bindings.size() * 2];
+			int i = 0;
+			for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+				this.bindings[i++] = entry.getKey();
+				this.bindings[i++] = entry.getValue() == null ? null : entry.getValue().getClass();
+			}
+			this.hashCode = 31 * (31 * sql.hashCode() + parameterType.hashCode()) + Arrays.hashCode(this.bindings);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof ShapeKey)) {
+				return false;
+			}
+			ShapeKey other = (ShapeKey) o;
+			return hashCode == other.hashCode && parameterType == other.parameterType && Objects.equals(sql, other.sql)
+					&& Arrays.equals(bindings, other.bindings);
+		}
+	}
+
 }
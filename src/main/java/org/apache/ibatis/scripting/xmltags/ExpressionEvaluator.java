@@ -37,7 +37,7 @@ public class ExpressionEvaluator {
 	 */
 	public boolean evaluateBoolean(String expression, Object parameterObject) {
 		// 获得表达式对应的值
-		Object value = OgnlCache.getValue(expression, parameterObject);
+		Object value = getValue(expression, parameterObject);
 		// 如果是 Boolean 类型，直接判断
 		if (value instanceof Boolean) {
 			return (Boolean) value;
@@ -59,7 +59,7 @@ public class ExpressionEvaluator {
 	 */
 	public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
 		// 获得表达式对应的值
-		Object value = OgnlCache.getValue(expression, parameterObject);
+		Object value = getValue(expression, parameterObject);
 		if (value == null) {
 			throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
 		}
@@ -88,4 +88,16 @@ public class ExpressionEvaluator {
 				"Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
 	}
 
+	/**
+	 * Evaluates the expression with OGNL.
+	 *
+	 * @param expression      the expression
+	 * @param parameterObject the root object
+	 * @return the value
+	 * @since 3.5.3
+	 */
+	protected Object getValue(String expression, Object parameterObject) {
+		return OgnlCache.getValue(expression, parameterObject);
+	}
+
 }
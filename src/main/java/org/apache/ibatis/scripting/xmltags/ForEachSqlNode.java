@@ -15,10 +15,17 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.ArrayTypeHandler;
 
 /**
  * @author Clinton Begin
@@ -28,6 +35,10 @@ public class ForEachSqlNode implements SqlNode {
    * 集合中元素绑定到上下文中 key 的前缀
    */
 	public static final String ITEM_PREFIX = "__frch_";
+	/**
+	 * PADDED 模式下补齐后的最小元素个数
+	 */
+	private static final int MIN_PADDED_SIZE = 8;
 	/**
 	 * 表达式计算器
 	 */
@@ -60,11 +71,25 @@ public class ForEachSqlNode implements SqlNode {
 	 * 集合中每个元素的索引
 	 */
 	private final String index;
+	/**
+	 * 生成 SQL 的方式
+	 */
+	private final Mode mode;
 	private final Configuration configuration;
 
 	public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index,
 			String item, String open, String close, String separator) {
-		this.evaluator = new ExpressionEvaluator();
+		this(configuration, contents, collectionExpression, index, item, open, close, separator, Mode.EXPAND,
+				new ExpressionEvaluator());
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index,
+			String item, String open, String close, String separator, Mode mode, ExpressionEvaluator evaluator) {
+		this.evaluator = evaluator;
+		this.mode = mode;
 		this.collectionExpression = collectionExpression;
 		this.contents = contents;
 		this.open = open;
@@ -91,67 +116,27 @@ public class ForEachSqlNode implements SqlNode {
 		  // 集合中没有元素则无需遍历
 			return true;
 		}
+		// ARRAY 模式，将整个集合作为一个数组参数绑定
+		if (mode == Mode.ARRAY) {
+			applyArray(context, iterable);
+			return true;
+		}
 		boolean first = true;
 		// <2> 添加 open 到 SQL 中
 		applyOpen(context);
 		int i = 0;
+		Object last = null;
 		for (Object o : iterable) {
-			// <3> 记录原始的 context 对象，下面通过两个装饰器对他进行操作
-			DynamicContext oldContext = context;
-			// <4> 生成一个 context 装饰器
-			if (first || separator == null) {
-				context = new PrefixedContext(context, "");
-			} else {
-        // 设置其需要添加的前缀为分隔符
-				context = new PrefixedContext(context, separator);
-			}
-			// <5> 生成一个唯一索引值
-			int uniqueNumber = context.getUniqueNumber();
-			// Issue #709
-			// <6> 绑定到 context 中
-			if (o instanceof Map.Entry) {
-				@SuppressWarnings("unchecked")
-				Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        /*
-         * 和下面同理，只不过索引是 Map 的 key
-         */
-				applyIndex(context, mapEntry.getKey(), uniqueNumber);
-				applyItem(context, mapEntry.getValue(), uniqueNumber);
-			} else {
-        /*
-         * 绑定当前集合中当前元素的索引到当前解析 SQL 语句的上下文中
-         *
-         * 1. 'index' -> i
-         *
-         * 2. __frch_'index'_uniqueNumber -> i
-         */
-				applyIndex(context, i, uniqueNumber);
-				/*
-				 * 绑定集合中当前元素的值到当前解析 SQL 语句的上下文中
-				 *
-				 * 1. 'item' -> o
-				 *
-				 * 2. __frch_'item'_uniqueNumber -> o
-				 *
-				 */
-				applyItem(context, o, uniqueNumber);
-			}
-			/*
-			 * 再装饰一下 PrefixedContext -> FilteredDynamicContext
-			 *
-			 * 前者进行前缀的添加，第一个元素添加后设置为已添加标记，后续不在添加
-			 * 后者将<foreach />标签内的"#{item}"或者"#{index}"替换成上面我们已经绑定的数据"#{__frch_'item'_uniqueNumber}"或者"#{__frch_'index'_uniqueNumber}"
-			 *
-			 * <7> 进行转换，将<foreach />标签内部定义的内容进行转换
-			 */
-			contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-			if (first) { // <8> 判断 prefix 是否已经插入
-				first = !((PrefixedContext) context).isPrefixApplied();
-			}
-			// <9> 恢复原始的 context 对象，因为目前 context 是装饰器
-			context = oldContext;
+			first = applyElement(context, o, i, first);
+			last = o;
 			i++;
 		}
+		// PADDED 模式，重复最后一个元素，直到元素个数达到 8、16、32 ……
+		if (mode == Mode.PADDED) {
+			for (int size = i, paddedSize = paddedSize(size); i < paddedSize; i++) {
+				first = applyElement(context, last, size - 1, first);
+			}
+		}
 		// <10> 添加 close 到 SQL 中
 		applyClose(context);
 		// <11> 移除 index 和 item 对应的绑定
@@ -160,6 +145,156 @@ public class ForEachSqlNode implements SqlNode {
 		return true;
 	}
 
+	/**
+	 * 应用集合中的一个元素
+	 *
+	 * @param context 上下文
+	 * @param o       元素
+	 * @param i       元素的索引
+	 * @param first   是否还未添加过元素
+	 * @return 是否还未添加过元素
+	 */
+	private boolean applyElement(DynamicContext context, Object o, int i, boolean first) {
+		// <4> 生成一个 context 装饰器
+		PrefixedContext prefixedContext;
+		if (first || separator == null) {
+			prefixedContext = new PrefixedContext(context, "");
+		} else {
+			// 设置其需要添加的前缀为分隔符
+			prefixedContext = new PrefixedContext(context, separator);
+		}
+		// <5> 生成一个唯一索引值
+		int uniqueNumber = prefixedContext.getUniqueNumber();
+		// Issue #709
+		// <6> 绑定到 context 中
+		if (o instanceof Map.Entry) {
+			@SuppressWarnings("unchecked")
+			Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+			/*
+			 * 和下面同理，只不过索引是 Map 的 key
+			 */
+			applyIndex(prefixedContext, mapEntry.getKey(), uniqueNumber);
+			applyItem(prefixedContext, mapEntry.getValue(), uniqueNumber);
+		} else {
+			/*
+			 * 绑定当前集合中当前元素的索引到当前解析 SQL 语句的上下文中
+			 *
+			 * 1. 'index' -> i
+			 *
+			 * 2. __frch_'index'_uniqueNumber -> i
+			 */
+			applyIndex(prefixedContext, i, uniqueNumber);
+			/*
+			 * 绑定集合中当前元素的值到当前解析 SQL 语句的上下文中
+			 *
+			 * 1. 'item' -> o
+			 *
+			 * 2. __frch_'item'_uniqueNumber -> o
+			 *
+			 */
+			applyItem(prefixedContext, o, uniqueNumber);
+		}
+		/*
+		 * 再装饰一下 PrefixedContext -> FilteredDynamicContext
+		 *
+		 * 前者进行前缀的添加，第一个元素添加后设置为已添加标记，后续不在添加
+		 * 后者将<foreach />标签内的"#{item}"或者"#{index}"替换成上面我们已经绑定的数据"#{__frch_'item'_uniqueNumber}"或者"#{__frch_'index'_uniqueNumber}"
+		 *
+		 * <7> 进行转换，将<foreach />标签内部定义的内容进行转换
+		 */
+		contents.apply(new FilteredDynamicContext(configuration, prefixedContext, index, item, uniqueNumber));
+		// <8> 判断 prefix 是否已经插入
+		return first && !prefixedContext.isPrefixApplied();
+	}
+
+	/**
+	 * 将集合中的元素（Map 为 value）转换成数组，作为一个参数绑定，并通过 {@link ArrayTypeHandler} 设置到 SQL 中
+	 */
+	private void applyArray(DynamicContext context, Iterable<?> iterable) {
+		List<Object> values = new ArrayList<>();
+		Class<?> componentType = null;
+		for (Object o : iterable) {
+			Object value = o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getValue() : o;
+			if (value != null) {
+				componentType = componentType == null ? value.getClass() : commonSuperclass(componentType, value.getClass());
+			}
+			values.add(value);
+		}
+		if (componentType == null) {
+			throw new BuilderException("Cannot bind the collection '" + collectionExpression
+					+ "' as an array because all of its elements are null.");
+		}
+		if (componentType == Object.class || componentType == Number.class) {
+			// 元素类型不一致时，数字统一为 Long、Double 或 BigDecimal，其余无法确定数组的 SQL 类型
+			componentType = widenedNumberType(values);
+			if (componentType == null) {
+				throw new BuilderException("Cannot bind the collection '" + collectionExpression
+						+ "' as an array because its elements have no common type. Use elements of a single type.");
+			}
+		}
+		Object array = Array.newInstance(componentType, values.size());
+		for (int i = 0; i < values.size(); i++) {
+			Array.set(array, i, convertNumber(values.get(i), componentType));
+		}
+		String name = itemizeItem("array", context.getUniqueNumber());
+		context.bind(name, array);
+		applyOpen(context);
+		context.appendSql("#{" + name + ",typeHandler=" + ArrayTypeHandler.class.getName() + "}");
+		applyClose(context);
+	}
+
+	private static Class<?> commonSuperclass(Class<?> a, Class<?> b) {
+		Class<?> type = a;
+		while (!type.isAssignableFrom(b)) {
+			type = type.getSuperclass();
+		}
+		return type;
+	}
+
+	/**
+	 * 获得能表示所有数字元素的类型，存在非数字元素时返回 null
+	 */
+	private static Class<?> widenedNumberType(List<Object> values) {
+		boolean integral = true;
+		boolean floating = true;
+		for (Object value : values) {
+			if (value == null) {
+				continue;
+			}
+			if (!(value instanceof Number)) {
+				return null;
+			}
+			integral &= value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long;
+			floating &= value instanceof Float || value instanceof Double;
+		}
+		return integral ? Long.class : floating ? Double.class : BigDecimal.class;
+	}
+
+	private static Object convertNumber(Object value, Class<?> type) {
+		if (value == null || type.isInstance(value)) {
+			return value;
+		}
+		Number number = (Number) value;
+		if (type == Long.class) {
+			return number.longValue();
+		} else if (type == Double.class) {
+			return number.doubleValue();
+		} else if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		} else if (number instanceof Byte || number instanceof Short || number instanceof Integer || number instanceof Long) {
+			return BigDecimal.valueOf(number.longValue());
+		}
+		return new BigDecimal(number.toString());
+	}
+
+	private static int paddedSize(int size) {
+		int paddedSize = MIN_PADDED_SIZE;
+		while (paddedSize < size && paddedSize > 0) {
+			paddedSize <<= 1;
+		}
+		return paddedSize > 0 ? paddedSize : size;
+	}
+
 	private void applyIndex(DynamicContext context, Object o, int i) {
 		if (index != null) {
 			context.bind(index, o);
@@ -190,6 +325,32 @@ public class ForEachSqlNode implements SqlNode {
 		return ITEM_PREFIX + item + "_" + i;
 	}
 
+	/**
+	 * How a {@code <foreach>} renders its collection.
+	 *
+	 * @since 3.5.3
+	 */
+	public enum Mode {
+		/**
+		 * Applies the body once per element (the default).
+		 */
+		EXPAND,
+		/**
+		 * Binds the elements (the values for a map) as a single JDBC array parameter through
+		 * {@link ArrayTypeHandler}, for example {@code id = ANY(?)} on PostgreSQL. The body, {@code item},
+		 * {@code index} and {@code separator} are not used. The component type of the array is the common type of the
+		 * elements; numbers of different types are converted to {@code Long}, {@code Double} or {@code BigDecimal}.
+		 * A {@link BuilderException} is thrown when the elements are all null or have no common type.
+		 */
+		ARRAY,
+		/**
+		 * Applies the body once per element, then repeats the last element until the number of elements is 8, 16,
+		 * 32 and so on, so that lists of similar sizes render the same SQL. Only suitable where repeated elements do
+		 * not change the result, such as {@code IN} lists.
+		 */
+		PADDED
+	}
+
 	private static class FilteredDynamicContext extends DynamicContext {
     /**
      * 装饰的对象
@@ -35,15 +35,22 @@ public class IfSqlNode implements SqlNode {
 	private final SqlNode contents;
 
 	public IfSqlNode(SqlNode contents, String test) {
+		this(contents, test, new ExpressionEvaluator());
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public IfSqlNode(SqlNode contents, String test, ExpressionEvaluator evaluator) {
 		this.test = test;
 		this.contents = contents;
-		this.evaluator = new ExpressionEvaluator();
+		this.evaluator = evaluator;
 	}
 
 	@Override
 	public boolean apply(DynamicContext context) {
 		// <1> 判断是否符合条件
-		if (evaluator.evaluateBoolean(test, context.getBindings())) {
+		if (isSatisfied(context)) {
 			// <2> 解析该<if />节点中的内容
 			contents.apply(context);
 			return true;
@@ -52,4 +59,12 @@ public class IfSqlNode implements SqlNode {
 		return false;
 	}
 
+	boolean isSatisfied(DynamicContext context) {
+		return evaluator.evaluateBoolean(test, context.getBindings());
+	}
+
+	SqlNode getContents() {
+		return contents;
+	}
+
 }
@@ -0,0 +1,537 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.scripting.xmltags.DynamicContext.ContextMap;
+
+/**
+ * 不依赖 OGNL 的简单表达式，只支持 OGNL 的一个常用子集，结果与 OGNL 相同
+ *
+ * Supported are property paths ({@code user.name}), the zero argument methods {@code size()}, {@code isEmpty()},
+ * {@code length()} and {@code trim()}, the literals {@code null}, {@code true}, {@code false}, integers, decimals and
+ * quoted strings, the comparison operators ({@code == != < <= > >=} and {@code eq neq lt lte gt gte}), the logical
+ * operators ({@code and or not && || !}) and parentheses.
+ *
+ * @see SimpleExpressionEvaluator
+ */
+final class SimpleExpression {
+
+  /**
+   * 数值类型，按照比较时转换的顺序排列
+   */
+  private static final int INTEGRAL = 0;
+  private static final int FLOATING = 1;
+  private static final int BIG = 2;
+  private static final int OTHER = 3;
+  private static final int NONNUMERIC = 4;
+
+  /**
+   * OGNL 中不能作为属性名的关键字，出现时交给 OGNL 处理
+   */
+  private static final Set<String> UNSUPPORTED_KEYWORDS = new HashSet<>(Arrays.asList(
+      "in", "instanceof", "shl", "shr", "ushr", "band", "bor", "xor", "new", "this"));
+  /**
+   * OGNL 中 Map 的特殊属性
+   */
+  private static final Set<String> MAP_PROPERTIES = new HashSet<>(Arrays.asList(
+      "size", "isEmpty", "keys", "keySet", "values"));
+
+  private final Node root;
+
+  private SimpleExpression(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Parses the expression.
+   *
+   * @param expression the expression
+   * @param reflectorFactory the factory used to read the properties of the beans
+   * @return the parsed expression, or null when the expression is not in the supported subset
+   */
+  static SimpleExpression parse(String expression, ReflectorFactory reflectorFactory) {
+    try {
+      Parser parser = new Parser(tokenize(expression), reflectorFactory);
+      Node node = parser.parseOr();
+      return parser.hasNext() ? null : new SimpleExpression(node);
+    } catch (UnsupportedExpressionException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Evaluates the expression against the given root object.
+   *
+   * @param root the root object, usually the bindings of a {@link DynamicContext}
+   * @return the value
+   * @throws UnsupportedExpressionException when a value needs a conversion that only OGNL performs
+   * @throws RuntimeException when a getter throws one
+   * @throws ReflectionException when a getter throws a checked exception
+   */
+  Object getValue(Object root) {
+    return this.root.getValue(root);
+  }
+
+  /**
+   * 表达式需要交给 OGNL 处理
+   */
+  static final class UnsupportedExpressionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final UnsupportedExpressionException INSTANCE = new UnsupportedExpressionException();
+
+    private UnsupportedExpressionException() {
+      super(null, null, false, false);
+    }
+  }
+
+  private interface Node {
+    Object getValue(Object root);
+  }
+
+  private static List<String> tokenize(String expression) {
+    List<String> tokens = new ArrayList<>();
+    int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      char c = expression.charAt(i);
+      int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      if (Character.isJavaIdentifierStart(c)) {
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+      } else if (Character.isDigit(c)) {
+        while (i < length && Character.isDigit(expression.charAt(i))) {
+          i++;
+        }
+        if (i + 1 < length && expression.charAt(i) == '.' && Character.isDigit(expression.charAt(i + 1))) {
+          i++;
+          while (i < length && Character.isDigit(expression.charAt(i))) {
+            i++;
+          }
+        }
+        // 带有类型后缀或者指数的数字
+        if (i < length && (Character.isJavaIdentifierPart(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          throw UnsupportedExpressionException.INSTANCE;
+        }
+      } else if (c == '\'' || c == '"') {
+        i = expression.indexOf(c, i + 1);
+        // 未闭合、含有转义字符，或者单引号的单个字符（OGNL 中为 Character）
+        if (i < 0 || expression.lastIndexOf('\\', i) > start || (c == '\'' && i - start == 2)) {
+          throw UnsupportedExpressionException.INSTANCE;
+        }
+        i++;
+      } else if (expression.startsWith("==", i) || expression.startsWith("!=", i) || expression.startsWith("<=", i)
+          || expression.startsWith(">=", i) || expression.startsWith("&&", i) || expression.startsWith("||", i)) {
+        i += 2;
+      } else if ("<>!().".indexOf(c) >= 0) {
+        i++;
+      } else {
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+      tokens.add(expression.substring(start, i));
+    }
+    return tokens;
+  }
+
+  private static class Parser {
+    private final List<String> tokens;
+    private final ReflectorFactory reflectorFactory;
+    private int position;
+
+    Parser(List<String> tokens, ReflectorFactory reflectorFactory) {
+      this.tokens = tokens;
+      this.reflectorFactory = reflectorFactory;
+    }
+
+    boolean hasNext() {
+      return position < tokens.size();
+    }
+
+    private boolean accept(String... candidates) {
+      if (hasNext()) {
+        String token = tokens.get(position);
+        for (String candidate : candidates) {
+          if (candidate.equals(token)) {
+            position++;
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    private String next() {
+      if (!hasNext()) {
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+      return tokens.get(position++);
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+    }
+
+    Node parseOr() {
+      Node left = parseAnd();
+      while (accept("or", "||")) {
+        Node l = left;
+        Node r = parseAnd();
+        left = root -> {
+          Object value = l.getValue(root);
+          return booleanValue(value) ? value : r.getValue(root);
+        };
+      }
+      return left;
+    }
+
+    private Node parseAnd() {
+      Node left = parseEquality();
+      while (accept("and", "&&")) {
+        Node l = left;
+        Node r = parseEquality();
+        left = root -> {
+          Object value = l.getValue(root);
+          return booleanValue(value) ? r.getValue(root) : value;
+        };
+      }
+      return left;
+    }
+
+    private Node parseEquality() {
+      Node left = parseRelational();
+      while (true) {
+        Node l = left;
+        if (accept("==", "eq")) {
+          Node r = parseRelational();
+          left = root -> isEqual(l.getValue(root), r.getValue(root));
+        } else if (accept("!=", "neq")) {
+          Node r = parseRelational();
+          left = root -> !isEqual(l.getValue(root), r.getValue(root));
+        } else {
+          return left;
+        }
+      }
+    }
+
+    private Node parseRelational() {
+      Node left = parseUnary();
+      while (true) {
+        Node l = left;
+        if (accept("<", "lt")) {
+          Node r = parseUnary();
+          left = root -> compare(l.getValue(root), r.getValue(root)) < 0;
+        } else if (accept("<=", "lte")) {
+          Node r = parseUnary();
+          left = root -> compare(l.getValue(root), r.getValue(root)) <= 0;
+        } else if (accept(">", "gt")) {
+          Node r = parseUnary();
+          left = root -> compare(l.getValue(root), r.getValue(root)) > 0;
+        } else if (accept(">=", "gte")) {
+          Node r = parseUnary();
+          left = root -> compare(l.getValue(root), r.getValue(root)) >= 0;
+        } else {
+          return left;
+        }
+      }
+    }
+
+    private Node parseUnary() {
+      if (accept("!", "not")) {
+        Node operand = parseUnary();
+        return root -> !booleanValue(operand.getValue(root));
+      }
+      return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+      if (accept("(")) {
+        Node node = parseOr();
+        expect(")");
+        return node;
+      }
+      String token = next();
+      char first = token.charAt(0);
+      if (first == '\'' || first == '"') {
+        String value = token.substring(1, token.length() - 1);
+        return root -> value;
+      }
+      if (Character.isDigit(first)) {
+        Object value = parseNumber(token);
+        return root -> value;
+      }
+      if (!Character.isJavaIdentifierStart(first) || isOperatorKeyword(token)
+          || UNSUPPORTED_KEYWORDS.contains(token)) {
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+      switch (token) {
+        case "null":
+          return root -> null;
+        case "true":
+          return root -> Boolean.TRUE;
+        case "false":
+          return root -> Boolean.FALSE;
+        default:
+          return parsePath(token);
+      }
+    }
+
+    private Node parsePath(String first) {
+      if ("(".equals(peek())) {
+        // 根对象上的方法调用
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+      Node node = root -> getProperty(root, first, reflectorFactory);
+      while (accept(".")) {
+        Node target = node;
+        String name = next();
+        if (!Character.isJavaIdentifierStart(name.charAt(0)) || isOperatorKeyword(name)
+            || UNSUPPORTED_KEYWORDS.contains(name)) {
+          throw UnsupportedExpressionException.INSTANCE;
+        }
+        if (accept("(")) {
+          expect(")");
+          node = root -> invoke(target.getValue(root), name);
+        } else if (MAP_PROPERTIES.contains(name)) {
+          throw UnsupportedExpressionException.INSTANCE;
+        } else {
+          node = root -> getProperty(target.getValue(root), name, reflectorFactory);
+        }
+      }
+      return node;
+    }
+
+    private String peek() {
+      return hasNext() ? tokens.get(position) : null;
+    }
+
+    private static boolean isOperatorKeyword(String token) {
+      switch (token) {
+        case "and":
+        case "or":
+        case "not":
+        case "eq":
+        case "neq":
+        case "lt":
+        case "lte":
+        case "gt":
+        case "gte":
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private static Object parseNumber(String token) {
+      if (token.indexOf('.') >= 0) {
+        return Double.valueOf(token);
+      }
+      try {
+        return Integer.valueOf(token);
+      } catch (NumberFormatException e) {
+        throw UnsupportedExpressionException.INSTANCE;
+      }
+    }
+  }
+
+  private static Object getProperty(Object target, String name, ReflectorFactory reflectorFactory) {
+    if (target instanceof ContextMap) {
+      // 与 DynamicContext.ContextAccessor 相同
+      Map<?, ?> map = (Map<?, ?>) target;
+      Object result = map.get(name);
+      if (result != null || map.containsKey(name)) {
+        return result;
+      }
+      Object parameterObject = map.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      return parameterObject instanceof Map ? ((Map<?, ?>) parameterObject).get(name) : null;
+    }
+    if (target instanceof Map) {
+      return ((Map<?, ?>) target).get(name);
+    }
+    if (target == null || target instanceof Collection || target instanceof Iterator
+        || target instanceof Enumeration || target.getClass().isArray()) {
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    Reflector reflector = reflectorFactory.findForClass(target.getClass());
+    if (!reflector.hasGetter(name)) {
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    try {
+      return reflector.getGetInvoker(name).invoke(target, null);
+    } catch (IllegalAccessException e) {
+      throw UnsupportedExpressionException.INSTANCE;
+    } catch (InvocationTargetException e) {
+      // getter 抛出的异常直接抛出，不交给 OGNL 重新计算
+      Throwable cause = ExceptionUtil.unwrapThrowable(e);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ReflectionException("Error invoking getter '" + name + "' of " + target.getClass() + ". Cause: "
+          + cause, cause);
+    }
+  }
+
+  private static Object invoke(Object target, String method) {
+    switch (method) {
+      case "size":
+        if (target instanceof Collection) {
+          return ((Collection<?>) target).size();
+        } else if (target instanceof Map) {
+          return ((Map<?, ?>) target).size();
+        }
+        break;
+      case "isEmpty":
+        if (target instanceof Collection) {
+          return ((Collection<?>) target).isEmpty();
+        } else if (target instanceof Map) {
+          return ((Map<?, ?>) target).isEmpty();
+        } else if (target instanceof String) {
+          return ((String) target).isEmpty();
+        }
+        break;
+      case "length":
+        if (target instanceof CharSequence) {
+          return ((CharSequence) target).length();
+        }
+        break;
+      case "trim":
+        if (target instanceof String) {
+          return ((String) target).trim();
+        }
+        break;
+      default:
+        break;
+    }
+    throw UnsupportedExpressionException.INSTANCE;
+  }
+
+  /**
+   * 与 OGNL 中 OgnlOps.booleanValue 相同
+   */
+  private static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  private static boolean isEqual(Object left, Object right) {
+    if (left == null || right == null) {
+      return left == right;
+    }
+    if (left == right) {
+      return true;
+    }
+    if (isOgnlNumber(left) || isOgnlNumber(right)) {
+      if (left instanceof Boolean && right instanceof Boolean) {
+        return left.equals(right);
+      }
+      return compare(left, right) == 0;
+    }
+    if (left.getClass().isArray() || right.getClass().isArray()) {
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    if (!(left instanceof Comparable) || !(right instanceof Comparable)) {
+      return left.equals(right);
+    }
+    return compare(left, right) == 0;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static int compare(Object left, Object right) {
+    if (left == null || right == null) {
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    int leftType = numericType(left);
+    int rightType = numericType(right);
+    if (leftType == NONNUMERIC && rightType == NONNUMERIC) {
+      if (left instanceof Comparable && left.getClass().isAssignableFrom(right.getClass())) {
+        return ((Comparable) left).compareTo(right);
+      }
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    if (leftType == NONNUMERIC || rightType == NONNUMERIC || leftType == OTHER || rightType == OTHER) {
+      throw UnsupportedExpressionException.INSTANCE;
+    }
+    int type = Math.max(leftType, rightType);
+    if (type == INTEGRAL) {
+      return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+    } else if (type == FLOATING) {
+      double leftValue = ((Number) left).doubleValue();
+      double rightValue = ((Number) right).doubleValue();
+      return leftValue == rightValue ? 0 : leftValue < rightValue ? -1 : 1;
+    }
+    return toBigDecimal((Number) left).compareTo(toBigDecimal((Number) right));
+  }
+
+  private static int numericType(Object value) {
+    Class<?> type = value.getClass();
+    if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+      return INTEGRAL;
+    } else if (type == Double.class || type == Float.class) {
+      return FLOATING;
+    } else if (type == BigDecimal.class || type == BigInteger.class) {
+      return BIG;
+    } else if (type == Boolean.class || type == Character.class) {
+      return OTHER;
+    }
+    return NONNUMERIC;
+  }
+
+  private static boolean isOgnlNumber(Object value) {
+    return numericType(value) != NONNUMERIC;
+  }
+
+  private static BigDecimal toBigDecimal(Number value) {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    } else if (value instanceof BigInteger) {
+      return new BigDecimal((BigInteger) value);
+    }
+    return new BigDecimal(String.valueOf(value));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * An {@link ExpressionEvaluator} that evaluates the common subset of OGNL expressions used in {@code <if test>},
+ * {@code <when test>} and {@code <foreach collection>} by reading the properties directly, and falls back to OGNL
+ * for any other expression or value. An exception thrown while evaluating a supported expression, e.g. by a getter,
+ * is not retried with OGNL; it is wrapped in a {@link BuilderException} as OGNL errors are.
+ *
+ * @see SimpleExpression
+ * @see SimpleExpressionLanguageDriver
+ * @since 3.5.3
+ */
+public class SimpleExpressionEvaluator extends ExpressionEvaluator {
+
+  /**
+   * 不支持的表达式的占位对象
+   */
+  private static final Object UNSUPPORTED = new Object();
+  /**
+   * 表达式的缓存的映射
+   *
+   * KEY：表达式 VALUE：SimpleExpression 对象，或者 {@link #UNSUPPORTED}
+   */
+  private final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  /**
+   * 读取属性使用的 ReflectorFactory 对象
+   */
+  private final ReflectorFactory reflectorFactory;
+
+  public SimpleExpressionEvaluator() {
+    this(new DefaultReflectorFactory());
+  }
+
+  /**
+   * @param reflectorFactory the factory used to read the properties, usually the one of the configuration
+   */
+  public SimpleExpressionEvaluator(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  protected Object getValue(String expression, Object parameterObject) {
+    Object parsed = expressionCache.get(expression);
+    if (parsed == null) {
+      SimpleExpression simpleExpression = SimpleExpression.parse(expression, reflectorFactory);
+      parsed = simpleExpression == null ? UNSUPPORTED : simpleExpression;
+      expressionCache.put(expression, parsed);
+    }
+    if (parsed != UNSUPPORTED) {
+      try {
+        return ((SimpleExpression) parsed).getValue(parameterObject);
+      } catch (SimpleExpression.UnsupportedExpressionException e) {
+        // 需要 OGNL 的类型转换或访问方式时，由 OGNL 重新计算，保证结果与 OGNL 相同
+      } catch (RuntimeException e) {
+        throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+      }
+    }
+    return super.getValue(expression, parameterObject);
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * An {@link XMLLanguageDriver} whose dynamic SQL evaluates its expressions with a {@link SimpleExpressionEvaluator}
+ * regardless of the {@code simpleExpressionEvaluationEnabled} setting.
+ *
+ * @since 3.5.3
+ */
+public class SimpleExpressionLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType,
+        new SimpleExpressionEvaluator(configuration.getReflectorFactory()));
+    return builder.parseScriptNode();
+  }
+
+}
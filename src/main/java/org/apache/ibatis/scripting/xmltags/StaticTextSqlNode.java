@@ -35,4 +35,8 @@ public class StaticTextSqlNode implements SqlNode {
 		return true;
 	}
 
+	String getText() {
+		return text;
+	}
+
 }
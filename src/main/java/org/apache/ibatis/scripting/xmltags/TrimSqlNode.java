@@ -85,6 +85,55 @@ public class TrimSqlNode implements SqlNode {
 		return result;
 	}
 
+	/**
+	 * 去除 SQL 首尾的空白字符，然后删除需要覆盖的前缀和后缀，并添加 prefix 和 suffix
+	 *
+	 * @param sql 节点内容生成的 SQL
+	 * @return 处理后的 SQL
+	 */
+	String trimSql(String sql) {
+		String trimmedSql = sql.trim();
+		if (trimmedSql.isEmpty()) {
+			return trimmedSql;
+		}
+		StringBuilder builder = new StringBuilder(trimmedSql.length() + 16).append(trimmedSql);
+		// 删除需要覆盖的前缀，添加 prefix
+		if (prefixesToOverride != null) {
+			for (String toRemove : prefixesToOverride) {
+				if (trimmedSql.regionMatches(true, 0, toRemove, 0, toRemove.length())) {
+					builder.delete(0, toRemove.trim().length());
+					break;
+				}
+			}
+		}
+		if (prefix != null) {
+			builder.insert(0, " ");
+			builder.insert(0, prefix);
+		}
+		// 删除需要覆盖的后缀，添加 suffix
+		if (suffixesToOverride != null) {
+			for (String toRemove : suffixesToOverride) {
+				if (endsWithIgnoreCase(trimmedSql, toRemove) || endsWithIgnoreCase(trimmedSql, toRemove.trim())) {
+					builder.delete(builder.length() - toRemove.trim().length(), builder.length());
+					break;
+				}
+			}
+		}
+		if (suffix != null) {
+			builder.append(" ");
+			builder.append(suffix);
+		}
+		return builder.toString();
+	}
+
+	private static boolean endsWithIgnoreCase(String sql, String suffix) {
+		return sql.regionMatches(true, sql.length() - suffix.length(), suffix, 0, suffix.length());
+	}
+
+	SqlNode getContents() {
+		return contents;
+	}
+
 	private static List<String> parseOverrides(String overrides) {
 		if (overrides != null) {
 			final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -102,14 +151,6 @@ public class TrimSqlNode implements SqlNode {
 		 * 装饰的 DynamicContext 对象
 		 */
 		private DynamicContext delegate;
-		/**
-		 * 是否 prefix 已经被应用
-		 */
-		private boolean prefixApplied;
-		/**
-		 * 是否 suffix 已经被应用
-		 */
-		private boolean suffixApplied;
 		/**
 		 * StringBuilder 对象
 		 *
@@ -120,22 +161,11 @@ public class TrimSqlNode implements SqlNode {
 		public FilteredDynamicContext(DynamicContext delegate) {
 			super(configuration, null);
 			this.delegate = delegate;
-			this.prefixApplied = false;
-			this.suffixApplied = false;
 			this.sqlBuffer = new StringBuilder();
 		}
 
 		public void applyAll() {
-			// <1> 去除前后多余的空格，生成新的 sqlBuffer 对象
-			sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
-			// <2> 全部大写
-			String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
-			// <3> 应用 TrimSqlNode 的 trim 逻辑
-			if (trimmedUppercaseSql.length() > 0) {
-				applyPrefix(sqlBuffer, trimmedUppercaseSql);
-				applySuffix(sqlBuffer, trimmedUppercaseSql);
-			}
-			delegate.appendSql(sqlBuffer.toString());
+			delegate.appendSql(trimSql(sqlBuffer.toString()));
 		}
 
 		@Override
@@ -163,48 +193,6 @@ public class TrimSqlNode implements SqlNode {
 			return delegate.getSql();
 		}
 
-		private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
-			if (!prefixApplied) {
-				prefixApplied = true;
-				// prefixesToOverride 非空，先删除
-				if (prefixesToOverride != null) {
-					for (String toRemove : prefixesToOverride) {
-						if (trimmedUppercaseSql.startsWith(toRemove)) {
-							sql.delete(0, toRemove.trim().length());
-							break;
-						}
-					}
-				}
-				// prefix 非空，再添加
-				if (prefix != null) {
-					sql.insert(0, " ");
-					sql.insert(0, prefix);
-				}
-			}
-		}
-
-		private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
-			if (!suffixApplied) {
-				suffixApplied = true;
-				// suffixesToOverride 非空，先删除
-				if (suffixesToOverride != null) {
-					for (String toRemove : suffixesToOverride) {
-						if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
-							int start = sql.length() - toRemove.trim().length();
-							int end = sql.length();
-							sql.delete(start, end);
-							break;
-						}
-					}
-				}
-				// suffix 非空，再添加
-				if (suffix != null) {
-					sql.append(" ");
-					sql.append(suffix);
-				}
-			}
-		}
-
 	}
 
 }
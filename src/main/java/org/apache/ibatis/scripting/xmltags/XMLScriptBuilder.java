@@ -18,6 +18,7 @@ package org.apache.ibatis.scripting.xmltags;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.ibatis.builder.BaseBuilder;
@@ -50,13 +51,27 @@ public class XMLScriptBuilder extends BaseBuilder {
 	 * NodeHandler 的映射
 	 */
 	private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
+	/**
+	 * <if /> <when /> <foreach /> 节点使用的表达式计算器
+	 */
+	private final ExpressionEvaluator expressionEvaluator;
 
 	public XMLScriptBuilder(Configuration configuration, XNode context) {
 		this(configuration, context, null);
 	}
 
 	public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType) {
+		this(configuration, context, parameterType, configuration.isSimpleExpressionEvaluationEnabled()
+				? new SimpleExpressionEvaluator(configuration.getReflectorFactory()) : new ExpressionEvaluator());
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public XMLScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType,
+			ExpressionEvaluator expressionEvaluator) {
 		super(configuration);
+		this.expressionEvaluator = expressionEvaluator;
 		this.context = context;
 		this.parameterType = parameterType;
 		initNodeHandlerMap();
@@ -80,7 +95,10 @@ public class XMLScriptBuilder extends BaseBuilder {
 		SqlSource sqlSource;
 		if (isDynamic) {
 		  // 动态语句，使用了 ${} 也算
-			sqlSource = new DynamicSqlSource(configuration, rootSqlNode);
+			// 开启编译时，将节点树编译成指令数组
+			SqlNode sqlNode = configuration.isDynamicSqlCompilationEnabled()
+					? CompiledSqlNode.compile(configuration, rootSqlNode) : rootSqlNode;
+			sqlSource = new DynamicSqlSource(configuration, sqlNode);
 		} else {
 			sqlSource = new RawSqlSource(configuration, rootSqlNode, parameterType);
 		}
@@ -229,12 +247,23 @@ public class XMLScriptBuilder extends BaseBuilder {
 			String open = nodeToHandle.getStringAttribute("open");
 			String close = nodeToHandle.getStringAttribute("close");
 			String separator = nodeToHandle.getStringAttribute("separator");
+			// 获得 mode 属性，默认为 expand
+			ForEachSqlNode.Mode mode = resolveForEachMode(nodeToHandle.getStringAttribute("mode", "expand"));
 			// 创建 ForEachSqlNode 对象
-			ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+			ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator,
+					mode, expressionEvaluator);
 			targetContents.add(forEachSqlNode);
 		}
 	}
 
+	private ForEachSqlNode.Mode resolveForEachMode(String mode) {
+		try {
+			return ForEachSqlNode.Mode.valueOf(mode.toUpperCase(Locale.ENGLISH));
+		} catch (IllegalArgumentException e) {
+			throw new BuilderException("Unknown foreach mode '" + mode + "'. Expected expand, array or padded.", e);
+		}
+	}
+
 	private class IfHandler implements NodeHandler {
 		public IfHandler() {
 			// Prevent Synthetic Access
@@ -247,7 +276,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 			// 获得 test 属性
 			String test = nodeToHandle.getStringAttribute("test");
 			// 创建 IfSqlNode 对象
-			IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+			IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test, expressionEvaluator);
 			targetContents.add(ifSqlNode);
 		}
 	}
@@ -22,10 +22,17 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStats;
+import org.apache.ibatis.cache.CacheTagIndex;
+import org.apache.ibatis.cache.CompactCacheSerializer;
+import org.apache.ibatis.cache.JavaCacheSerializer;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
@@ -35,6 +42,8 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.metrics.InMemoryStatementMetricsCollector;
+import org.apache.ibatis.executor.metrics.StatementMetricsCollector;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
@@ -74,6 +83,13 @@ import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 /**
@@ -171,6 +187,70 @@ public class Configuration {
    * 此参数只可以在查询设置中被覆盖
    */
 	protected Integer defaultFetchSize;
+  /**
+   * fetchType 为 batch 时，每次嵌套子查询的最大参数个数
+   */
+	protected int batchFetchSize = 100;
+  /**
+   * 游标查询是否在后台线程读取并映射结果行（不含嵌套子查询的 ResultMap 才生效）
+   */
+	protected boolean pipelinedCursorEnabled;
+  /**
+   * 游标后台映射线程池的最大线程数，线程都在使用时，新的游标在消费者线程上映射
+   */
+	protected int pipelinedCursorMaxThreads = Runtime.getRuntime().availableProcessors();
+  /**
+   * 游标后台映射使用的线程池，未设置时按 pipelinedCursorMaxThreads 创建
+   */
+	protected ExecutorService pipelinedCursorExecutor;
+  /**
+   * 语句默认是否并行映射简单 ResultMap 的结果行，语句可以通过 parallelResultMapping 属性单独开启
+   */
+	protected boolean parallelResultMappingEnabled;
+  /**
+   * 并行映射时，每个任务映射的行数
+   */
+	protected int parallelResultMappingChunkSize = 1000;
+  /**
+   * 并行映射线程池的最大线程数，每个查询最多同时映射两倍于它的块
+   */
+	protected int parallelResultMappingMaxThreads = Runtime.getRuntime().availableProcessors();
+  /**
+   * 并行映射使用的线程池，未设置时按 parallelResultMappingMaxThreads 创建
+   */
+	protected ExecutorService parallelResultMappingExecutor;
+  /**
+   * 语句执行指标的收集器，为空时不收集
+   */
+	protected StatementMetricsCollector statementMetricsCollector;
+  /**
+   * 执行耗时超过该毫秒数的语句会打印警告日志，0 表示不检测
+   */
+	protected long slowStatementThresholdMillis;
+  /**
+   * 查询返回的行数超过该值时打印警告日志，0 表示不检测
+   */
+	protected int maxRowsWarnThreshold;
+  /**
+   * 查询返回的行数超过该值时抛出异常，0 表示不限制
+   */
+	protected int maxRowsHardLimit;
+  /**
+   * 每个动态 SQL 最多缓存的 SQL 形状（生成的 SQL 、参数类型和附加参数类型）的解析结果数量，0 表示不缓存
+   */
+	protected int sqlShapeCacheSize = 64;
+  /**
+   * 是否在加载 Mapper 时将动态 SQL 的节点树编译成扁平的指令数组
+   */
+	protected boolean dynamicSqlCompilationEnabled;
+  /**
+   * 是否使用 SimpleExpressionEvaluator 计算动态 SQL 中的表达式，不支持的表达式仍由 OGNL 计算
+   */
+	protected boolean simpleExpressionEvaluationEnabled;
+  /**
+   * 一条语句最多的参数个数，用于减小声明了 chunkSize 的语句每批的元素个数，0 表示不限制
+   */
+	protected int maxParametersPerStatement;
   /**
    * 指定语句默认的滚动策略（新增于 3.5.2）
    */
@@ -268,6 +348,16 @@ public class Configuration {
 	 * KEY：namespace
 	 */
 	protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+	/**
+	 * Cache 的标签索引
+	 * KEY：Cache 的编号
+	 */
+	protected final Map<String, CacheTagIndex> cacheTagIndexes = new ConcurrentHashMap<>();
+	/**
+	 * Cache 的统计信息
+	 * KEY：Cache 的编号
+	 */
+	protected final Map<String, CacheStats> cacheStats = new ConcurrentHashMap<>();
   /**
    * ResultMap 集合
    *  KEY：namespace+'.'+id
@@ -324,10 +414,16 @@ public class Configuration {
 		typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
 		typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+		typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+		typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
 		typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
 		typeAliasRegistry.registerAlias("LRU", LruCache.class);
 		typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
 		typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+		typeAliasRegistry.registerAlias("WEIGHTED", WeightedCache.class);
+
+		typeAliasRegistry.registerAlias("JAVA", JavaCacheSerializer.class);
+		typeAliasRegistry.registerAlias("COMPACT", CompactCacheSerializer.class);
 
 		typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -345,6 +441,8 @@ public class Configuration {
 		typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
 		typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+		typeAliasRegistry.registerAlias("IN_MEMORY", InMemoryStatementMetricsCollector.class);
+
 		languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
 		languageRegistry.register(RawLanguageDriver.class);
 	}
@@ -570,6 +668,347 @@ public class Configuration {
 		this.defaultFetchSize = defaultFetchSize;
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public int getBatchFetchSize() {
+		return batchFetchSize;
+	}
+
+	/**
+	 * Sets the maximum number of parent rows whose nested select a {@code fetchType="batch"} mapping runs at once.
+	 *
+	 * @param batchFetchSize the batch size
+	 * @since 3.5.3
+	 */
+	public void setBatchFetchSize(int batchFetchSize) {
+		this.batchFetchSize = batchFetchSize;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public boolean isPipelinedCursorEnabled() {
+		return pipelinedCursorEnabled;
+	}
+
+	/**
+	 * Sets whether cursors read and map rows on a background thread, buffering up to one fetch size of rows ahead
+	 * of the consumer. Result maps with nested selects always map on the consumer thread. The background thread reads
+	 * from the connection of the session, so the session cannot run other statements until the cursor is consumed or
+	 * closed.
+	 *
+	 * @param pipelinedCursorEnabled whether to map cursor rows in the background
+	 * @since 3.5.3
+	 */
+	public void setPipelinedCursorEnabled(boolean pipelinedCursorEnabled) {
+		this.pipelinedCursorEnabled = pipelinedCursorEnabled;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getPipelinedCursorMaxThreads() {
+		return pipelinedCursorMaxThreads;
+	}
+
+	/**
+	 * Sets the maximum number of background threads of the default pipelined cursor executor. When they are all
+	 * busy, a new pipelined cursor maps its rows on the consumer thread instead. Only used when the default executor
+	 * is created, so it must be set before the first pipelined cursor is read.
+	 *
+	 * @param pipelinedCursorMaxThreads the maximum number of threads, the number of processors by default
+	 * @since 3.5.3
+	 */
+	public void setPipelinedCursorMaxThreads(int pipelinedCursorMaxThreads) {
+		this.pipelinedCursorMaxThreads = pipelinedCursorMaxThreads;
+	}
+
+	/**
+	 * Returns the executor running the background reads of pipelined cursors, creating a pool of
+	 * {@link #getPipelinedCursorMaxThreads()} daemon threads when none was set.
+	 *
+	 * @since 3.5.3
+	 */
+	public synchronized ExecutorService getPipelinedCursorExecutor() {
+		if (pipelinedCursorExecutor == null) {
+			AtomicInteger count = new AtomicInteger();
+			int threads = Math.max(1, pipelinedCursorMaxThreads);
+			// 不排队，线程都在使用时拒绝，由游标在消费者线程上映射
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<>(), runnable -> {
+						Thread thread = new Thread(runnable, "mybatis-cursor-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true);
+			pipelinedCursorExecutor = executor;
+		}
+		return pipelinedCursorExecutor;
+	}
+
+	/**
+	 * Sets the executor running the background reads of pipelined cursors. A task it rejects is run on the consumer
+	 * thread instead. MyBatis does not shut it down.
+	 *
+	 * @param pipelinedCursorExecutor the executor
+	 * @since 3.5.3
+	 */
+	public synchronized void setPipelinedCursorExecutor(ExecutorService pipelinedCursorExecutor) {
+		this.pipelinedCursorExecutor = pipelinedCursorExecutor;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public boolean isParallelResultMappingEnabled() {
+		return parallelResultMappingEnabled;
+	}
+
+	/**
+	 * Sets whether statements map the rows of a simple result map in parallel by default. A statement can enable it
+	 * on its own with the {@code parallelResultMapping} attribute. The column values are still read on the calling
+	 * thread, and the result objects are created and populated on the {@link #getParallelResultMappingExecutor()
+	 * parallel result mapping executor} in chunks, then handed to the result handler in order. Result maps with nested
+	 * result maps, nested selects, a discriminator or constructor mappings are always mapped on the calling thread.
+	 *
+	 * @param parallelResultMappingEnabled whether to map rows in parallel by default
+	 * @since 3.5.3
+	 */
+	public void setParallelResultMappingEnabled(boolean parallelResultMappingEnabled) {
+		this.parallelResultMappingEnabled = parallelResultMappingEnabled;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getParallelResultMappingChunkSize() {
+		return parallelResultMappingChunkSize;
+	}
+
+	/**
+	 * Sets the number of rows mapped by each parallel task. Results smaller than one chunk are mapped on the calling
+	 * thread.
+	 *
+	 * @param parallelResultMappingChunkSize the number of rows per task
+	 * @since 3.5.3
+	 */
+	public void setParallelResultMappingChunkSize(int parallelResultMappingChunkSize) {
+		this.parallelResultMappingChunkSize = parallelResultMappingChunkSize;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getParallelResultMappingMaxThreads() {
+		return parallelResultMappingMaxThreads;
+	}
+
+	/**
+	 * Sets the number of threads of the default parallel result mapping executor. A query keeps at most twice as many
+	 * chunks in flight, which bounds the rows it buffers. Only used when the default executor is created, so it must
+	 * be set before the first query mapped in parallel.
+	 *
+	 * @param parallelResultMappingMaxThreads the maximum number of threads, the number of processors by default
+	 * @since 3.5.3
+	 */
+	public void setParallelResultMappingMaxThreads(int parallelResultMappingMaxThreads) {
+		this.parallelResultMappingMaxThreads = parallelResultMappingMaxThreads;
+	}
+
+	/**
+	 * Returns the executor mapping the chunks of parallel result mapping, creating a pool of
+	 * {@link #getParallelResultMappingMaxThreads()} daemon threads when none was set. The common ForkJoinPool is not
+	 * used, so mapping never competes with the application's own parallel tasks there.
+	 *
+	 * @since 3.5.3
+	 */
+	public synchronized ExecutorService getParallelResultMappingExecutor() {
+		if (parallelResultMappingExecutor == null) {
+			AtomicInteger count = new AtomicInteger();
+			int threads = Math.max(1, parallelResultMappingMaxThreads);
+			// 队列有界，线程池已满时拒绝，由查询线程自己映射
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<>(threads * 2), runnable -> {
+						Thread thread = new Thread(runnable, "mybatis-mapping-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					});
+			executor.allowCoreThreadTimeOut(true);
+			parallelResultMappingExecutor = executor;
+		}
+		return parallelResultMappingExecutor;
+	}
+
+	/**
+	 * Sets the executor mapping the chunks of parallel result mapping. A chunk it rejects is mapped on the calling
+	 * thread instead. MyBatis does not shut it down.
+	 *
+	 * @param parallelResultMappingExecutor the executor
+	 * @since 3.5.3
+	 */
+	public synchronized void setParallelResultMappingExecutor(ExecutorService parallelResultMappingExecutor) {
+		this.parallelResultMappingExecutor = parallelResultMappingExecutor;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public StatementMetricsCollector getStatementMetricsCollector() {
+		return statementMetricsCollector;
+	}
+
+	/**
+	 * Sets the collector notified of the execution events of every mapped statement: invocations, cache hits,
+	 * connection acquire, prepare, execute and mapping times, rows returned or affected and lazy loads. No metrics are
+	 * collected by default.
+	 *
+	 * @param statementMetricsCollector the collector, null to disable the metrics
+	 * @since 3.5.3
+	 * @see InMemoryStatementMetricsCollector
+	 */
+	public void setStatementMetricsCollector(StatementMetricsCollector statementMetricsCollector) {
+		this.statementMetricsCollector = statementMetricsCollector;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public long getSlowStatementThresholdMillis() {
+		return slowStatementThresholdMillis;
+	}
+
+	/**
+	 * Sets the duration above which a query or an update is logged as slow, at the warn level of the statement log,
+	 * with its SQL and parameters. The duration of a query includes the mapping of its results.
+	 *
+	 * @param slowStatementThresholdMillis the threshold in milliseconds, 0 to disable the check
+	 * @since 3.5.3
+	 */
+	public void setSlowStatementThresholdMillis(long slowStatementThresholdMillis) {
+		this.slowStatementThresholdMillis = slowStatementThresholdMillis;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getMaxRowsWarnThreshold() {
+		return maxRowsWarnThreshold;
+	}
+
+	/**
+	 * Sets the number of rows above which a query is logged, at the warn level of the statement log, as soon as the
+	 * row is read. Only the results collected into a list are checked, the results passed to a
+	 * {@link ResultHandler} or read through a {@link org.apache.ibatis.cursor.Cursor} are not.
+	 *
+	 * @param maxRowsWarnThreshold the number of rows, 0 to disable the check
+	 * @since 3.5.3
+	 */
+	public void setMaxRowsWarnThreshold(int maxRowsWarnThreshold) {
+		this.maxRowsWarnThreshold = maxRowsWarnThreshold;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getMaxRowsHardLimit() {
+		return maxRowsHardLimit;
+	}
+
+	/**
+	 * Sets the number of rows above which a query fails with an {@link org.apache.ibatis.executor.ExecutorException}
+	 * as soon as the row is read, before the remaining rows are mapped. Only the results collected into a list are
+	 * checked, the results passed to a {@link ResultHandler} or read through a
+	 * {@link org.apache.ibatis.cursor.Cursor} are not.
+	 *
+	 * @param maxRowsHardLimit the number of rows, 0 for no limit
+	 * @since 3.5.3
+	 */
+	public void setMaxRowsHardLimit(int maxRowsHardLimit) {
+		this.maxRowsHardLimit = maxRowsHardLimit;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getSqlShapeCacheSize() {
+		return sqlShapeCacheSize;
+	}
+
+	/**
+	 * Sets the number of SQL shapes for which each dynamic SQL statement keeps the result of replacing the
+	 * {@code #{}} placeholders, so that the calls that render the same SQL for parameters of the same types skip the
+	 * parsing and the parameter mapping resolution. The shapes are identified by the rendered SQL, the parameter type
+	 * and the types of the additional bindings; the first shapes are kept, later shapes are parsed on every call. It
+	 * applies to the statements parsed after it is set.
+	 *
+	 * @param sqlShapeCacheSize the number of shapes per statement, 0 to parse the SQL on every call
+	 * @since 3.5.3
+	 */
+	public void setSqlShapeCacheSize(int sqlShapeCacheSize) {
+		this.sqlShapeCacheSize = sqlShapeCacheSize;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public boolean isDynamicSqlCompilationEnabled() {
+		return dynamicSqlCompilationEnabled;
+	}
+
+	/**
+	 * Sets whether the node tree of each dynamic SQL statement is compiled into a flat instruction list when the mapper
+	 * is loaded. The compiled form renders the same SQL as the tree without walking it recursively or wrapping the
+	 * context for {@code <trim>}, {@code <where>} and {@code <set>}; {@code <foreach>}, {@code <bind>} and
+	 * {@code ${}} text are still applied as nodes. It applies to the statements parsed after it is set.
+	 *
+	 * @param dynamicSqlCompilationEnabled true to compile dynamic SQL statements
+	 * @since 3.5.3
+	 */
+	public void setDynamicSqlCompilationEnabled(boolean dynamicSqlCompilationEnabled) {
+		this.dynamicSqlCompilationEnabled = dynamicSqlCompilationEnabled;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public boolean isSimpleExpressionEvaluationEnabled() {
+		return simpleExpressionEvaluationEnabled;
+	}
+
+	/**
+	 * Sets whether the expressions of {@code <if>}, {@code <when>} and {@code <foreach>} are evaluated with a
+	 * {@link org.apache.ibatis.scripting.xmltags.SimpleExpressionEvaluator}, which reads the properties directly
+	 * instead of creating an OGNL context on every evaluation. Expressions outside its subset are still evaluated
+	 * with OGNL. It applies to the statements parsed after it is set; a single statement can use it through
+	 * {@link org.apache.ibatis.scripting.xmltags.SimpleExpressionLanguageDriver}.
+	 *
+	 * @param simpleExpressionEvaluationEnabled true to evaluate the supported expressions without OGNL
+	 * @since 3.5.3
+	 */
+	public void setSimpleExpressionEvaluationEnabled(boolean simpleExpressionEvaluationEnabled) {
+		this.simpleExpressionEvaluationEnabled = simpleExpressionEvaluationEnabled;
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public int getMaxParametersPerStatement() {
+		return maxParametersPerStatement;
+	}
+
+	/**
+	 * Sets the maximum number of parameters the driver accepts in one statement, e.g. 2100 on SQL Server. The chunks
+	 * of a statement declaring a {@code chunkSize} are made smaller when needed so that each one stays within this
+	 * limit; the number of parameters per element is measured by rendering the statement for the first elements.
+	 *
+	 * @param maxParametersPerStatement the maximum number of parameters, 0 for no limit
+	 * @since 3.5.3
+	 */
+	public void setMaxParametersPerStatement(int maxParametersPerStatement) {
+		this.maxParametersPerStatement = maxParametersPerStatement;
+	}
+
 	/**
 	 * @since 3.5.2
 	 */
@@ -774,7 +1213,7 @@ public class Configuration {
 		}
 		// <3> 如果开启缓存，创建 CachingExecutor 对象，进行包装
 		if (cacheEnabled) {
-			executor = new CachingExecutor(executor);
+			executor = new CachingExecutor(executor, this);
 		}
 		// <4> 应用插件
 		executor = (Executor) interceptorChain.pluginAll(executor);
@@ -821,6 +1260,44 @@ public class Configuration {
 		return caches.containsKey(id);
 	}
 
+	/**
+	 * @since 3.5.3
+	 */
+	public void addCacheStats(CacheStats stats) {
+		cacheStats.put(stats.getId(), stats);
+	}
+
+	/**
+	 * Returns the statistics of the caches created from the mappers, one per namespace declaring a cache.
+	 *
+	 * @return the statistics
+	 * @since 3.5.3
+	 */
+	public Collection<CacheStats> getCacheStats() {
+		return Collections.unmodifiableCollection(cacheStats.values());
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public CacheStats getCacheStats(String cacheId) {
+		return cacheStats.get(cacheId);
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public CacheTagIndex addCacheTagIndex(String cacheId) {
+		return cacheTagIndexes.computeIfAbsent(cacheId, id -> new CacheTagIndex());
+	}
+
+	/**
+	 * @since 3.5.3
+	 */
+	public CacheTagIndex getCacheTagIndex(String cacheId) {
+		return cacheTagIndexes.get(cacheId);
+	}
+
 	public void addResultMap(ResultMap rm) {
 		// <1> 添加到 resultMaps 中
 		resultMaps.put(rm.getId(), rm);
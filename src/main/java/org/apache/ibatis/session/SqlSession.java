@@ -19,8 +19,10 @@ import java.io.Closeable;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.CursorSpliterator;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -143,6 +145,43 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A Stream over a Cursor. Rows are fetched as the stream pulls them, and closing the stream closes the cursor.
+   * @param <T> the returned stream element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement) {
+    return selectStream(statement, null);
+  }
+
+  /**
+   * A Stream over a Cursor. Rows are fetched as the stream pulls them, and closing the stream closes the cursor.
+   * @param <T> the returned stream element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement, Object parameter) {
+    return selectStream(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * A Stream over a Cursor. Rows are fetched as the stream pulls them, and closing the stream closes the cursor.
+   * @param <T> the returned stream element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Stream of mapped objects
+   * @since 3.5.3
+   */
+  default <T> Stream<T> selectStream(String statement, Object parameter, RowBounds rowBounds) {
+    Cursor<T> cursor = selectCursor(statement, parameter, rowBounds);
+    return CursorSpliterator.stream(cursor, getConfiguration(), statement);
+  }
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
@@ -24,6 +24,7 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Stream;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
@@ -198,6 +199,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
 		return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
 	}
 
+	@Override
+	public <T> Stream<T> selectStream(String statement) {
+		return sqlSessionProxy.selectStream(statement);
+	}
+
+	@Override
+	public <T> Stream<T> selectStream(String statement, Object parameter) {
+		return sqlSessionProxy.selectStream(statement, parameter);
+	}
+
+	@Override
+	public <T> Stream<T> selectStream(String statement, Object parameter, RowBounds rowBounds) {
+		return sqlSessionProxy.selectStream(statement, parameter, rowBounds);
+	}
+
 	@Override
 	public <E> List<E> selectList(String statement) {
 		return sqlSessionProxy.selectList(statement);
@@ -25,9 +25,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -221,6 +223,10 @@ public class DefaultSqlSession implements SqlSession {
 			dirty = true;
 			// <2> 获得 MappedStatement 对象
 			MappedStatement ms = configuration.getMappedStatement(statement);
+			// 声明了 chunkSize 时，将集合参数分批执行
+			if (ms.getChunkSize() > 0) {
+				return updateInChunks(ms, parameter);
+			}
 			// <3> 执行更新操作
 			return executor.update(ms, wrapCollection(parameter));
 		} catch (Exception e) {
@@ -344,6 +350,87 @@ public class DefaultSqlSession implements SqlSession {
 		return (!autoCommit && dirty) || force;
 	}
 
+	/**
+	 * 将集合参数（或者 ParamMap 中唯一的集合参数）按 chunkSize 分批，依次执行
+	 */
+	private int updateInChunks(MappedStatement ms, Object parameter) throws SQLException {
+		Collection<?> collection = getChunkedCollection(parameter);
+		if (collection == null || collection.size() <= 1) {
+			return executor.update(ms, wrapCollection(parameter));
+		}
+		List<?> elements = collection instanceof List ? (List<?>) collection : new ArrayList<>(collection);
+		int chunkSize = getChunkSize(ms, parameter, collection, elements);
+		if (elements.size() <= chunkSize) {
+			return executor.update(ms, wrapCollection(parameter));
+		}
+		int updatedRows = 0;
+		boolean batched = false;
+		for (int from = 0; from < elements.size(); from += chunkSize) {
+			List<?> chunk = elements.subList(from, Math.min(from + chunkSize, elements.size()));
+			int result = executor.update(ms, wrapCollection(replaceCollection(parameter, collection, chunk)));
+			// BatchExecutor 不返回更新的行数
+			if (result == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+				batched = true;
+			} else {
+				updatedRows += result;
+			}
+		}
+		return batched ? BatchExecutor.BATCH_UPDATE_RETURN_VALUE : updatedRows;
+	}
+
+	private Collection<?> getChunkedCollection(Object parameter) {
+		if (parameter instanceof Collection) {
+			return (Collection<?>) parameter;
+		}
+		if (parameter instanceof ParamMap) {
+			// 同一个集合可能以多个名字（@Param 的名字和 param1）保存
+			Collection<?> collection = null;
+			for (Object value : ((ParamMap<?>) parameter).values()) {
+				if (value instanceof Collection && value != collection) {
+					if (collection != null) {
+						return null;
+					}
+					collection = (Collection<?>) value;
+				}
+			}
+			return collection;
+		}
+		return null;
+	}
+
+	private Object replaceCollection(Object parameter, Collection<?> collection, List<?> chunk) {
+		if (parameter == collection) {
+			return chunk;
+		}
+		ParamMap<Object> paramMap = new ParamMap<>();
+		for (Map.Entry<String, ?> entry : ((ParamMap<?>) parameter).entrySet()) {
+			paramMap.put(entry.getKey(), entry.getValue() == collection ? chunk : entry.getValue());
+		}
+		return paramMap;
+	}
+
+	/**
+	 * 获得每批的元素个数。设置了 maxParametersPerStatement 时，根据前两个元素生成的 SQL 估算每个元素的参数个数，
+	 * 保证每批的参数个数不超过该值
+	 */
+	private int getChunkSize(MappedStatement ms, Object parameter, Collection<?> collection, List<?> elements) {
+		int chunkSize = ms.getChunkSize();
+		int maxParameters = configuration.getMaxParametersPerStatement();
+		if (maxParameters > 0) {
+			int one = countParameters(ms, replaceCollection(parameter, collection, elements.subList(0, 1)));
+			int two = countParameters(ms, replaceCollection(parameter, collection, elements.subList(0, 2)));
+			int perElement = two - one;
+			if (perElement > 0) {
+				chunkSize = Math.min(chunkSize, Math.max(1, (maxParameters - (one - perElement)) / perElement));
+			}
+		}
+		return chunkSize;
+	}
+
+	private int countParameters(MappedStatement ms, Object parameter) {
+		return ms.getBoundSql(wrapCollection(parameter)).getParameterMappings().size();
+	}
+
 	private Object wrapCollection(final Object object) {
 		if (object instanceof Collection) {
 			// 如果是集合，则添加到 collection 中
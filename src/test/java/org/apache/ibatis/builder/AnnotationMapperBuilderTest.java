@@ -15,10 +15,14 @@
  */
 package org.apache.ibatis.builder;
 
+import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -27,6 +31,7 @@ import org.apache.ibatis.session.Configuration;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class AnnotationMapperBuilderTest {
 
@@ -94,6 +99,57 @@ class AnnotationMapperBuilderTest {
     assertThat(mappedStatement.getResultSetType()).isEqualTo(ResultSetType.DEFAULT);
   }
 
+  @Test
+  void shouldEvictByBytesWhenMaxBytesIsSetWithDefaultEviction() {
+    Configuration configuration = new Configuration();
+    MapperAnnotationBuilder builder = new MapperAnnotationBuilder(configuration, MaxBytesMapper.class);
+    builder.parse();
+
+    Cache cache = configuration.getCache(MaxBytesMapper.class.getName());
+    cache.putObject("key", "value");
+    assertThat(configuration.getCacheStats(MaxBytesMapper.class.getName()).getEstimatedBytes()).isPositive();
+  }
+
+  @Test
+  void shouldFailWhenMaxBytesIsSetWithUnsupportedEviction() {
+    Configuration configuration = new Configuration();
+    MapperAnnotationBuilder builder = new MapperAnnotationBuilder(configuration, FifoMaxBytesMapper.class);
+    assertThatThrownBy(builder::parse).isInstanceOf(BuilderException.class)
+        .hasMessageContaining(FifoCache.class.getName());
+  }
+
+  @Test
+  void shouldFailWhenEvictionIsSetOnConcurrentCache() {
+    Configuration configuration = new Configuration();
+    MapperAnnotationBuilder builder = new MapperAnnotationBuilder(configuration, FifoConcurrentCacheMapper.class);
+    assertThatThrownBy(builder::parse).isInstanceOf(BuilderException.class)
+        .hasMessageContaining(FifoCache.class.getName());
+  }
+
+  @Test
+  void shouldFailWhenMaxBytesIsSetOnConcurrentCache() {
+    Configuration configuration = new Configuration();
+    MapperAnnotationBuilder builder = new MapperAnnotationBuilder(configuration, MaxBytesConcurrentCacheMapper.class);
+    assertThatThrownBy(builder::parse).isInstanceOf(BuilderException.class)
+        .hasMessageContaining("maxBytes");
+  }
+
+  @CacheNamespace(maxBytes = 1024)
+  interface MaxBytesMapper {
+  }
+
+  @CacheNamespace(eviction = FifoCache.class, maxBytes = 1024)
+  interface FifoMaxBytesMapper {
+  }
+
+  @CacheNamespace(implementation = ConcurrentCache.class, eviction = FifoCache.class)
+  interface FifoConcurrentCacheMapper {
+  }
+
+  @CacheNamespace(implementation = ConcurrentCache.class, maxBytes = 1024)
+  interface MaxBytesConcurrentCacheMapper {
+  }
+
   interface Mapper {
 
     @Insert("insert into test (name) values(#{name})")
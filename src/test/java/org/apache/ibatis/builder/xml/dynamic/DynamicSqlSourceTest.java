@@ -15,10 +15,14 @@
  */
 package org.apache.ibatis.builder.xml.dynamic;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,9 +31,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.scripting.xmltags.IfSqlNode;
@@ -38,9 +46,11 @@ import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.ArrayTypeHandler;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -399,6 +409,169 @@ class DynamicSqlSourceTest extends BaseDataTest {
     Assertions.assertEquals("id=", sql);
   }
 
+  @Test
+  void shouldReuseParameterMappingsOfSameShape() {
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(),
+        mixedContents(new TextSqlNode("select * from blog where id = #{id}")));
+    BoundSql first = source.getBoundSql(new Bean("1"));
+    BoundSql second = source.getBoundSql(new Bean("2"));
+    assertEquals("select * from blog where id = ?", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(String.class, second.getParameterMappings().get(0).getJavaType());
+    assertEquals("2", ((Bean) second.getParameterObject()).getId());
+  }
+
+  @Test
+  void shouldNotReuseParameterMappingsWhenTypeDependsOnBindingContents() {
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(), mixedContents(context -> {
+      context.bind("item", context.getBindings().get(DynamicContext.PARAMETER_OBJECT_KEY));
+      context.appendSql("select * from blog where id = #{item.value}");
+      return true;
+    }));
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("value", 1);
+    assertEquals(Integer.class, source.getBoundSql(parameter).getParameterMappings().get(0).getJavaType());
+    parameter.put("value", "one");
+    assertEquals(String.class, source.getBoundSql(parameter).getParameterMappings().get(0).getJavaType());
+  }
+
+  @Test
+  void shouldNotReuseParameterMappingsWhenShapeCacheIsDisabled() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheSize(0);
+    final DynamicSqlSource source = new DynamicSqlSource(configuration,
+        mixedContents(new TextSqlNode("select * from blog where id = #{id}")));
+    assertNotSame(source.getBoundSql(new Bean("1")).getParameterMappings(),
+        source.getBoundSql(new Bean("2")).getParameterMappings());
+  }
+
+  @Test
+  void shouldRenderSameSqlWhenCompiled() {
+    String script = "<script>select * from blog"
+        + "<where>"
+        + "  <if test='name != null'>and name = #{name}</if>"
+        + "  <choose>"
+        + "    <when test='id != null'>and id = #{id}</when>"
+        + "    <when test='ids != null'>or id in <foreach item='item' collection='ids' open='(' separator=',' close=')'>#{item}</foreach></when>"
+        + "    <otherwise>and draft = 0</otherwise>"
+        + "  </choose>"
+        + "</where>"
+        + "<trim prefix='order by' suffixOverrides=','><if test='name != null'>name,</if> id,</trim>"
+        + "</script>";
+    Map<String, Object> parameter = new HashMap<>();
+    assertCompiledSql("select * from blog WHERE draft = 0 order by id", script, parameter);
+    parameter.put("ids", Arrays.asList(1, 2));
+    assertCompiledSql("select * from blog WHERE id in (?,?) order by id", script, parameter);
+    parameter.put("id", 1);
+    parameter.put("name", "mybatis");
+    assertCompiledSql("select * from blog WHERE name = ? and id = ? order by name, id", script, parameter);
+  }
+
+  @Test
+  void shouldRenderSameSqlWhenCompiledWithNestedTrims() {
+    String script = "<script>update blog"
+        + "<set>"
+        + "  <if test='name != null'>name = #{name},</if>"
+        + "  <trim prefix='title = concat(' suffix=')' suffixOverrides=','>"
+        + "    <if test='title != null'>#{title},</if>"
+        + "    <if test='name != null'>#{name},</if>"
+        + "  </trim>,"
+        + "  <bind name='key' value='id' />"
+        + "</set>"
+        + " where id = #{key}"
+        + "</script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1);
+    assertCompiledSql("update blog SET where id = ?", script, parameter);
+    parameter.put("name", "mybatis");
+    assertCompiledSql("update blog SET name = ?, title = concat( ? ) where id = ?", script, parameter);
+    parameter.put("title", "blog");
+    assertCompiledSql("update blog SET name = ?, title = concat( ?, ? ) where id = ?", script, parameter);
+  }
+
+  @Test
+  void shouldPadForEachToBucketSize() {
+    String script = "<script>select * from blog where id in"
+        + "<foreach item='id' collection='ids' open='(' separator=',' close=')' mode='padded'>#{id}</foreach>"
+        + "</script>";
+    SqlSource source = new XMLLanguageDriver().createSqlSource(new Configuration(), script, Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    BoundSql boundSql = source.getBoundSql(parameter);
+    assertEquals("select * from blog where id in ( ? , ? , ? , ? , ? , ? , ? , ? )", boundSql.getSql().replaceAll("\\s+", " "));
+    List<Object> values = new ArrayList<>();
+    boundSql.getParameterMappings().forEach(mapping -> values.add(boundSql.getAdditionalParameter(mapping.getProperty())));
+    assertEquals(Arrays.asList(1, 2, 3, 3, 3, 3, 3, 3), values);
+    parameter.put("ids", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9));
+    assertEquals(16, source.getBoundSql(parameter).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldBindForEachAsArray() {
+    String script = "<script>select * from blog where id = any"
+        + "<foreach item='id' collection='ids' open='(' close=')' mode='array'>#{id}</foreach>"
+        + "</script>";
+    SqlSource source = new XMLLanguageDriver().createSqlSource(new Configuration(), script, Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    BoundSql boundSql = source.getBoundSql(parameter);
+    assertEquals("select * from blog where id = any ( ? )", boundSql.getSql().replaceAll("\\s+", " "));
+    assertEquals(1, boundSql.getParameterMappings().size());
+    ParameterMapping mapping = boundSql.getParameterMappings().get(0);
+    assertEquals(ArrayTypeHandler.class, mapping.getTypeHandler().getClass());
+    assertArrayEquals(new Integer[] { 1, 2, 3 }, (Integer[]) boundSql.getAdditionalParameter(mapping.getProperty()));
+  }
+
+  @Test
+  void shouldWidenMixedNumbersWhenBindingForEachAsArray() {
+    String script = "<script>select * from blog where id = any"
+        + "<foreach item='id' collection='ids' open='(' close=')' mode='array'>#{id}</foreach>"
+        + "</script>";
+    SqlSource source = new XMLLanguageDriver().createSqlSource(new Configuration(), script, Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, null, 2L));
+    BoundSql boundSql = source.getBoundSql(parameter);
+    String property = boundSql.getParameterMappings().get(0).getProperty();
+    assertArrayEquals(new Long[] { 1L, null, 2L }, (Long[]) boundSql.getAdditionalParameter(property));
+    parameter.put("ids", Arrays.asList(1, new BigDecimal("2.5")));
+    boundSql = source.getBoundSql(parameter);
+    property = boundSql.getParameterMappings().get(0).getProperty();
+    assertArrayEquals(new BigDecimal[] { new BigDecimal(1), new BigDecimal("2.5") },
+        (BigDecimal[]) boundSql.getAdditionalParameter(property));
+  }
+
+  @Test
+  void shouldRejectForEachArrayWithoutCommonType() {
+    String script = "<script>select * from blog where id = any"
+        + "<foreach item='id' collection='ids' open='(' close=')' mode='array'>#{id}</foreach>"
+        + "</script>";
+    SqlSource source = new XMLLanguageDriver().createSqlSource(new Configuration(), script, Map.class);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, "two"));
+    Assertions.assertThrows(BuilderException.class, () -> source.getBoundSql(parameter));
+    parameter.put("ids", Arrays.asList(null, null));
+    Assertions.assertThrows(BuilderException.class, () -> source.getBoundSql(parameter));
+  }
+
+  @Test
+  void shouldRejectUnknownForEachMode() {
+    String script = "<script>select * from blog where id in"
+        + "<foreach item='id' collection='ids' mode='chunked'>#{id}</foreach>"
+        + "</script>";
+    Assertions.assertThrows(BuilderException.class,
+        () -> new XMLLanguageDriver().createSqlSource(new Configuration(), script, Map.class));
+  }
+
+  private void assertCompiledSql(String expected, String script, Object parameter) {
+    XMLLanguageDriver languageDriver = new XMLLanguageDriver();
+    Configuration configuration = new Configuration();
+    String interpreted = languageDriver.createSqlSource(configuration, script, Map.class).getBoundSql(parameter).getSql();
+    configuration.setDynamicSqlCompilationEnabled(true);
+    String compiled = languageDriver.createSqlSource(configuration, script, Map.class).getBoundSql(parameter).getSql();
+    assertEquals(interpreted, compiled);
+    assertEquals(expected, compiled.replaceAll("\\s+", " "));
+  }
+
   public static class Bean {
     public String id;
     Bean(String property) {
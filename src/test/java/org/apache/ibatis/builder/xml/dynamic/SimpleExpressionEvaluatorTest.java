@@ -0,0 +1,124 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.SimpleExpressionEvaluator;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class SimpleExpressionEvaluatorTest {
+
+  private final SimpleExpressionEvaluator evaluator = new SimpleExpressionEvaluator();
+
+  private final Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+
+  @Test
+  void shouldCompareStrings() {
+    assertTrue(evaluator.evaluateBoolean("username == 'cbegin'", author));
+    assertTrue(evaluator.evaluateBoolean("username neq \"norm\"", author));
+    assertTrue(evaluator.evaluateBoolean("username != null and username != ''", author));
+    assertFalse(evaluator.evaluateBoolean("password != null and password != ''", author));
+  }
+
+  @Test
+  void shouldCompareNumbersOfDifferentTypes() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 5L);
+    parameter.put("price", new BigDecimal("1.50"));
+    assertTrue(evaluator.evaluateBoolean("id == 5", parameter));
+    assertTrue(evaluator.evaluateBoolean("id gt 4 && id <= 5", parameter));
+    assertTrue(evaluator.evaluateBoolean("price == 1.5", parameter));
+    assertFalse(evaluator.evaluateBoolean("price > 2", parameter));
+  }
+
+  @Test
+  void shouldEvaluateLogicalOperators() {
+    assertTrue(evaluator.evaluateBoolean("not (password != null or id == 0)", author));
+    assertFalse(evaluator.evaluateBoolean("!username", author));
+    assertTrue(evaluator.evaluateBoolean("password == null || bogus", author));
+  }
+
+  @Test
+  void shouldEvaluateAgainstContextBindings() {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2));
+    parameter.put("empty", Collections.emptyList());
+    parameter.put("author", author);
+    DynamicContext context = new DynamicContext(new Configuration(), parameter);
+    context.bind("name", " ");
+    Map<String, Object> bindings = context.getBindings();
+    assertTrue(evaluator.evaluateBoolean("ids != null and ids.size() > 0", bindings));
+    assertFalse(evaluator.evaluateBoolean("empty != null and !empty.isEmpty()", bindings));
+    assertTrue(evaluator.evaluateBoolean("author.username.length() == 6", bindings));
+    assertFalse(evaluator.evaluateBoolean("name.trim().length() > 0", bindings));
+    assertFalse(evaluator.evaluateBoolean("missing != null", bindings));
+    assertEquals(Arrays.asList(1, 2), evaluator.evaluateIterable("ids", bindings));
+  }
+
+  @Test
+  void shouldFallBackToOgnlForOtherExpressions() {
+    assertTrue(evaluator.evaluateBoolean("username.startsWith('cb')", author));
+    assertTrue(evaluator.evaluateBoolean("favouriteSection.name() == 'NEWS'", author));
+  }
+
+  @Test
+  void shouldPropagateGetterExceptionsInsteadOfFallingBackToOgnl() {
+    BuilderException e = assertThrows(BuilderException.class,
+        () -> evaluator.evaluateBoolean("broken != null", new BrokenBean()));
+    assertSame(BrokenBean.FAILURE, e.getCause());
+  }
+
+  @Test
+  void shouldReadPropertiesWithTheGivenReflectorFactory() {
+    Map<Class<?>, Integer> lookups = new HashMap<>();
+    SimpleExpressionEvaluator evaluator = new SimpleExpressionEvaluator(new DefaultReflectorFactory() {
+      @Override
+      public Reflector findForClass(Class<?> type) {
+        lookups.merge(type, 1, Integer::sum);
+        return super.findForClass(type);
+      }
+    });
+    assertTrue(evaluator.evaluateBoolean("username == 'cbegin'", author));
+    assertEquals(Integer.valueOf(1), lookups.get(Author.class));
+  }
+
+  public static class BrokenBean {
+    static final IllegalStateException FAILURE = new IllegalStateException("broken");
+
+    public String getBroken() {
+      throw FAILURE;
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldHandValueToWaitingThread() throws Exception {
+    AtomicInteger reads = new AtomicInteger();
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default") {
+      @Override
+      public Object getObject(Object key) {
+        reads.incrementAndGet();
+        return super.getObject(key);
+      }
+    });
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(200);
+      assertFalse(waiter.isDone());
+      int readsBeforePut = reads.get();
+      cache.putObject("key", "value");
+      assertEquals("value", waiter.get(1, TimeUnit.SECONDS));
+      assertEquals(readsBeforePut, reads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldFallThroughAfterTimeout() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(100);
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertNull(executor.submit(() -> cache.getObject("key")).get(1, TimeUnit.SECONDS));
+      // the thread that timed out does not own the key, its put does not release the owner
+      executor.submit(() -> cache.putObject("key", "other")).get(1, TimeUnit.SECONDS);
+      cache.putObject("key", "value");
+      assertEquals("value", cache.getObject("key"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldLetWaitingThreadLoadAbandonedKey() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> {
+        Object value = cache.getObject("key");
+        cache.putObject("key", "loaded");
+        return value;
+      });
+      Thread.sleep(100);
+      cache.removeObject("key");
+      assertNull(waiter.get(1, TimeUnit.SECONDS));
+      assertEquals("loaded", cache.getObject("key"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldNotBlockOwnerReadingItsKeyAgain() {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
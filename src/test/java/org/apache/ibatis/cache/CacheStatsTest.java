@@ -0,0 +1,104 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CacheStatsTest {
+
+  @Test
+  void shouldCountReadsPutsAndEvictions() {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").size(2).stats(stats).build();
+    cache.putObject(1, "a");
+    cache.putObject(2, "b");
+    cache.putObject(3, "c");
+    assertNull(cache.getObject(1));
+    assertEquals("c", cache.getObject(3));
+    assertEquals(3, stats.getPuts());
+    assertEquals(1, stats.getEvictions());
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    assertEquals(0.5, stats.getHitRatio());
+    assertEquals(2, stats.getEntryCount());
+    assertEquals(-1, stats.getEstimatedBytes());
+    stats.reset();
+    assertEquals(0, stats.getPuts());
+    assertEquals(0.0, stats.getHitRatio());
+  }
+
+  @Test
+  void shouldCountEachReadOnceOnBlockingCache() {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").blocking(true).stats(stats).build();
+    assertNull(cache.getObject(1));
+    cache.putObject(1, "a");
+    assertEquals("a", cache.getObject(1));
+    assertNull(cache.getObject(2));
+    cache.putObject(2, null);
+    assertEquals(1, stats.getHits());
+    assertEquals(2, stats.getMisses());
+    assertEquals(1, stats.getPuts());
+  }
+
+  @Test
+  void shouldReportEstimatedBytesOfWeightedCache() {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").addDecorator(WeightedCache.class).maxBytes(1024L).stats(stats).build();
+    cache.putObject(1, new byte[100]);
+    assertEquals(new DefaultCacheWeigher().weigh(1, new byte[100]), stats.getEstimatedBytes());
+  }
+
+  @Test
+  void shouldCountCommitFlushes() {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").stats(stats).build();
+    TransactionalCache tx = new TransactionalCache(cache, stats);
+    tx.commit();
+    tx.putObject(1, "a");
+    tx.putObject(2, "b");
+    tx.commit();
+    assertEquals(1, stats.getCommitFlushes());
+    assertEquals(2, stats.getCommitFlushedEntries());
+  }
+
+  @Test
+  void shouldRegisterMBeans() throws Exception {
+    Configuration configuration = new Configuration();
+    CacheStats stats = new CacheStats("org.apache.ibatis.Mapper");
+    configuration.addCacheStats(stats);
+    stats.recordHit();
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    CacheStatsMBeans.register(configuration, server);
+    // registering again replaces the MBean
+    CacheStatsMBeans.register(configuration, server);
+    ObjectName name = CacheStatsMBeans.objectName("org.apache.ibatis.Mapper");
+    assertEquals(1L, server.getAttribute(name, "Hits"));
+    CacheStatsMBeans.unregister(configuration, server);
+    assertFalse(server.isRegistered(name));
+  }
+
+}
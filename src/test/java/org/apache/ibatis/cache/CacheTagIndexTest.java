@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CacheTagIndexTest {
+
+  @Test
+  void shouldEvictOnlyTaggedEntriesOnCommit() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagIndex index = new CacheTagIndex();
+    TransactionalCache tx = new TransactionalCache(cache);
+    tx.putObject("user1", "a", index, Arrays.asList("user:1", "users"));
+    tx.putObject("user2", "b", index, Arrays.asList("user:2", "users"));
+    tx.commit();
+
+    tx.invalidate(index, Collections.singletonList("user:1"));
+    // not visible any more to the transaction that wrote it, still visible to the others
+    assertNull(tx.getObject("user1"));
+    assertEquals("b", tx.getObject("user2"));
+    assertEquals("a", cache.getObject("user1"));
+    tx.commit();
+
+    assertNull(cache.getObject("user1"));
+    assertEquals("b", cache.getObject("user2"));
+    assertFalse(index.isTagged("user2", Collections.singletonList("user:1")));
+    assertTrue(index.isTagged("user2", Collections.singletonList("users")));
+  }
+
+  @Test
+  void shouldDropPendingTaggedEntriesOnInvalidate() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagIndex index = new CacheTagIndex();
+    TransactionalCache tx = new TransactionalCache(cache);
+    tx.putObject("user1", "a", index, Collections.singletonList("user:1"));
+    tx.putObject("user2", "b", index, Collections.singletonList("user:2"));
+    tx.invalidate(index, Collections.singletonList("user:1"));
+    tx.commit();
+    assertNull(cache.getObject("user1"));
+    assertEquals("b", cache.getObject("user2"));
+  }
+
+  @Test
+  void shouldKeepTagsOnRollback() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagIndex index = new CacheTagIndex();
+    TransactionalCache tx = new TransactionalCache(cache);
+    tx.putObject("user1", "a", index, Collections.singletonList("user:1"));
+    tx.commit();
+    tx.invalidate(index, Collections.singletonList("user:1"));
+    tx.rollback();
+    assertEquals("a", cache.getObject("user1"));
+    assertTrue(index.isTagged("user1", Collections.singletonList("user:1")));
+  }
+
+  @Test
+  void shouldClearWholeCacheOnceOverflowed() {
+    Cache cache = new PerpetualCache("default");
+    CacheTagIndex index = new CacheTagIndex(2);
+    TransactionalCache tx = new TransactionalCache(cache);
+    tx.putObject("user1", "a", index, Collections.singletonList("user:1"));
+    tx.putObject("user2", "b", index, Collections.singletonList("user:2"));
+    tx.putObject("user3", "c", index, Collections.singletonList("user:3"));
+    tx.commit();
+    assertTrue(index.isOverflowed());
+
+    tx.invalidate(index, Collections.singletonList("user:3"));
+    tx.commit();
+    assertEquals(0, cache.getSize());
+    assertFalse(index.isOverflowed());
+  }
+
+  @Test
+  void shouldEvictThroughBlockingCache() {
+    Cache cache = new BlockingCache(new PerpetualCache("default"));
+    CacheTagIndex index = new CacheTagIndex();
+    TransactionalCache tx = new TransactionalCache(cache);
+    tx.putObject("user1", "a", index, Collections.singletonList("user:1"));
+    tx.commit();
+    tx.invalidate(index, Collections.singletonList("user:1"));
+    tx.commit();
+    assertNull(cache.getObject("user1"));
+    cache.putObject("user1", "b");
+    assertEquals("b", cache.getObject("user1"));
+  }
+
+  @Test
+  void shouldResolveTagsFromParameter() {
+    Configuration configuration = new Configuration();
+    MappedStatement select = new MappedStatement.Builder(configuration, "ns.selectAuthor",
+        new StaticSqlSource(configuration, "select"), SqlCommandType.SELECT).cacheTags("author:#{id}").build();
+    MappedStatement update = new MappedStatement.Builder(configuration, "ns.updateAuthor",
+        new StaticSqlSource(configuration, "update"), SqlCommandType.UPDATE)
+            .cacheTags("author:#{id}, selectAuthor").build();
+    configuration.addMappedStatement(select);
+    configuration.addMappedStatement(update);
+
+    assertEquals(Arrays.asList("ns.selectAuthor", "author:101"), select.resolveCacheTags(101));
+    Author author = new Author(101);
+    List<String> tags = update.resolveCacheTags(author);
+    assertEquals(Arrays.asList("author:101", "ns.selectAuthor"), tags);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheSerializerTest {
+
+  private final CacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  void shouldCopySimpleValues() {
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", 1);
+    row.put("amount", new BigDecimal("12.345"));
+    row.put("created", new Timestamp(1000L));
+    row.put("day", new Date(2000L));
+    row.put("section", Section.NEWS);
+    row.put("name", "中文");
+    row.put("nothing", null);
+    Object copy = serializer.deserialize(serializer.serialize(row));
+    assertNotSame(row, copy);
+    assertEquals(row, copy);
+  }
+
+  @Test
+  void shouldCopyBeansWithCircularReferences() {
+    Author author = new Author(101, "jim", "******", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "Blog", author, new ArrayList<>());
+    Post post = new Post();
+    post.setId(10);
+    post.setBlog(blog);
+    post.setAuthor(author);
+    post.setSubject("subject");
+    blog.getPosts().add(post);
+
+    Blog copy = (Blog) serializer.deserialize(serializer.serialize(blog));
+    assertNotSame(blog, copy);
+    assertEquals("Blog", copy.getTitle());
+    assertEquals(author, copy.getAuthor());
+    Post postCopy = copy.getPosts().get(0);
+    assertEquals("subject", postCopy.getSubject());
+    assertSame(copy, postCopy.getBlog());
+    assertSame(copy.getAuthor(), postCopy.getAuthor());
+  }
+
+  @Test
+  void shouldFallBackToJavaSerialization() {
+    List<String> list = Collections.unmodifiableList(new ArrayList<>(Collections.singletonList("a")));
+    assertEquals(list, serializer.deserialize(serializer.serialize(list)));
+    assertThrows(CacheException.class, () -> serializer.serialize(Collections.singletonList(new Object())));
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "******", "user" + i + "@ibatis.apache.org", "", Section.NEWS));
+    }
+    int compact = serializer.serialize(authors).length;
+    int java = new JavaCacheSerializer().serialize(authors).length;
+    assertTrue(compact < java, compact + " >= " + java);
+    assertEquals(authors, serializer.deserialize(serializer.serialize(authors)));
+  }
+
+  @Test
+  void shouldBeUsedBySerializedCache() {
+    Cache cache = new CacheBuilder("default").serializer(CompactCacheSerializer.class).readWrite(true).build();
+    Blog blog = new Blog(1, "Blog", null, new ArrayList<>());
+    cache.putObject("key", blog);
+    assertEquals("Blog", ((Blog) cache.getObject("key")).getTitle());
+    assertNotSame(blog, cache.getObject("key"));
+
+    Cache javaCache = new SerializedCache(new PerpetualCache("default"));
+    assertThrows(CacheException.class, () -> javaCache.putObject("key", blog));
+  }
+
+}
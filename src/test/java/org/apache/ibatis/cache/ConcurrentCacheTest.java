@@ -0,0 +1,133 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentCacheTest {
+
+  @Test
+  void shouldNeverExceedItsSize() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(10);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(10, cache.getSize());
+    assertEquals(99, cache.getObject(99));
+  }
+
+  @Test
+  void shouldKeepRecentlyReadItem() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    // two segments, keys 0, 2 and 4 all go to the first one which holds two entries
+    cache.setSize(3);
+    cache.putObject(0, 0);
+    cache.putObject(2, 2);
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(4, 4);
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(2));
+    assertEquals(4, cache.getObject(4));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(64);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 1000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            cache.putObject(offset + i, i);
+            cache.getObject(offset + i / 2);
+            if (i % 10 == 0) {
+              cache.removeObject(offset + i);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getSize() <= 64);
+  }
+
+  @Test
+  void shouldNotBeSynchronizedByCacheBuilder() {
+    Cache cache = new CacheBuilder("default").implementation(ConcurrentCache.class).size(5).readWrite(true).build();
+    assertTrue(cache instanceof LoggingCache);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertEquals(9, cache.getObject(9));
+  }
+
+  @Test
+  void shouldSerializeWhenReadWrite() {
+    Cache cache = new SerializedCache(new ConcurrentCache("default"));
+    List<String> value = new ArrayList<>();
+    value.add("a");
+    cache.putObject("key", value);
+    assertNotSame(value, cache.getObject("key"));
+    assertEquals(value, cache.getObject("key"));
+  }
+
+}
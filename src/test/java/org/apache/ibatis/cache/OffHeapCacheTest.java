@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfStoredObjects() {
+    Cache cache = new OffHeapCache("default");
+    List<String> value = new ArrayList<>();
+    value.add("a");
+    cache.putObject("key", value);
+    assertNotSame(value, cache.getObject("key"));
+    assertEquals(value, cache.getObject("key"));
+    cache.putObject("bytes", new byte[] { 1, 2, 3 });
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) cache.getObject("bytes"));
+  }
+
+  @Test
+  void shouldOverwriteOldestItemsWhenFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setMaxBytes(2048);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new byte[100]);
+    }
+    assertTrue(cache.getSize() < 100);
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(99));
+  }
+
+  @Test
+  void shouldNotStoreMoreThanMaxBytesWithDefaultSlabSize() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxBytes(4096);
+    cache.putObject("small", new byte[3000]);
+    cache.putObject("large", new byte[5000]);
+    assertNotNull(cache.getObject("small"));
+    assertNull(cache.getObject("large"));
+    assertTrue(cache.getUsedBytes() <= 4096);
+  }
+
+  @Test
+  void shouldRejectMaxBytesThatIsNotAMultipleOfSlabSize() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setMaxBytes(1500);
+    assertThrows(CacheException.class, () -> cache.putObject("key", "value"));
+  }
+
+  @Test
+  void shouldRemoveAndFlushItems() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertEquals(4, cache.getSize());
+    cache.clear();
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldNotKeepItemLargerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.putObject("key", new byte[10]);
+    cache.putObject("key", new byte[2048]);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldSurviveReopeningTheFile() throws Exception {
+    File file = Files.createTempFile("offheap", ".cache").toFile();
+    file.deleteOnExit();
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(1024);
+    cache.setMaxBytes(4096);
+    cache.setFile(file.getAbsolutePath());
+    for (int i = 0; i < 20; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    cache.putObject(1, "updated");
+    cache.removeObject(2);
+
+    OffHeapCache reopened = new OffHeapCache("default");
+    reopened.setSlabSize(1024);
+    reopened.setMaxBytes(4096);
+    reopened.setFile(file.getAbsolutePath());
+    assertEquals(cache.getSize(), reopened.getSize());
+    assertEquals("updated", reopened.getObject(1));
+    assertNull(reopened.getObject(2));
+    assertEquals("value19", reopened.getObject(19));
+  }
+
+  @Test
+  void shouldNotBeSynchronizedByCacheBuilder() {
+    Cache cache = new CacheBuilder("default").implementation(OffHeapCache.class).maxBytes(1024L * 1024)
+        .readWrite(true).build();
+    assertTrue(cache instanceof LoggingCache);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadCacheTest {
+
+  @Test
+  void shouldRefreshEntryReadBeforeItExpires() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setTimeToLive(1000);
+    cache.setRefreshAheadFactor(0.2);
+    cache.setExecutor(Runnable::run);
+    AtomicInteger loads = new AtomicInteger();
+    cache.setLoader("key", () -> "value" + loads.incrementAndGet());
+    cache.putObject("key", "value0");
+    assertEquals("value0", cache.getObject("key"));
+    assertEquals(0, loads.get());
+    Thread.sleep(300);
+    // the current value is served while the refresh happens
+    assertEquals("value0", cache.getObject("key"));
+    assertEquals(1, loads.get());
+    assertEquals("value1", cache.getObject("key"));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldExpireEntryNotReadInTime() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setTimeToLive(100);
+    cache.setExecutor(Runnable::run);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    Thread.sleep(200);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldForgetLoaderReturningNull() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setTimeToLive(1000);
+    cache.setRefreshAheadFactor(0);
+    cache.setExecutor(Runnable::run);
+    AtomicInteger loads = new AtomicInteger();
+    cache.setLoader("key", () -> {
+      loads.incrementAndGet();
+      return null;
+    });
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldNotServeValueWithUnknownAge() {
+    Cache storage = new PerpetualCache("default");
+    storage.putObject("key", "value");
+    RefreshAheadCache cache = new RefreshAheadCache(storage);
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    cache.clear();
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldLoadExpiredEntryOnceAndCountItAsMiss() throws Exception {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").clearInterval(100L).refreshAhead(true).blocking(true).stats(stats)
+        .build();
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    Thread.sleep(200);
+    // this thread now loads the expired entry, the other one waits for it instead of loading it too
+    assertNull(cache.getObject("key"));
+    assertEquals(1, stats.getHits());
+    assertEquals(1, stats.getMisses());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiting = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      cache.putObject("key", "reloaded");
+      assertEquals("reloaded", waiting.get(1, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldBeOutermostDecorator() {
+    Cache cache = new CacheBuilder("default").clearInterval(60000L).refreshAhead(true).blocking(true).build();
+    assertTrue(cache instanceof RefreshAheadCache);
+    assertThrows(CacheException.class, () -> new CacheBuilder("default").refreshAhead(true).build());
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldEvictLeastRecentlyUsedItemsOverMaxBytes() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    cache.putObject(0, new byte[40]);
+    cache.putObject(1, new byte[40]);
+    assertNotNull(cache.getObject(0));
+    cache.putObject(2, new byte[40]);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertEquals(80, cache.getWeight());
+  }
+
+  @Test
+  void shouldNotKeepItemLargerThanMaxBytes() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(1, new byte[200]);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  void shouldTrackWeightOnReplaceRemoveAndClear() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher((key, value) -> ((byte[]) value).length);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(0, new byte[30]);
+    assertEquals(30, cache.getWeight());
+    cache.putObject(1, new byte[5]);
+    cache.removeObject(0);
+    assertEquals(5, cache.getWeight());
+    cache.clear();
+    assertEquals(0, cache.getWeight());
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldBeBuiltWithMaxBytes() {
+    Cache cache = new CacheBuilder("default").addDecorator(WeightedCache.class).maxBytes(1000L)
+        .weigher(DefaultCacheWeigher.class).readWrite(true).build();
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    assertTrue(cache.getSize() < 100);
+    assertEquals("value99", cache.getObject(99));
+  }
+
+  @Test
+  void shouldWeighReadWriteValuesBySerializedSize() {
+    CacheStats stats = new CacheStats("default");
+    Cache cache = new CacheBuilder("default").addDecorator(WeightedCache.class).maxBytes(100000L)
+        .readWrite(true).stats(stats).build();
+    cache.putObject(0, "small");
+    long small = stats.getEstimatedBytes();
+    cache.clear();
+    cache.putObject(0, new String(new char[1000]));
+    long large = stats.getEstimatedBytes();
+    assertTrue(large - small >= 1000 - "small".length());
+  }
+
+}
@@ -168,6 +168,22 @@ class DefaultCursorTest {
       return (Integer) rows.get(rowIndex).get(columnLabel);
     }
 
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+      throwIfClosed();
+      return "id".equalsIgnoreCase(columnLabel) ? 1 : 2;
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+      return getString(columnIndex == 1 ? "id" : "role");
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+      return getInt(columnIndex == 1 ? "id" : "role");
+    }
+
     @Override
     public boolean wasNull() throws SQLException {
       throwIfClosed();
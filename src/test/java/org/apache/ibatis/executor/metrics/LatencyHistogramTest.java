@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldMapValuesToContiguousBuckets() {
+    assertEquals(0, LatencyHistogram.lowestEquivalentValue(0));
+    for (int index = 1; index < 960; index++) {
+      long lowest = LatencyHistogram.lowestEquivalentValue(index);
+      assertEquals(LatencyHistogram.highestEquivalentValue(index - 1) + 1, lowest);
+      assertEquals(index, LatencyHistogram.bucketIndex(lowest));
+      assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.highestEquivalentValue(index)));
+    }
+    assertEquals(959, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  void shouldReportPercentilesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 10000; value++) {
+      histogram.record(value * 1000);
+    }
+    assertEquals(10000, histogram.getCount());
+    assertEquals(10000000, histogram.getMax());
+    assertEquals(5000500.0, histogram.getMean());
+    assertEquals(5000000, histogram.getValueAtPercentile(50), 5000000 / LatencyHistogram.SUB_BUCKETS);
+    assertEquals(9900000, histogram.getValueAtPercentile(99), 9900000 / LatencyHistogram.SUB_BUCKETS);
+    assertEquals(10000000, histogram.getValueAtPercentile(100));
+    assertEquals(1000, histogram.getValueAtPercentile(0), 1000 / LatencyHistogram.SUB_BUCKETS);
+  }
+
+  @Test
+  void shouldRecordSmallValuesExactlyAndReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(7);
+    histogram.record(7);
+    assertEquals(0, histogram.getValueAtPercentile(30));
+    assertEquals(7, histogram.getValueAtPercentile(50));
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+}
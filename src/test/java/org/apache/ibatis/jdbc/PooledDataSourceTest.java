@@ -24,6 +24,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
@@ -75,6 +78,185 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainPoolWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(3, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertTrue(ds.getPoolState().toString().contains("poolConcurrentBagEnabled       true"));
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReuseConnectionReturnedByTheSameThreadWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      Connection c1 = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      c1.close();
+      Connection c2 = ds.getConnection();
+      assertSame(real, PooledDataSource.unwrapConnection(c2));
+      assertThrows(SQLException.class, c1::createStatement);
+      c2.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotReturnConnectionRemovedByForceCloseAllWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      Connection c1 = ds.getConnection();
+      Connection real = PooledDataSource.unwrapConnection(c1);
+      ds.forceCloseAll();
+      c1.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(real.isClosed());
+      Connection c2 = ds.getConnection();
+      assertNotSame(real, PooledDataSource.unwrapConnection(c2));
+      c2.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffConnectionsToWaitingThreadsWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              assertTrue(c.getAutoCommit());
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+      assertEquals(400, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldPrewarmIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumIdleConnections(3);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.setPoolHousekeepingPeriod(20);
+      ds.getConnection().close();
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ds.getPoolState().getIdleConnectionCount() < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getRequestCount());
+    } finally {
+      ds.setPoolMinimumIdleConnections(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotPrewarmBeyondMaximumActiveConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(3);
+      ds.setPoolMinimumIdleConnections(3);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      ds.setPoolHousekeepingPeriod(20);
+      Thread.sleep(200);
+      assertEquals(2, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      c1.close();
+      c2.close();
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolMinimumIdleConnections(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseConnectionsOlderThanMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumLifetime(10);
+      Connection c = ds.getConnection();
+      Thread.sleep(50);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolMaximumLifetime(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRetireIdleConnectionsAfterIdleTimeoutWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolIdleTimeout(50);
+      ds.setPoolKeepaliveTime(10);
+      ds.setPoolHousekeepingPeriod(20);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ds.getPoolState().getIdleConnectionCount() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolIdleTimeout(0);
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
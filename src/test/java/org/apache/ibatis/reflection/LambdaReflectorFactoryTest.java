@@ -0,0 +1,106 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.junit.jupiter.api.Test;
+
+class LambdaReflectorFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new LambdaReflectorFactory();
+
+  @Test
+  void shouldGetAndSetThroughGeneratedAccessors() {
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    assertSame(reflector, reflectorFactory.findForClass(Author.class));
+    assertTrue(reflector.getGetInvoker("username") instanceof LambdaMethodInvoker);
+    assertTrue(reflector.getSetInvoker("id") instanceof LambdaMethodInvoker);
+
+    Author author = new Author();
+    MetaObject metaObject = newMetaObject(author);
+    metaObject.setValue("id", 101);
+    metaObject.setValue("username", "jim");
+    metaObject.setValue("favouriteSection", Section.NEWS);
+    assertEquals(101, author.getId());
+    assertEquals(101, metaObject.getValue("id"));
+    assertEquals("jim", metaObject.getValue("username"));
+    assertEquals(Section.NEWS, metaObject.getValue("favouriteSection"));
+  }
+
+  @Test
+  void shouldFallBackToReflectionForNonPublicClasses() {
+    Hidden hidden = new Hidden();
+    MetaObject metaObject = newMetaObject(hidden);
+    metaObject.setValue("name", "value");
+    assertEquals("value", metaObject.getValue("name"));
+  }
+
+  @Test
+  void shouldRejectNullForPrimitiveSetter() {
+    MetaObject metaObject = newMetaObject(new Author());
+    assertThrows(ReflectionException.class, () -> metaObject.setValue("id", null));
+  }
+
+  @Test
+  void shouldRejectArgumentOfWrongTypeLikeReflection() throws Exception {
+    Invoker invoker = reflectorFactory.findForClass(Author.class).getSetInvoker("username");
+    assertTrue(invoker instanceof LambdaMethodInvoker);
+    Author author = new Author();
+    // same as through reflection
+    assertThrows(IllegalArgumentException.class, () -> invoker.invoke(author, new Object[] { 1 }));
+    assertThrows(IllegalArgumentException.class, () -> invoker.invoke(new Object(), new Object[] { "jim" }));
+    invoker.invoke(author, new Object[] { "jim" });
+    assertEquals("jim", author.getUsername());
+  }
+
+  @Test
+  void shouldPropagateExceptionOfAccessor() {
+    MetaObject metaObject = newMetaObject(new Failing());
+    // same as through reflection
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> metaObject.getValue("value"));
+    assertEquals("expected", e.getMessage());
+  }
+
+  private MetaObject newMetaObject(Object object) {
+    return MetaObject.forObject(object, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+  private static class Hidden {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  public static class Failing {
+    public String getValue() {
+      throw new IllegalStateException("expected");
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_fetch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFetchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_fetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_fetch/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    StatementCounter.COUNT.set(0);
+  }
+
+  @Test
+  void shouldLoadCollectionsOncePerBatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Author> authors = sqlSession.getMapper(Mapper.class).getAuthors();
+      assertEquals(3, authors.size());
+      assertEquals(2, authors.get(0).getPosts().size());
+      assertEquals("first", authors.get(0).getPosts().get(0).getSubject());
+      assertEquals("third", authors.get(0).getPosts().get(1).getSubject());
+      assertEquals(2, authors.get(1).getPosts().size());
+      assertTrue(authors.get(2).getPosts().isEmpty());
+      // the authors, then their posts in two batches of batchFetchSize ids
+      assertEquals(3, StatementCounter.COUNT.get());
+    }
+  }
+
+  @Test
+  void shouldLoadLazilyForPendingSiblings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Author> authors = sqlSession.getMapper(Mapper.class).getAuthorsLazily();
+      assertEquals(1, StatementCounter.COUNT.get());
+      // loads the posts of the first two authors
+      assertEquals(2, authors.get(0).getPosts().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+      assertEquals(2, authors.get(1).getPosts().size());
+      assertEquals(2, StatementCounter.COUNT.get());
+      assertTrue(authors.get(2).getPosts().isEmpty());
+      assertEquals(3, StatementCounter.COUNT.get());
+    }
+  }
+
+  @Test
+  void shouldLoadAssociationsOncePerDistinctKey() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Post> posts = sqlSession.getMapper(Mapper.class).getPosts();
+      assertEquals(4, posts.size());
+      assertEquals("jim", posts.get(0).getAuthor().getName());
+      assertEquals("sally", posts.get(1).getAuthor().getName());
+      assertSame(posts.get(0).getAuthor(), posts.get(2).getAuthor());
+      assertEquals(2, StatementCounter.COUNT.get());
+    }
+  }
+
+  @Test
+  void shouldLoadBidirectionalBatchMappings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Author> authors = sqlSession.getMapper(Mapper.class).getAuthorsWithPosts();
+      assertEquals(3, authors.size());
+      List<Post> posts = authors.get(0).getPosts();
+      assertEquals(2, posts.size());
+      Author author = posts.get(0).getAuthor();
+      assertEquals("jim", author.getName());
+      // the posts of the nested authors come from the batch that was still running when they were mapped
+      assertEquals(2, author.getPosts().size());
+      assertEquals("third", author.getPosts().get(1).getSubject());
+      assertSame(posts.get(0), author.getPosts().get(0));
+      assertTrue(authors.get(2).getPosts().isEmpty());
+    }
+  }
+
+  @Test
+  void shouldMatchNumericKeysOfDifferentTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // the parent key is read as a BigDecimal, the foreign key property is an Integer
+      List<Author> authors = sqlSession.getMapper(Mapper.class).getDecimalKeyedAuthors();
+      assertEquals(1, authors.size());
+      assertEquals(2, authors.get(0).getPosts().size());
+    }
+  }
+
+  @Test
+  void shouldRejectKeysThatCannotMatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersistenceException e = assertThrows(PersistenceException.class,
+          () -> sqlSession.getMapper(Mapper.class).getTextKeyedAuthors());
+      assertTrue(e.getMessage().contains("Cannot match the parameter 1 (java.lang.String)"));
+    }
+  }
+
+  @Test
+  void shouldLoadEagerlyWithResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.select("org.apache.ibatis.submitted.batch_fetch.Mapper.getPosts",
+          context -> assertNotNull(((Post) context.getResultObject()).getAuthor()));
+      // one nested select for each distinct author, the repeated ones hit the local cache
+      assertEquals(3, StatementCounter.COUNT.get());
+    }
+  }
+
+}
@@ -0,0 +1,53 @@
+--
+--    Copyright 2009-2021 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table post if exists;
+drop table author if exists;
+drop table decimal_author if exists;
+drop table text_author if exists;
+
+create table author (
+  id int,
+  name varchar(20)
+);
+
+create table decimal_author (
+  author_key decimal(10,0),
+  name varchar(20)
+);
+
+create table text_author (
+  author_key varchar(10),
+  name varchar(20)
+);
+
+create table post (
+  id int,
+  author_id int,
+  subject varchar(20)
+);
+
+insert into author (id, name) values (1, 'jim');
+insert into author (id, name) values (2, 'sally');
+insert into author (id, name) values (3, 'bob');
+
+insert into decimal_author (author_key, name) values (1, 'jim');
+insert into text_author (author_key, name) values ('1', 'jim');
+
+insert into post (id, author_id, subject) values (1, 1, 'first');
+insert into post (id, author_id, subject) values (2, 2, 'second');
+insert into post (id, author_id, subject) values (3, 1, 'third');
+insert into post (id, author_id, subject) values (4, 2, 'fourth');
@@ -0,0 +1,94 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.chunked_insert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.metrics.InMemoryStatementMetricsCollector;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChunkedInsertTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/chunked_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/chunked_insert/CreateDB.sql");
+  }
+
+  @Test
+  void shouldInsertInChunksAndAssignGeneratedKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = newUsers(5);
+      assertEquals(5, mapper.insertUsers(users));
+      assertEquals(5, mapper.countUsers());
+      for (User user : users) {
+        assertNotNull(user.getId());
+      }
+      assertEquals(3, executions("insertUsers"));
+    }
+  }
+
+  @Test
+  void shouldLimitChunksToMaxParametersPerStatement() {
+    sqlSessionFactory.getConfiguration().setMaxParametersPerStatement(7);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = newUsers(10);
+      assertEquals(10, mapper.insertUsersWithSuffix(users, "!"));
+      assertEquals(10, mapper.countUsers());
+      for (User user : users) {
+        assertNotNull(user.getId());
+      }
+      // two parameters per user, so at most 3 users per statement
+      assertEquals(4, executions("insertUsersWithSuffix"));
+    }
+  }
+
+  private long executions(String statement) {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    InMemoryStatementMetricsCollector collector = (InMemoryStatementMetricsCollector) configuration.getStatementMetricsCollector();
+    return collector.getMetrics(Mapper.class.getName() + "." + statement).getCount();
+  }
+
+  private static List<User> newUsers(int count) {
+    List<User> users = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      User user = new User();
+      user.setName("User" + i);
+      users.add(user);
+    }
+    return users;
+  }
+
+}
@@ -0,0 +1,44 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.chunked_insert;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert({ "<script>",
+      "insert into users (name) values",
+      "<foreach collection='list' item='user' separator=','>(#{user.name})</foreach>",
+      "</script>" })
+  @Options(useGeneratedKeys = true, keyProperty = "id", chunkSize = 2)
+  int insertUsers(List<User> users);
+
+  @Insert({ "<script>",
+      "insert into users (name) values",
+      "<foreach collection='users' item='user' separator=','>(#{user.name} || #{suffix})</foreach>",
+      "</script>" })
+  @Options(useGeneratedKeys = true, keyProperty = "users.id", chunkSize = 100)
+  int insertUsersWithSuffix(@Param("users") List<User> users, @Param("suffix") String suffix);
+
+  @Select("select count(*) from users")
+  int countUsers();
+
+}
@@ -22,7 +22,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.CursorSpliterator;
+import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -37,6 +40,11 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class CursorSimpleTest {
 
@@ -473,4 +481,139 @@ class CursorSimpleTest {
       assertTrue(cursor.isConsumed());
     }
   }
+
+  @Test
+  void shouldGetAllUsersWithPipelinedCursor() {
+    sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      Assertions.assertEquals("PipelinedCursor", usersCursor.getClass().getSimpleName());
+      Assertions.assertFalse(usersCursor.isOpen());
+
+      List<String> names = new ArrayList<>();
+      for (User user : usersCursor) {
+        Assertions.assertTrue(usersCursor.isOpen());
+        names.add(user.getName());
+        Assertions.assertEquals(names.size() - 1, usersCursor.getCurrentIndex());
+      }
+      Assertions.assertEquals("[User1, User2, User3, User4, User5]", names.toString());
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    } finally {
+      sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldApplyRowBoundsAndCloseEarlyWithPipelinedCursor() throws IOException {
+    sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3));
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertEquals("User2", iterator.next().getName());
+      Assertions.assertEquals(1, usersCursor.getCurrentIndex());
+
+      usersCursor.close();
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+      Assertions.assertFalse(iterator.hasNext());
+
+      Cursor<User> nullsCursor = sqlSession.getMapper(Mapper.class).getNullUsers(new RowBounds(1, 2));
+      List<User> users = new ArrayList<>();
+      nullsCursor.forEach(users::add);
+      Assertions.assertEquals(2, users.size());
+      Assertions.assertEquals("Kate", users.get(0).getName());
+      assertNull(users.get(1));
+      Assertions.assertTrue(nullsCursor.isConsumed());
+    } finally {
+      sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldFailFastWhenSessionIsUsedWhilePipelinedCursorIsRead() throws IOException {
+    sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers");
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertEquals("User1", iterator.next().getName());
+
+      PersistenceException e = Assertions.assertThrows(PersistenceException.class,
+          () -> sqlSession.selectList("getAllUsers"));
+      Assertions.assertTrue(e.getMessage().contains("pipelined cursor"));
+
+      usersCursor.close();
+      Assertions.assertEquals(5, sqlSession.selectList("getAllUsers").size());
+    } finally {
+      sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldNotPipelineCursorWithNestedSelectInDiscriminatorCase() {
+    sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsersWithNestedSelectInCase");
+      Assertions.assertEquals("DefaultCursor", usersCursor.getClass().getSimpleName());
+      List<String> names = new ArrayList<>();
+      usersCursor.forEach(user -> names.add(user.getName()));
+      Assertions.assertEquals("[User1, User2, User3, User4, User5]", names.toString());
+    } finally {
+      sqlSessionFactory.getConfiguration().setPipelinedCursorEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldMapOnConsumerThreadWhenPipelinedCursorExecutorRejects() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService rejecting = Executors.newSingleThreadExecutor();
+    rejecting.shutdown();
+    configuration.setPipelinedCursorEnabled(true);
+    configuration.setPipelinedCursorExecutor(rejecting);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3));
+      List<String> names = new ArrayList<>();
+      usersCursor.forEach(user -> names.add(user.getName()));
+      Assertions.assertEquals("[User2, User3, User4]", names.toString());
+      Assertions.assertEquals(3, usersCursor.getCurrentIndex());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    } finally {
+      configuration.setPipelinedCursorExecutor(null);
+      configuration.setPipelinedCursorEnabled(false);
+    }
+  }
+
+  @Test
+  void shouldStreamUsersAndCloseCursorWithStream() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<String> names;
+      try (Stream<User> users = sqlSession.getMapper(Mapper.class).getAllUsersAsStream(new RowBounds(1, 3))) {
+        names = users.map(User::getName).collect(Collectors.toList());
+      }
+      Assertions.assertEquals("[User2, User3, User4]", names.toString());
+
+      Stream<User> users = sqlSession.selectStream("getAllUsers");
+      Assertions.assertEquals("User1", users.findFirst().get().getName());
+      users.close();
+    }
+  }
+
+  @Test
+  void shouldSplitStreamByFetchSize() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> cursor = sqlSession.selectCursor("getAllUsers");
+      Spliterator<User> spliterator = new CursorSpliterator<>(cursor, 2);
+      Spliterator<User> batch = spliterator.trySplit();
+      Assertions.assertEquals(2, batch.estimateSize());
+      Assertions.assertTrue(cursor.isOpen());
+
+      List<Integer> ids = new ArrayList<>();
+      batch.forEachRemaining(user -> ids.add(user.getId()));
+      Assertions.assertTrue(spliterator.tryAdvance(user -> ids.add(user.getId())));
+      spliterator.forEachRemaining(user -> ids.add(user.getId()));
+      Assertions.assertEquals("[1, 2, 3, 4, 5]", ids.toString());
+      Assertions.assertNull(spliterator.trySplit());
+      Assertions.assertTrue(cursor.isConsumed());
+    }
+  }
 }
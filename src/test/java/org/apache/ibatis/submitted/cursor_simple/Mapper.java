@@ -20,10 +20,15 @@ import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.RowBounds;
 
+import java.util.stream.Stream;
+
 public interface Mapper {
 
   Cursor<User> getAllUsers();
 
+  @Select("select * from users")
+  Stream<User> getAllUsersAsStream(RowBounds rowBounds);
+
   @Select({
     "select null id, null name from (values (0))",
     "union all",
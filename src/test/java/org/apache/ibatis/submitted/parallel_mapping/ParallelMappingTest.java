@@ -0,0 +1,121 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final AtomicInteger submittedChunks = new AtomicInteger();
+  private static ThreadPoolExecutor mappingExecutor;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_mapping/CreateDB.sql");
+    mappingExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+      @Override
+      public void execute(Runnable command) {
+        submittedChunks.incrementAndGet();
+        super.execute(command);
+      }
+    };
+    sqlSessionFactory.getConfiguration().setParallelResultMappingExecutor(mappingExecutor);
+  }
+
+  @AfterAll
+  static void tearDown() {
+    mappingExecutor.shutdown();
+  }
+
+  @BeforeEach
+  void resetCount() {
+    submittedChunks.set(0);
+  }
+
+  @Test
+  void shouldMapRowsInChunksAndKeepOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(7, users.size());
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+        assertEquals("User" + (i + 1), users.get(i).getName());
+      }
+    }
+    // the first row is mapped on the calling thread, the other six in chunks of two
+    assertEquals(3, submittedChunks.get());
+  }
+
+  @Test
+  void shouldMapSequentiallyWithoutOptIn() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersSequentially();
+      assertEquals(7, users.size());
+      assertEquals(Integer.valueOf(7), users.get(6).getId());
+    }
+    assertEquals(0, submittedChunks.get());
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithRowBounds(new RowBounds(1, 4));
+      assertEquals(4, users.size());
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals(Integer.valueOf(i + 2), users.get(i).getId());
+      }
+    }
+  }
+
+  @Test
+  void shouldStopWhenResultHandlerStops() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Integer> ids = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getUsersWithResultHandler(context -> {
+        ids.add(context.getResultObject().getId());
+        if (ids.size() == 4) {
+          context.stop();
+        }
+      });
+      assertEquals("[1, 2, 3, 4]", ids.toString());
+    }
+  }
+
+}
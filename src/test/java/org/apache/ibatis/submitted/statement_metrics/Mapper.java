@@ -0,0 +1,54 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.FetchType;
+
+@CacheNamespace
+public interface Mapper {
+
+  @Select("select * from users order by id")
+  @Options(useCache = false)
+  List<User> getUsers();
+
+  @Select("select * from users order by id")
+  List<User> getUsersCached();
+
+  @Select("select * from users where id = #{id}")
+  @Options(useCache = false)
+  User getUserById(Integer id);
+
+  @Select("select * from users where id = #{id}")
+  @Options(useCache = false)
+  @Results({
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "boss", column = "boss_id", one = @One(select = "getUserById", fetchType = FetchType.LAZY))
+  })
+  User getUserWithBoss(Integer id);
+
+  @Update("update users set name = #{name} where id = #{id}")
+  int updateName(User user);
+
+}
@@ -0,0 +1,109 @@
+/*
+ *    Copyright 2009-2021 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.statement_metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.metrics.InMemoryStatementMetricsCollector;
+import org.apache.ibatis.executor.metrics.StatementMetrics;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class StatementMetricsTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static InMemoryStatementMetricsCollector collector;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/statement_metrics/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/statement_metrics/CreateDB.sql");
+    collector = (InMemoryStatementMetricsCollector) sqlSessionFactory.getConfiguration().getStatementMetricsCollector();
+  }
+
+  @Test
+  void shouldRecordPhasesRowsAndLocalCacheHits() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.getUsers().size());
+      assertEquals(3, mapper.getUsers().size());
+    }
+    StatementMetrics metrics = collector.getMetrics(NAMESPACE + ".getUsers");
+    assertEquals(2, metrics.getCount());
+    assertEquals(1, metrics.getLocalCacheHits());
+    assertEquals(3, metrics.getRowsReturned());
+    assertEquals(1, metrics.getConnectionAcquireTime().getCount());
+    assertEquals(1, metrics.getPrepareTime().getCount());
+    assertEquals(1, metrics.getExecuteTime().getCount());
+    assertEquals(1, metrics.getMappingTime().getCount());
+    assertTrue(metrics.getExecuteTime().getMax() > 0);
+  }
+
+  @Test
+  void shouldRecordSecondLevelCacheHits() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersCached();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersCached();
+    }
+    StatementMetrics metrics = collector.getMetrics(NAMESPACE + ".getUsersCached");
+    assertEquals(2, metrics.getCount());
+    assertEquals(1, metrics.getSecondLevelCacheHits());
+    assertEquals(1, metrics.getExecuteTime().getCount());
+  }
+
+  @Test
+  void shouldRecordLazyLoads() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = sqlSession.getMapper(Mapper.class).getUserWithBoss(2);
+      assertNull(collector.getMetrics(NAMESPACE + ".getUserById"));
+      assertEquals("User1", user.getBoss().getName());
+    }
+    StatementMetrics metrics = collector.getMetrics(NAMESPACE + ".getUserById");
+    assertEquals(1, metrics.getLazyLoads());
+    assertEquals(1, metrics.getCount());
+    assertEquals(1, metrics.getRowsReturned());
+  }
+
+  @Test
+  void shouldRecordRowsAffected() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = new User();
+      user.setId(3);
+      user.setName("Renamed");
+      assertEquals(1, sqlSession.getMapper(Mapper.class).updateName(user));
+    }
+    StatementMetrics metrics = collector.getMetrics(NAMESPACE + ".updateName");
+    assertEquals(1, metrics.getCount());
+    assertEquals(1, metrics.getRowsAffected());
+    assertEquals(0, metrics.getRowsReturned());
+  }
+
+}